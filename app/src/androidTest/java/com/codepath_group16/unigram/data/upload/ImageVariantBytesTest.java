@@ -0,0 +1,100 @@
+package com.codepath_group16.unigram.data.upload;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.net.Uri;
+import android.util.DisplayMetrics;
+import android.util.Log;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.codepath_group16.unigram.data.models.ImageVariant;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Encodes a camera sized photo into the {@link ImageVariant}s the way posts are uploaded, and
+ * compares the bytes a screen of the feed and of the profile grid download with only the full
+ * image and with the variant the views pick.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ImageVariantBytesTest {
+
+    private static final String TAG = "ImageVariantBytes";
+    /**
+     * Square posts the height of the screen shows, with their author and caption.
+     */
+    private static final float FEED_POSTS_PER_SCREEN = 1.5f;
+    private static final int GRID_SPAN_COUNT = 3;
+
+    @Test
+    public void variantsCutTheBytesOfAScreen() throws Exception {
+        Context context = ApplicationProvider.getApplicationContext();
+        File directory = new File(context.getCacheDir(), "variant-test");
+        Uri photo = Uri.fromFile(writePhoto(new File(context.getCacheDir(), "variant-test-photo.jpg")));
+
+        ImageVariant[] variants = ImageVariant.values();
+        int[] maxEdges = new int[variants.length];
+        for (int i = 0; i < variants.length; i++) {
+            maxEdges[i] = variants[i].maxEdge;
+        }
+        List<UploadImageEncoder.EncodedImage> encoded =
+                new UploadImageEncoder(context.getContentResolver(), directory).encode(photo, maxEdges);
+        assertEquals(variants.length, encoded.size());
+        for (int i = 0; i < variants.length; i++) {
+            assertEquals(variants[i].maxEdge, Math.max(encoded.get(i).width, encoded.get(i).height));
+        }
+
+        DisplayMetrics display = context.getResources().getDisplayMetrics();
+        int screenWidth = Math.min(display.widthPixels, display.heightPixels);
+        long full = encoded.get(ImageVariant.FULL.ordinal()).sizeBytes;
+        long feedImage = encoded.get(ImageVariant.covering(screenWidth).get(0).ordinal()).sizeBytes;
+        long gridImage = encoded.get(ImageVariant.covering(screenWidth / GRID_SPAN_COUNT).get(0).ordinal()).sizeBytes;
+        int gridCells = GRID_SPAN_COUNT * (display.heightPixels / (screenWidth / GRID_SPAN_COUNT) + 1);
+
+        Log.i(TAG, String.format("%d px wide screen: feed %d KB before, %d KB after; grid of %d cells %d KB before, %d KB after",
+                screenWidth, (long) (full * FEED_POSTS_PER_SCREEN) / 1024, (long) (feedImage * FEED_POSTS_PER_SCREEN) / 1024,
+                gridCells, full * gridCells / 1024, gridImage * gridCells / 1024));
+        assertTrue(feedImage <= full);
+        assertTrue(gridImage * 4 < full);
+
+        for (UploadImageEncoder.EncodedImage image : encoded) {
+            //noinspection ResultOfMethodCallIgnored
+            image.file.delete();
+        }
+    }
+
+    /**
+     * A 4000x3000 picture with enough detail to compress like a photo.
+     */
+    private static File writePhoto(File file) throws Exception {
+        Bitmap bitmap = Bitmap.createBitmap(4000, 3000, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        Random random = new Random(3);
+        canvas.drawColor(Color.rgb(90, 140, 200));
+        for (int i = 0; i < 4000; i++) {
+            paint.setColor(Color.rgb(random.nextInt(256), random.nextInt(256), random.nextInt(256)));
+            canvas.drawCircle(random.nextInt(4000), random.nextInt(3000), 5 + random.nextInt(60), paint);
+        }
+        try (OutputStream output = new FileOutputStream(file)) {
+            bitmap.compress(Bitmap.CompressFormat.JPEG, 95, output);
+        }
+        bitmap.recycle();
+        return file;
+    }
+}
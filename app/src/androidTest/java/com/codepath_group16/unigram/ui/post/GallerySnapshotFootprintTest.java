@@ -0,0 +1,110 @@
+package com.codepath_group16.unigram.ui.post;
+
+import android.content.ContentUris;
+import android.net.Uri;
+import android.provider.MediaStore;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares the heap retained by the gallery rows as objects, the way they were stored before,
+ * with the same rows in a {@link GallerySnapshot}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class GallerySnapshotFootprintTest {
+
+    private static final String TAG = "GallerySnapshotFootprint";
+    /**
+     * The columns should take at least this many times less memory than the objects.
+     */
+    private static final int MIN_REDUCTION = 3;
+
+    @Test
+    public void snapshotOf10kRowsIsSmallerThanObjects() {
+        assertReduction(10_000);
+    }
+
+    @Test
+    public void snapshotOf50kRowsIsSmallerThanObjects() {
+        assertReduction(50_000);
+    }
+
+    private static void assertReduction(int rows) {
+        long before = usedMemory();
+        List<LegacyImage> images = newLegacyImages(rows);
+        long legacyBytes = usedMemory() - before;
+        assertEquals(rows, images.size());
+        images = null;
+
+        before = usedMemory();
+        GallerySnapshot snapshot = newSnapshot(rows);
+        long snapshotBytes = usedMemory() - before;
+        assertEquals(rows, snapshot.size());
+
+        Log.i(TAG, String.format("%d rows: %d bytes as objects, %d bytes as columns", rows, legacyBytes,
+                snapshotBytes));
+        assertTrue("Columns took " + snapshotBytes + " bytes, objects " + legacyBytes,
+                snapshotBytes * MIN_REDUCTION < legacyBytes);
+    }
+
+    private static List<LegacyImage> newLegacyImages(int rows) {
+        List<LegacyImage> images = new ArrayList<>(rows);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < rows; i++) {
+            long id = rows - i;
+            images.add(new LegacyImage(id, "IMG_" + id + ".jpg", new Date(now - TimeUnit.MINUTES.toMillis(i)),
+                    ContentUris.withAppendedId(MediaStore.Images.Media.EXTERNAL_CONTENT_URI, id)));
+        }
+        return images;
+    }
+
+    private static GallerySnapshot newSnapshot(int rows) {
+        GallerySnapshot.Builder builder = new GallerySnapshot.Builder(rows);
+        long now = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+        for (int i = 0; i < rows; i++) {
+            builder.add(rows - i, now - TimeUnit.MINUTES.toSeconds(i), now, 0);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Heap in use once the garbage from before is collected.
+     */
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            runtime.gc();
+            System.runFinalization();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * A gallery row the way MediaStoreImage stored it before the snapshot.
+     */
+    private static class LegacyImage {
+        final long id;
+        final String displayName;
+        final Date dateAdded;
+        final Uri contentUri;
+
+        LegacyImage(long id, String displayName, Date dateAdded, Uri contentUri) {
+            this.id = id;
+            this.displayName = displayName;
+            this.dateAdded = dateAdded;
+            this.contentUri = contentUri;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.codepath_group16.unigram.ui.post;
+
+import android.Manifest;
+import android.app.Application;
+import android.app.Instrumentation;
+import android.os.Build;
+import android.os.StrictMode;
+import android.os.SystemClock;
+import android.os.strictmode.Violation;
+
+import androidx.lifecycle.ViewModelProvider;
+import androidx.lifecycle.ViewModelStore;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import androidx.test.rule.GrantPermissionRule;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Loads and syncs the gallery while StrictMode watches the main thread, and fails if any of the
+ * ContentResolver work ended up there.
+ */
+@RunWith(AndroidJUnit4.class)
+public class PostViewModelStrictModeTest {
+
+    @Rule
+    public GrantPermissionRule mPermissionRule = GrantPermissionRule.grant(Manifest.permission.READ_EXTERNAL_STORAGE);
+
+    private final Instrumentation mInstrumentation = InstrumentationRegistry.getInstrumentation();
+    private final List<Violation> mViolations = new CopyOnWriteArrayList<>();
+    private final ViewModelStore mViewModelStore = new ViewModelStore();
+    private StrictMode.ThreadPolicy mOldPolicy;
+    private PostViewModel mPostViewModel;
+
+    @Before
+    public void setUp() {
+        // The penalty listener is only available from Android P
+        assumeTrue(Build.VERSION.SDK_INT >= Build.VERSION_CODES.P);
+
+        Application application = (Application) mInstrumentation.getTargetContext().getApplicationContext();
+        mInstrumentation.runOnMainSync(() -> {
+            mOldPolicy = StrictMode.getThreadPolicy();
+            StrictMode.setThreadPolicy(new StrictMode.ThreadPolicy.Builder()
+                    .detectCustomSlowCalls()
+                    .detectDiskReads()
+                    .detectDiskWrites()
+                    .penaltyListener(Runnable::run, mViolations::add)
+                    .build());
+            mPostViewModel = new ViewModelProvider(mViewModelStore,
+                    ViewModelProvider.AndroidViewModelFactory.getInstance(application))
+                    .get(PostViewModel.class);
+        });
+    }
+
+    @After
+    public void tearDown() {
+        if (mOldPolicy != null) {
+            mInstrumentation.runOnMainSync(() -> {
+                mViewModelStore.clear();
+                StrictMode.setThreadPolicy(mOldPolicy);
+            });
+        }
+    }
+
+    @Test
+    public void contentResolverIsNeverQueriedOnTheMainThread() throws InterruptedException {
+        CountDownLatch loaded = new CountDownLatch(1);
+        mInstrumentation.runOnMainSync(() -> {
+            mPostViewModel.getImages().observeForever(patch -> loaded.countDown());
+            mPostViewModel.loadImages();
+        });
+        assertTrue("The gallery was not loaded", loaded.await(10, TimeUnit.SECONDS));
+
+        // Loading again syncs incrementally, checking every id of the snapshot
+        mInstrumentation.runOnMainSync(() -> mPostViewModel.loadImages());
+        SystemClock.sleep(TimeUnit.SECONDS.toMillis(2));
+        mInstrumentation.waitForIdleSync();
+
+        assertTrue("ContentResolver work on the main thread: " + mViolations, mViolations.isEmpty());
+    }
+}
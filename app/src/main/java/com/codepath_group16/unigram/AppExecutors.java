@@ -0,0 +1,352 @@
+package com.codepath_group16.unigram;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executors shared by the whole app, so disk, ContentResolver, network and CPU bound work
+ * doesn't need a thread of its own in every class and never lands on the main thread.
+ * <p>
+ * Each pool is bounded and named after its threads. How many tasks wait in each, how many run
+ * and how long they waited and ran is kept for {@link #getStats()}.
+ */
+public class AppExecutors {
+
+    private static final int IO_THREADS = 3;
+    /**
+     * Decoding a photo takes tens of megabytes, only this many are decoded at a time.
+     */
+    private static final int IMAGE_THREADS = 2;
+    private static final int NETWORK_THREADS = 2;
+    private static volatile AppExecutors sInstance;
+
+    private final MeteredPool mDiskIO;
+    private final MeteredPool mComputation;
+    private final MeteredPool mImage;
+    private final MeteredPool mNetwork;
+    private final MeteredPool mCamera;
+    private final ScheduledExecutorService mScheduler;
+    private final MainThreadExecutor mMainThread;
+
+    private AppExecutors() {
+        mDiskIO = new MeteredPool("io", IO_THREADS);
+        int cpuThreads = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors() - 1, 4));
+        mComputation = new MeteredPool("cpu", cpuThreads);
+        mImage = new MeteredPool("image", IMAGE_THREADS);
+        mNetwork = new MeteredPool("network", NETWORK_THREADS);
+        // The user waits on every task of the camera, it doesn't run at background priority
+        mCamera = new MeteredPool("camera", 1, Process.THREAD_PRIORITY_DEFAULT);
+        mScheduler = Executors.newSingleThreadScheduledExecutor(
+                new PriorityThreadFactory("unigram-scheduler", Process.THREAD_PRIORITY_BACKGROUND));
+        mMainThread = new MainThreadExecutor();
+    }
+
+    public static AppExecutors getInstance() {
+        if (sInstance == null) {
+            synchronized (AppExecutors.class) {
+                if (sInstance == null) {
+                    sInstance = new AppExecutors();
+                }
+            }
+        }
+        return sInstance;
+    }
+
+    /**
+     * Bounded pool for disk and ContentResolver work.
+     */
+    public Executor diskIO() {
+        return mDiskIO;
+    }
+
+    /**
+     * Pool for CPU bound work like diffing lists, so it doesn't wait behind blocking I/O.
+     */
+    public Executor computation() {
+        return mComputation;
+    }
+
+    /**
+     * Pool for decoding and encoding images, smaller than {@link #computation()} to bound the
+     * memory the bitmaps take.
+     */
+    public Executor image() {
+        return mImage;
+    }
+
+    /**
+     * Pool for requests that block on the network, like uploads, so they don't hold the
+     * {@link #diskIO()} threads.
+     */
+    public Executor network() {
+        return mNetwork;
+    }
+
+    /**
+     * The thread of the camera, for binding it and writing the photos it takes. Its tasks run one
+     * at a time, in order, and never wait behind gallery queries or uploads.
+     */
+    public Executor camera() {
+        return mCamera;
+    }
+
+    /**
+     * Sets how many requests {@link #network()} runs at the same time.
+     */
+    public void setNetworkThreads(int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("threads must be positive: " + threads);
+        }
+        mNetwork.resize(threads);
+    }
+
+    /**
+     * Runs delayed tasks. Its only thread must not be blocked, tasks should hand the real work
+     * over to {@link #diskIO()}.
+     */
+    public ScheduledExecutorService scheduler() {
+        return mScheduler;
+    }
+
+    /**
+     * Posts to the main thread through one shared handler.
+     */
+    public Executor mainThread() {
+        return mMainThread;
+    }
+
+    /**
+     * The current load of each pool and of the main thread, and how their tasks went so far.
+     */
+    public List<PoolStats> getStats() {
+        List<PoolStats> stats = new ArrayList<>(6);
+        for (MeteredPool pool : new MeteredPool[]{mDiskIO, mComputation, mImage, mNetwork, mCamera}) {
+            stats.add(pool.mMeter.snapshot(pool.mName, pool.getQueue().size(), pool.getActiveCount()));
+        }
+        int pending = mMainThread.mPending.get();
+        stats.add(mMainThread.mMeter.snapshot("main", pending, pending > 0 ? 1 : 0));
+        return stats;
+    }
+
+    /**
+     * Returns an executor that runs its tasks one at a time, in order, on {@link #diskIO()}.
+     * State only touched from its tasks needs no locking.
+     */
+    public Executor newSerialExecutor() {
+        return new SerialExecutor(mDiskIO);
+    }
+
+    private static class SerialExecutor implements Executor {
+        private final Executor mExecutor;
+        private final ArrayDeque<Runnable> mTasks = new ArrayDeque<>();
+        private Runnable mActive;
+
+        SerialExecutor(Executor executor) {
+            mExecutor = executor;
+        }
+
+        @Override
+        public synchronized void execute(@NonNull Runnable task) {
+            mTasks.offer(() -> {
+                try {
+                    task.run();
+                } finally {
+                    scheduleNext();
+                }
+            });
+            if (mActive == null) {
+                scheduleNext();
+            }
+        }
+
+        private synchronized void scheduleNext() {
+            mActive = mTasks.poll();
+            if (mActive != null) {
+                mExecutor.execute(mActive);
+            }
+        }
+    }
+
+    /**
+     * How one pool is doing, the times are averaged over all the tasks it ran so far.
+     */
+    public static final class PoolStats {
+        public final String name;
+        /**
+         * Tasks waiting for a thread.
+         */
+        public final int queueDepth;
+        public final int activeThreads;
+        public final long completedTasks;
+        /**
+         * Time from handing a task over until it started.
+         */
+        public final double averageWaitMillis;
+        public final double maxWaitMillis;
+        public final double averageRunMillis;
+
+        PoolStats(String name, int queueDepth, int activeThreads, long completedTasks,
+                  double averageWaitMillis, double maxWaitMillis, double averageRunMillis) {
+            this.name = name;
+            this.queueDepth = queueDepth;
+            this.activeThreads = activeThreads;
+            this.completedTasks = completedTasks;
+            this.averageWaitMillis = averageWaitMillis;
+            this.maxWaitMillis = maxWaitMillis;
+            this.averageRunMillis = averageRunMillis;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%s: %d queued, %d active, %d done, wait %.1f ms (max %.1f), run %.1f ms",
+                    name, queueDepth, activeThreads, completedTasks, averageWaitMillis, maxWaitMillis,
+                    averageRunMillis);
+        }
+    }
+
+    /**
+     * Adds up how long the tasks of an executor waited and ran.
+     */
+    private static class TaskMeter {
+        private final AtomicLong mCompleted = new AtomicLong();
+        private final AtomicLong mWaitNanos = new AtomicLong();
+        private final AtomicLong mMaxWaitNanos = new AtomicLong();
+        private final AtomicLong mRunNanos = new AtomicLong();
+
+        void record(long waitNanos, long runNanos) {
+            mCompleted.incrementAndGet();
+            mWaitNanos.addAndGet(waitNanos);
+            mRunNanos.addAndGet(runNanos);
+            long max;
+            do {
+                max = mMaxWaitNanos.get();
+            } while (waitNanos > max && !mMaxWaitNanos.compareAndSet(max, waitNanos));
+        }
+
+        PoolStats snapshot(String name, int queueDepth, int activeThreads) {
+            long completed = mCompleted.get();
+            double perTask = completed > 0 ? 1e-6 / completed : 0;
+            return new PoolStats(name, queueDepth, activeThreads, completed,
+                    mWaitNanos.get() * perTask, mMaxWaitNanos.get() / 1e6, mRunNanos.get() * perTask);
+        }
+    }
+
+    /**
+     * A task stamped with when it was handed over.
+     */
+    private static class TimedTask implements Runnable {
+        final Runnable task;
+        final long queuedAt = System.nanoTime();
+        long startedAt;
+
+        TimedTask(Runnable task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            task.run();
+        }
+    }
+
+    private static class MeteredPool extends ThreadPoolExecutor {
+        final String mName;
+        final TaskMeter mMeter = new TaskMeter();
+
+        MeteredPool(String name, int threads) {
+            this(name, threads, Process.THREAD_PRIORITY_BACKGROUND);
+        }
+
+        MeteredPool(String name, int threads, int priority) {
+            super(threads, threads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                    new PriorityThreadFactory("unigram-" + name, priority));
+            mName = name;
+            allowCoreThreadTimeOut(true);
+        }
+
+        synchronized void resize(int threads) {
+            // The core size can't go above the maximum, nor the maximum below it
+            if (threads > getMaximumPoolSize()) {
+                setMaximumPoolSize(threads);
+                setCorePoolSize(threads);
+            } else {
+                setCorePoolSize(threads);
+                setMaximumPoolSize(threads);
+            }
+        }
+
+        @Override
+        public void execute(@NonNull Runnable command) {
+            super.execute(new TimedTask(command));
+        }
+
+        @Override
+        protected void beforeExecute(Thread thread, Runnable task) {
+            ((TimedTask) task).startedAt = System.nanoTime();
+        }
+
+        @Override
+        protected void afterExecute(Runnable task, Throwable thrown) {
+            TimedTask timed = (TimedTask) task;
+            mMeter.record(timed.startedAt - timed.queuedAt, System.nanoTime() - timed.startedAt);
+        }
+    }
+
+    private static class MainThreadExecutor implements Executor {
+        final Handler mHandler = new Handler(Looper.getMainLooper());
+        final TaskMeter mMeter = new TaskMeter();
+        final AtomicInteger mPending = new AtomicInteger();
+
+        @Override
+        public void execute(@NonNull Runnable command) {
+            long queuedAt = System.nanoTime();
+            mPending.incrementAndGet();
+            mHandler.post(() -> {
+                mPending.decrementAndGet();
+                long startedAt = System.nanoTime();
+                try {
+                    command.run();
+                } finally {
+                    mMeter.record(startedAt - queuedAt, System.nanoTime() - startedAt);
+                }
+            });
+        }
+    }
+
+    private static class PriorityThreadFactory implements ThreadFactory {
+        private final String mName;
+        private final int mPriority;
+        private final AtomicInteger mCount = new AtomicInteger();
+
+        PriorityThreadFactory(String name, int priority) {
+            mName = name;
+            mPriority = priority;
+        }
+
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+            return new Thread(() -> {
+                Process.setThreadPriority(mPriority);
+                runnable.run();
+            }, mName + "-" + mCount.incrementAndGet());
+        }
+    }
+}
@@ -27,13 +27,51 @@ public class LoginActivity extends AppCompatActivity
     protected void onCreate(Bundle savedInstanceState)
     {
         super.onCreate(savedInstanceState);
-        setContentView(R.layout.activity_login);
+        StartupTrace.onLaunch();
+        StartupTrace.reportFirstFrame(this);
+
+        // Routed on who was logged in last, before Parse is set up and without a layout
+        Boolean loggedIn = SessionHint.isLoggedIn(this);
+        if (loggedIn != null) {
+            if (loggedIn) {
+                goMainActivity();
+            } else {
+                showLoginForm();
+            }
+            return;
+        }
 
-        if(ParseUser.getCurrentUser() != null)
+        // Parse may still be setting up on a cold start, the window shows meanwhile and the
+        // form only once it is known that there is no saved user
+        if (ParseStartup.isReady()) {
+            showUserOrLoginForm();
+        } else {
+            ParseStartup.whenReady(AppExecutors.getInstance().mainThread(), () -> {
+                if (!isFinishing()) {
+                    showUserOrLoginForm();
+                }
+            });
+        }
+    }
+
+    private void showUserOrLoginForm()
+    {
+        // Read from disk while Parse was set up
+        ParseUser user = ParseUser.getCurrentUser();
+        SessionHint.save(this, user);
+        if(user != null)
         {
             goMainActivity();
         }
+        else
+        {
+            showLoginForm();
+        }
+    }
 
+    private void showLoginForm()
+    {
+        setContentView(R.layout.activity_login);
 
         etUsername = findViewById(R.id.etUsername);
         etPassword = findViewById(R.id.etPassword);
@@ -62,6 +100,8 @@ public class LoginActivity extends AppCompatActivity
     private void loginUser(String username, String password)
     {
         Log.i(TAG, "Attempting to login user " + username);
+        // The form can show before Parse is set up
+        ParseStartup.await();
 
         ParseUser.logInInBackground(username, password, new LogInCallback() {
             @Override
@@ -71,6 +111,7 @@ public class LoginActivity extends AppCompatActivity
                        Log.e(TAG, "Issue with login", e);
                        return;
                    }
+                   SessionHint.save(LoginActivity.this, user);
                    goMainActivity();
                    Toast.makeText(com.codepath_group16.unigram.LoginActivity.this, "Success!", Toast.LENGTH_SHORT);
             }
@@ -80,6 +121,7 @@ public class LoginActivity extends AppCompatActivity
     private void signUpUser(final String username, String password)
     {
         Log.i(TAG, "Attempting to sign up user " + username);
+        ParseStartup.await();
 
         ParseUser user = new ParseUser();
 // Set the user's username and password, which can be obtained by a forms
@@ -90,6 +132,8 @@ public class LoginActivity extends AppCompatActivity
             public void done(ParseException e) {
                 if (e != null) {
                     Log.e(TAG, "Issue with Signup", e);
+                } else {
+                    SessionHint.save(LoginActivity.this, user);
                 }
                 Toast.makeText(com.codepath_group16.unigram.LoginActivity.this, "Welcome " + username, Toast.LENGTH_LONG).show();
                 goMainActivity();
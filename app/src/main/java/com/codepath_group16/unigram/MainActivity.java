@@ -1,9 +1,11 @@
 package com.codepath_group16.unigram;
 
+import android.content.Intent;
 import android.os.Bundle;
 import android.view.View;
 
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.ViewModelProvider;
 import androidx.navigation.NavController;
 import androidx.navigation.Navigation;
 import androidx.navigation.fragment.NavHostFragment;
@@ -11,6 +13,9 @@ import androidx.navigation.ui.AppBarConfiguration;
 import androidx.navigation.ui.NavigationUI;
 
 import com.codepath_group16.unigram.databinding.ActivityMainBinding;
+import com.codepath_group16.unigram.metrics.MetricsDump;
+import com.codepath_group16.unigram.ui.post.CameraSession;
+import com.parse.ParseUser;
 
 import java.util.Objects;
 
@@ -21,10 +26,38 @@ public class MainActivity extends AppCompatActivity {
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        if (savedInstanceState != null) {
+            // Restored after the process died, the restored fragments query Parse as soon as
+            // super.onCreate creates them. After a configuration change Parse is ready already.
+            ParseStartup.await();
+        }
         super.onCreate(savedInstanceState);
+        StartupTrace.reportFirstFrame(this);
         mBinding = ActivityMainBinding.inflate(getLayoutInflater());
         setContentView(mBinding.getRoot());
 
+        // Launched on the session hint, Parse may still be setting up. The window shows
+        // meanwhile and the graph, which opens the feed, is only set once the user is known.
+        if (ParseStartup.isReady()) {
+            showUserOrLogin();
+        } else {
+            ParseStartup.whenReady(AppExecutors.getInstance().mainThread(), () -> {
+                if (!isFinishing() && !isDestroyed()) {
+                    showUserOrLogin();
+                }
+            });
+        }
+    }
+
+    private void showUserOrLogin() {
+        if (ParseUser.getCurrentUser() == null) {
+            // Sent here by a hint that no longer holds, the session is gone
+            SessionHint.save(this, null);
+            startActivity(new Intent(this, LoginActivity.class));
+            finish();
+            return;
+        }
+
         // Passing each menu ID as a set of Ids because each
         // menu should be considered as top level destinations.
         mAppBarConfiguration = new AppBarConfiguration.Builder(
@@ -32,9 +65,13 @@ public class MainActivity extends AppCompatActivity {
                 .build();
         NavHostFragment navHostFragment = (NavHostFragment) getSupportFragmentManager().findFragmentById(R.id.nav_host_fragment);
         NavController navController = Objects.requireNonNull(navHostFragment).getNavController();
+        // Not in the layout so that the feed isn't opened before Parse is ready, a restored back
+        // stack is applied by the controller once it has the graph
+        navController.setGraph(R.navigation.mobile_navigation);
         NavigationUI.setupActionBarWithNavController(this, navController, mAppBarConfiguration);
         NavigationUI.setupWithNavController(mBinding.navView, navController);
 
+        CameraSession cameraSession = new ViewModelProvider(this).get(CameraSession.class);
         navController.addOnDestinationChangedListener((controller, destination, arguments) -> {
             // Hide the Bottom Navigation
             if (
@@ -46,11 +83,31 @@ public class MainActivity extends AppCompatActivity {
             } else {
                 mBinding.navView.setVisibility(View.VISIBLE);
             }
+
+            // CameraX is started with the Post tab, the camera is only open on the capture and
+            // preview screens, the gallery they go back to closes it
+            if (destination.getId() != R.id.navigation_capture_image
+                    && destination.getId() != R.id.navigation_image_preview) {
+                cameraSession.release();
+            }
+            if (destination.getId() == R.id.navigation_post) {
+                cameraSession.warmUp();
+            }
         });
     }
 
+    @Override
+    protected void onStop() {
+        super.onStop();
+        // The process may not come back from the background
+        MetricsDump.write(this);
+    }
+
     @Override
     public boolean onSupportNavigateUp() {
+        if (mAppBarConfiguration == null) {
+            return super.onSupportNavigateUp();
+        }
         NavController navController = Navigation.findNavController(this, R.id.nav_host_fragment);
         return NavigationUI.navigateUp(navController, mAppBarConfiguration)
                 || super.onSupportNavigateUp();
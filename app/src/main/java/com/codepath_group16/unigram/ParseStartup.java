@@ -0,0 +1,177 @@
+package com.codepath_group16.unigram;
+
+import android.app.Application;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.codepath_group16.unigram.data.models.Like;
+import com.codepath_group16.unigram.data.models.LikeCounterShard;
+import com.codepath_group16.unigram.data.models.Post;
+import com.codepath_group16.unigram.data.models.UserStats;
+import com.codepath_group16.unigram.data.upload.UploadQueue;
+import com.parse.Parse;
+import com.parse.ParseACL;
+import com.parse.ParseObject;
+import com.parse.ParseUser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+
+/**
+ * Sets up the Parse client on a thread of its own while the first activity is created.
+ * <p>
+ * Opening the local datastore and reading the saved user take a while on a cold start, so
+ * {@link UnigramApplication} only starts them. Code that needs Parse before the first screen
+ * shows calls {@link #await()}, which returns right away once Parse is ready and only blocks the
+ * first callers that come too early, or waits with {@link #whenReady(Executor, Runnable)}.
+ */
+public final class ParseStartup {
+
+    private static final String TAG = "ParseStartup";
+
+    private static final CountDownLatch sReady = new CountDownLatch(1);
+    private static volatile RuntimeException sFailure;
+    private static volatile long sStartedAt;
+    private static volatile long sReadyAt;
+    private static volatile long sMainThreadWaitMillis;
+    /**
+     * Tasks to run once Parse is ready, guarded by the class.
+     */
+    private static final List<Runnable> sWaiting = new ArrayList<>();
+
+    private ParseStartup() {
+    }
+
+    /**
+     * Starts setting up Parse, on the calling thread when {@code eager}.
+     */
+    static void start(@NonNull Application application, boolean eager) {
+        Runnable initialize = () -> {
+            sStartedAt = SystemClock.elapsedRealtime();
+            try {
+                initialize(application);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Unable to set up Parse", e);
+                sFailure = e;
+            } finally {
+                sReadyAt = SystemClock.elapsedRealtime();
+                List<Runnable> waiting;
+                synchronized (ParseStartup.class) {
+                    sReady.countDown();
+                    waiting = new ArrayList<>(sWaiting);
+                    sWaiting.clear();
+                }
+                for (Runnable task : waiting) {
+                    task.run();
+                }
+            }
+        };
+        if (eager) {
+            initialize.run();
+        } else {
+            new Thread(initialize, "unigram-parse-init").start();
+        }
+    }
+
+    private static void initialize(Application application) {
+        // Register your parse models
+        ParseObject.registerSubclass(Post.class);
+        ParseObject.registerSubclass(Like.class);
+        ParseObject.registerSubclass(LikeCounterShard.class);
+        ParseObject.registerSubclass(UserStats.class);
+
+        // Keeps the head of the feed for the next start, see ParseFeedCache
+        Parse.enableLocalDatastore(application);
+        Parse.initialize(new Parse.Configuration.Builder(application)
+                .applicationId(UnigramApplication.PARSE_APPLICATION_ID)
+                .clientKey(UnigramApplication.PARSE_CLIENT_KEY)
+                .server(UnigramApplication.PARSE_SERVER)
+                .build()
+        );
+
+        // Default ACL Public Read, User Write
+        ParseACL defaultACL = new ParseACL();
+        defaultACL.setPublicReadAccess(true);
+        ParseACL.setDefaultACL(defaultACL, true);
+
+        // Reads the saved user from disk, the LoginActivity asks for it first
+        ParseUser.getCurrentUser();
+
+        // Pick up the posts that were still uploading when the app was last closed
+        UploadQueue.getInstance(application).resume();
+    }
+
+    public static boolean isReady() {
+        return sReady.getCount() == 0;
+    }
+
+    /**
+     * Waits until Parse is set up, only the first callers ever do.
+     *
+     * @throws IllegalStateException when Parse couldn't be set up
+     */
+    public static void await() {
+        if (!isReady()) {
+            long startedAt = SystemClock.elapsedRealtime();
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    sReady.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            long waited = SystemClock.elapsedRealtime() - startedAt;
+            if (Looper.myLooper() == Looper.getMainLooper()) {
+                sMainThreadWaitMillis += waited;
+            }
+            Log.v(TAG, "Waited " + waited + " ms for Parse on " + Thread.currentThread().getName());
+        }
+        if (sFailure != null) {
+            throw new IllegalStateException("Parse couldn't be set up", sFailure);
+        }
+    }
+
+    /**
+     * Runs {@code task} on {@code executor} once Parse is set up, right away when it is.
+     */
+    public static void whenReady(@NonNull Executor executor, @NonNull Runnable task) {
+        synchronized (ParseStartup.class) {
+            if (!isReady()) {
+                sWaiting.add(() -> executor.execute(task));
+                return;
+            }
+        }
+        executor.execute(task);
+    }
+
+    /**
+     * When Parse was ready, on the {@link SystemClock#elapsedRealtime()} clock, 0 until it is.
+     */
+    static long getReadyAt() {
+        return sReadyAt;
+    }
+
+    /**
+     * How long setting Parse up took, 0 until it is.
+     */
+    static long getInitMillis() {
+        return sReadyAt > 0 ? sReadyAt - sStartedAt : 0;
+    }
+
+    /**
+     * How long the main thread was blocked in {@link #await()}.
+     */
+    static long getMainThreadWaitMillis() {
+        return sMainThreadWaitMillis;
+    }
+}
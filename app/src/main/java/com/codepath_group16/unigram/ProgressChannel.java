@@ -0,0 +1,105 @@
+package com.codepath_group16.unigram;
+
+import androidx.annotation.NonNull;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands progress from background threads to the main thread at most once a frame.
+ * <p>
+ * Only the latest value of each key is kept, so the values published between two frames replace
+ * each other instead of each posting a message, and a burst of updates for several keys is
+ * delivered in one. The last value published is always delivered.
+ */
+public class ProgressChannel {
+
+    /**
+     * One frame at 60 frames per second.
+     */
+    public static final long FRAME_MILLIS = 16;
+
+    private final Executor mPoster;
+    private final ScheduledExecutorService mScheduler;
+    private final long mIntervalNanos;
+    private final Sink mSink;
+    private final Runnable mDeliver = this::deliver;
+
+    // Guarded by this
+    private Map<String, Integer> mLatest = new LinkedHashMap<>();
+    private boolean mDeliveryPending;
+    private long mDeliveredAt;
+    private int mMessages;
+
+    /**
+     * Delivers on {@code poster}, which is usually {@link AppExecutors#mainThread()}, at most
+     * once every {@code intervalMillis}, {@code scheduler} only waits out the interval.
+     */
+    public ProgressChannel(@NonNull Executor poster, @NonNull ScheduledExecutorService scheduler,
+                           long intervalMillis, @NonNull Sink sink) {
+        mPoster = poster;
+        mScheduler = scheduler;
+        mIntervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        mSink = sink;
+        mDeliveredAt = System.nanoTime() - mIntervalNanos;
+    }
+
+    /**
+     * A channel that delivers on the main thread once a frame.
+     */
+    public static ProgressChannel onMainThread(@NonNull Sink sink) {
+        AppExecutors executors = AppExecutors.getInstance();
+        return new ProgressChannel(executors.mainThread(), executors.scheduler(), FRAME_MILLIS, sink);
+    }
+
+    /**
+     * Records the progress of {@code key}, any thread may call it.
+     */
+    public void publish(@NonNull String key, int value) {
+        long delayNanos;
+        synchronized (this) {
+            mLatest.put(key, value);
+            if (mDeliveryPending) {
+                return;
+            }
+            mDeliveryPending = true;
+            mMessages++;
+            delayNanos = mDeliveredAt + mIntervalNanos - System.nanoTime();
+        }
+        if (delayNanos <= 0) {
+            mPoster.execute(mDeliver);
+        } else {
+            mScheduler.schedule(() -> mPoster.execute(mDeliver), delayNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * How many messages were posted so far.
+     */
+    public synchronized int getMessageCount() {
+        return mMessages;
+    }
+
+    private void deliver() {
+        Map<String, Integer> latest;
+        synchronized (this) {
+            latest = mLatest;
+            mLatest = new LinkedHashMap<>();
+            mDeliveryPending = false;
+            mDeliveredAt = System.nanoTime();
+        }
+        for (Map.Entry<String, Integer> entry : latest.entrySet()) {
+            mSink.onProgress(entry.getKey(), entry.getValue());
+        }
+    }
+
+    public interface Sink {
+        /**
+         * Called on the poster with the latest progress of {@code key}.
+         */
+        void onProgress(@NonNull String key, int value);
+    }
+}
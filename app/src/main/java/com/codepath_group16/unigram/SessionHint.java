@@ -0,0 +1,47 @@
+package com.codepath_group16.unigram;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.parse.ParseUser;
+
+/**
+ * Who was logged in when the app last knew, so a launch can pick the screen to open before
+ * Parse is set up and has read its saved user.
+ * <p>
+ * Only the id of the user is kept, the session token stays with Parse. {@link MainActivity}
+ * checks the hint against Parse once it is ready and goes back to the login when it was wrong.
+ */
+final class SessionHint {
+
+    private static final String PREFERENCES = "session";
+    private static final String KEY_USER_ID = "userId";
+
+    private SessionHint() {
+    }
+
+    /**
+     * Whether a user is logged in, null when it isn't known yet, like on the first launch of
+     * this version.
+     */
+    @Nullable
+    static Boolean isLoggedIn(@NonNull Context context) {
+        String userId = preferences(context).getString(KEY_USER_ID, null);
+        return userId != null ? !userId.isEmpty() : null;
+    }
+
+    /**
+     * Remembers that {@code user} is logged in, or that no one is when null.
+     */
+    static void save(@NonNull Context context, @Nullable ParseUser user) {
+        String userId = user != null ? user.getObjectId() : "";
+        preferences(context).edit().putString(KEY_USER_ID, userId).apply();
+    }
+
+    private static SharedPreferences preferences(Context context) {
+        return context.getSharedPreferences(PREFERENCES, Context.MODE_PRIVATE);
+    }
+}
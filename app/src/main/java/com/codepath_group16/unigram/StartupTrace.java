@@ -0,0 +1,100 @@
+package com.codepath_group16.unigram;
+
+import android.app.Activity;
+import android.os.Build;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import androidx.annotation.NonNull;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Logs how long after the process started the first frame of each activity was drawn, with
+ * when Parse was ready and how long the main thread waited for it, and how long a launch took
+ * until the feed showed. The startup benchmark in
+ * {@code scripts/startup-benchmark.sh} reads these lines.
+ */
+public final class StartupTrace {
+
+    private static final String TAG = "StartupTrace";
+
+    /**
+     * Activities whose first frame was logged, later ones of the same class are not a startup.
+     */
+    private static final Set<String> sReported = new HashSet<>();
+    private static long sProcessStartedAt;
+    /**
+     * When the app was last launched from the launcher, 0 once the feed showed.
+     */
+    private static long sLaunchedAt;
+    private static boolean sColdLaunch;
+    private static boolean sLaunchedBefore;
+
+    private StartupTrace() {
+    }
+
+    static void onApplicationCreate() {
+        sProcessStartedAt = Build.VERSION.SDK_INT >= Build.VERSION_CODES.N
+                ? Process.getStartElapsedRealtime()
+                : SystemClock.elapsedRealtime();
+    }
+
+    /**
+     * Called when the launcher starts the app, in a new process or one kept from before.
+     */
+    static synchronized void onLaunch() {
+        sColdLaunch = !sLaunchedBefore;
+        sLaunchedBefore = true;
+        // A cold launch started with the process
+        sLaunchedAt = sColdLaunch ? sProcessStartedAt : SystemClock.elapsedRealtime();
+    }
+
+    /**
+     * Logs how long the last launch took until the feed showed its first posts, only once.
+     */
+    public static synchronized void onFeedShown(boolean cached) {
+        if (sLaunchedAt == 0) {
+            return;
+        }
+        Log.i(TAG, "Launch to feed after " + (SystemClock.elapsedRealtime() - sLaunchedAt) + " ms, "
+                + (sColdLaunch ? "cold" : "warm") + ", " + (cached ? "cached" : "fresh") + " posts");
+        sLaunchedAt = 0;
+    }
+
+    /**
+     * Logs the first frame {@code activity} draws, call it from {@code onCreate}.
+     */
+    static void reportFirstFrame(@NonNull Activity activity) {
+        String name = activity.getClass().getSimpleName();
+        if (!sReported.add(name)) {
+            return;
+        }
+        View decorView = activity.getWindow().getDecorView();
+        decorView.getViewTreeObserver().addOnDrawListener(new ViewTreeObserver.OnDrawListener() {
+            private boolean mDrawn;
+
+            @Override
+            public void onDraw() {
+                if (mDrawn) {
+                    return;
+                }
+                mDrawn = true;
+                long drawnAt = SystemClock.elapsedRealtime();
+                // Listeners can't be removed while they are called
+                decorView.post(() -> decorView.getViewTreeObserver().removeOnDrawListener(this));
+
+                long readyAt = ParseStartup.getReadyAt();
+                Log.i(TAG, name + " first frame after " + (drawnAt - sProcessStartedAt) + " ms"
+                        + ", parse init " + (BuildConfig.EAGER_PARSE_INIT ? "eager" : "lazy")
+                        + " took " + ParseStartup.getInitMillis() + " ms"
+                        + ", ready after " + (readyAt > 0 ? (readyAt - sProcessStartedAt) + " ms" : "-")
+                        + ", main thread waited " + ParseStartup.getMainThreadWaitMillis() + " ms");
+            }
+        });
+    }
+}
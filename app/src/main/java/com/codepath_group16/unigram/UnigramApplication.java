@@ -2,30 +2,18 @@ package com.codepath_group16.unigram;
 
 import android.app.Application;
 
-import com.codepath_group16.unigram.data.models.Post;
-import com.parse.Parse;
-import com.parse.ParseACL;
-import com.parse.ParseObject;
-
 public class UnigramApplication extends Application {
-    // Initializes Parse SDK as soon as the application is created
+
+    public static final String PARSE_APPLICATION_ID = "ZosqWM97rtI4N4wI9i7xZvidrTpIe2GkN94Moren";
+    public static final String PARSE_CLIENT_KEY = "IX3ooTetZxsoueioaCxgR4cJ28PecCLEwrnDJ0Kk";
+    public static final String PARSE_SERVER = "https://parseapi.back4app.com";
+
+    // Starts setting up the Parse SDK as soon as the application is created, the first
+    // activity is created meanwhile
     @Override
     public void onCreate() {
         super.onCreate();
-
-        // Register your parse models
-        ParseObject.registerSubclass(Post.class);
-
-        Parse.initialize(new Parse.Configuration.Builder(this)
-                .applicationId("ZosqWM97rtI4N4wI9i7xZvidrTpIe2GkN94Moren")
-                .clientKey("IX3ooTetZxsoueioaCxgR4cJ28PecCLEwrnDJ0Kk")
-                .server("https://parseapi.back4app.com")
-                .build()
-        );
-
-        // Default ACL Public Read, User Write
-        ParseACL defaultACL = new ParseACL();
-        defaultACL.setPublicReadAccess(true);
-        ParseACL.setDefaultACL(defaultACL, true);
+        StartupTrace.onApplicationCreate();
+        ParseStartup.start(this, BuildConfig.EAGER_PARSE_INIT);
     }
 }
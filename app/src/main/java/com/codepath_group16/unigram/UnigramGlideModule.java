@@ -0,0 +1,45 @@
+package com.codepath_group16.unigram;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.GlideBuilder;
+import com.bumptech.glide.Registry;
+import com.bumptech.glide.annotation.GlideModule;
+import com.bumptech.glide.load.engine.cache.LruResourceCache;
+import com.bumptech.glide.load.engine.cache.MemorySizeCalculator;
+import com.bumptech.glide.module.AppGlideModule;
+import com.codepath_group16.unigram.ui.post.GalleryThumbnailLoader;
+
+/**
+ * Glide configuration of the app.
+ */
+@GlideModule
+public class UnigramGlideModule extends AppGlideModule {
+
+    /**
+     * Screens worth of images kept in the memory cache. Scrolling the gallery back to where it
+     * was should not decode the thumbnails the preloader fetched for it again.
+     */
+    private static final float MEMORY_CACHE_SCREENS = 3;
+
+    @Override
+    public void applyOptions(@NonNull Context context, @NonNull GlideBuilder builder) {
+        MemorySizeCalculator calculator = new MemorySizeCalculator.Builder(context)
+                .setMemoryCacheScreens(MEMORY_CACHE_SCREENS)
+                .build();
+        builder.setMemoryCache(new LruResourceCache(calculator.getMemoryCacheSize()));
+    }
+
+    @Override
+    public void registerComponents(@NonNull Context context, @NonNull Glide glide, @NonNull Registry registry) {
+        GalleryThumbnailLoader.register(context, registry);
+    }
+
+    @Override
+    public boolean isManifestParsingEnabled() {
+        return false;
+    }
+}
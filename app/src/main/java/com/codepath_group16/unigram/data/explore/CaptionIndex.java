@@ -0,0 +1,183 @@
+package com.codepath_group16.unigram.data.explore;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Inverted index of the words and hashtags of post captions, answering prefix searches with the
+ * most liked posts first.
+ * <p>
+ * The terms are kept sorted, so the terms starting with a prefix are a range of them, and each
+ * term keeps its posts sorted by likes. A search merges the posts of the terms in that range most
+ * liked first and stops once it has enough, so its cost depends on how many results are asked
+ * for and how many terms match, not on how many posts are indexed.
+ * <p>
+ * A query of several words finds the posts that have a term starting with each of them.
+ */
+public class CaptionIndex {
+
+    /**
+     * Most liked first, then by id so posts with as many likes have an order.
+     */
+    private static final Comparator<Entry> BY_LIKES = (a, b) -> {
+        int byLikes = Integer.compare(b.likes, a.likes);
+        return byLikes != 0 ? byLikes : a.postId.compareTo(b.postId);
+    };
+
+    private final NavigableMap<String, TreeSet<Entry>> mTerms = new TreeMap<>();
+    private final Map<String, Entry> mPosts = new HashMap<>();
+
+    /**
+     * Indexes the caption of the post, replacing what was indexed for it before.
+     */
+    public synchronized void put(String postId, String caption, int likes) {
+        remove(postId);
+        Entry entry = new Entry(postId, likes, CaptionTokenizer.tokenize(caption));
+        for (String term : entry.terms) {
+            TreeSet<Entry> posts = mTerms.get(term);
+            if (posts == null) {
+                posts = new TreeSet<>(BY_LIKES);
+                mTerms.put(term, posts);
+            }
+            posts.add(entry);
+        }
+        mPosts.put(postId, entry);
+    }
+
+    public synchronized void remove(String postId) {
+        Entry entry = mPosts.remove(postId);
+        if (entry == null) {
+            return;
+        }
+        for (String term : entry.terms) {
+            TreeSet<Entry> posts = mTerms.get(term);
+            posts.remove(entry);
+            if (posts.isEmpty()) {
+                mTerms.remove(term);
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return mPosts.size();
+    }
+
+    /**
+     * The ids of at most {@code limit} posts matching every word of the query, most liked first.
+     */
+    public synchronized List<String> search(String query, int limit) {
+        List<String> words = new ArrayList<>(CaptionTokenizer.tokenize(query));
+        if (words.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        // The hashtag form of a word is the narrower one, the plain one adds nothing
+        for (String word : new ArrayList<>(words)) {
+            if (word.charAt(0) == CaptionTokenizer.HASHTAG) {
+                words.remove(word.substring(1));
+            }
+        }
+        // Merges the posts of the word matching the fewest, the other words filter them
+        String merged = null;
+        long fewest = Long.MAX_VALUE;
+        for (String word : words) {
+            long matching = 0;
+            for (TreeSet<Entry> posts : withPrefix(word).values()) {
+                matching += posts.size();
+            }
+            if (matching < fewest) {
+                merged = word;
+                fewest = matching;
+            }
+        }
+        words.remove(merged);
+
+        PriorityQueue<Cursor> cursors = new PriorityQueue<>();
+        for (TreeSet<Entry> posts : withPrefix(merged).values()) {
+            cursors.add(new Cursor(posts.iterator()));
+        }
+        List<String> results = new ArrayList<>(limit);
+        Set<String> seen = new HashSet<>();
+        while (!cursors.isEmpty() && results.size() < limit) {
+            Cursor cursor = cursors.poll();
+            Entry entry = cursor.head;
+            if (seen.add(entry.postId) && entry.matchesAll(words)) {
+                results.add(entry.postId);
+            }
+            if (cursor.advance()) {
+                cursors.add(cursor);
+            }
+        }
+        return results;
+    }
+
+    private NavigableMap<String, TreeSet<Entry>> withPrefix(String prefix) {
+        return mTerms.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+    }
+
+    private static class Entry {
+        final String postId;
+        final int likes;
+        final Set<String> terms;
+
+        Entry(String postId, int likes, Set<String> terms) {
+            this.postId = postId;
+            this.likes = likes;
+            this.terms = terms;
+        }
+
+        boolean matchesAll(List<String> prefixes) {
+            for (String prefix : prefixes) {
+                if (!matches(prefix)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean matches(String prefix) {
+            for (String term : terms) {
+                if (term.startsWith(prefix)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * The next post of a term in the merge.
+     */
+    private static class Cursor implements Comparable<Cursor> {
+        private final Iterator<Entry> mPosts;
+        Entry head;
+
+        Cursor(Iterator<Entry> posts) {
+            mPosts = posts;
+            head = posts.next();
+        }
+
+        boolean advance() {
+            if (!mPosts.hasNext()) {
+                return false;
+            }
+            head = mPosts.next();
+            return true;
+        }
+
+        @Override
+        public int compareTo(Cursor other) {
+            return BY_LIKES.compare(head, other.head);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.codepath_group16.unigram.data.explore;
+
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Splits captions and queries into the terms of the {@link CaptionIndex}: runs of letters and
+ * digits, lower case. A hashtag is a term both with and without its {@code #}, so {@code sun}
+ * finds {@code #sunset} and {@code #sun} finds only hashtags.
+ */
+final class CaptionTokenizer {
+
+    static final char HASHTAG = '#';
+
+    private CaptionTokenizer() {
+    }
+
+    static Set<String> tokenize(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        if (text == null) {
+            return terms;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int length = lower.length();
+        int i = 0;
+        while (i < length) {
+            char c = lower.charAt(i);
+            boolean hashtag = c == HASHTAG;
+            int start = hashtag ? i + 1 : i;
+            int end = start;
+            while (end < length && Character.isLetterOrDigit(lower.charAt(end))) {
+                end++;
+            }
+            if (end > start) {
+                String word = lower.substring(start, end);
+                terms.add(word);
+                if (hashtag) {
+                    terms.add(HASHTAG + word);
+                }
+                i = end;
+            } else {
+                i = start + 1;
+            }
+        }
+        return terms;
+    }
+}
@@ -0,0 +1,119 @@
+package com.codepath_group16.unigram.data.explore;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+
+import com.codepath_group16.unigram.data.models.Post;
+import com.parse.ParseException;
+import com.parse.ParseQuery;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Searches the captions of the posts on the device, instead of regex queries the server answers
+ * by scanning every caption.
+ * <p>
+ * Every post the feed loads is indexed, and the explore tab adds the {@link #RECENT_POSTS} newest
+ * ones once. The results are ranked by the likes count the post had when it was indexed. Only the
+ * {@link #MAX_POSTS} posts indexed or found most recently are kept, the others leave the index.
+ */
+public class PostSearch {
+
+    /**
+     * Newest posts indexed when the explore tab opens.
+     */
+    static final int RECENT_POSTS = 1000;
+    /**
+     * Posts kept for the results, with their images and author.
+     */
+    static final int MAX_POSTS = 2 * RECENT_POSTS;
+    private static final String TAG = "PostSearch";
+    private static final String KEY_CREATED_AT = "createdAt";
+    private static PostSearch sInstance;
+
+    private final CaptionIndex mIndex = new CaptionIndex();
+    /**
+     * The indexed posts by id, least recently indexed or found first.
+     */
+    private final Map<String, Post> mPosts = new LinkedHashMap<String, Post>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Post> eldest) {
+            if (size() <= MAX_POSTS) {
+                return false;
+            }
+            mIndex.remove(eldest.getKey());
+            return true;
+        }
+    };
+    private boolean mRecentIndexed;
+
+    private PostSearch() {
+    }
+
+    public static synchronized PostSearch getInstance() {
+        if (sInstance == null) {
+            sInstance = new PostSearch();
+        }
+        return sInstance;
+    }
+
+    /**
+     * Indexes the posts, again when they were before so they rank by their current likes.
+     */
+    public void index(@NonNull List<Post> posts) {
+        synchronized (mPosts) {
+            // Together, so a post evicted by the same batch doesn't stay in the index
+            for (Post post : posts) {
+                mPosts.put(post.getObjectId(), post);
+                mIndex.put(post.getObjectId(), post.getCaption(), post.getLikesCount());
+            }
+        }
+    }
+
+    /**
+     * Indexes the newest posts, the first time it is called.
+     */
+    @WorkerThread
+    public void indexRecent() throws ParseException {
+        synchronized (this) {
+            if (mRecentIndexed) {
+                return;
+            }
+            List<Post> posts = ParseQuery.getQuery(Post.class)
+                    .include(Post.KEY_AUTHOR)
+                    .selectKeys(Arrays.asList(Post.KEY_AUTHOR, Post.KEY_AUTHOR + ".username", Post.KEY_IMAGE,
+                            Post.KEY_IMAGE_MEDIUM, Post.KEY_CAPTION, Post.KEY_LIKES_COUNT))
+                    .addDescendingOrder(KEY_CREATED_AT)
+                    .setLimit(RECENT_POSTS)
+                    .find();
+            index(posts);
+            mRecentIndexed = true;
+            Log.i(TAG, "Indexed " + posts.size() + " recent posts, " + mIndex.size() + " in total");
+        }
+    }
+
+    /**
+     * At most {@code limit} posts with words starting with each word of the query, most liked
+     * first.
+     */
+    public List<Post> search(@NonNull String query, int limit) {
+        List<String> ids = mIndex.search(query, limit);
+        List<Post> posts = new ArrayList<>(ids.size());
+        synchronized (mPosts) {
+            for (String id : ids) {
+                Post post = mPosts.get(id);
+                // Evicted since the index was searched
+                if (post != null) {
+                    posts.add(post);
+                }
+            }
+        }
+        return posts;
+    }
+}
@@ -0,0 +1,20 @@
+package com.codepath_group16.unigram.data.feed;
+
+/**
+ * Local copy of the head of a feed, shown while the first page is loaded from the network.
+ * Both methods block on disk I/O and handle their own errors.
+ */
+public interface FeedCache<T> {
+
+    /**
+     * Returns the cached items with the cursor after the last one, an empty page when nothing is
+     * cached.
+     */
+    FeedPage<T> read();
+
+    /**
+     * Saves a page loaded from the network. The first page replaces what was cached, later ones
+     * are added as long as the cache has room for them.
+     */
+    void write(FeedPage<T> page, boolean first);
+}
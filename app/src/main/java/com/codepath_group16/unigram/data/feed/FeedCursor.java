@@ -0,0 +1,32 @@
+package com.codepath_group16.unigram.data.feed;
+
+import java.util.Date;
+
+/**
+ * Position in a feed ordered by {@code createdAt}, then {@code objectId}, both descending. The
+ * next page starts right after the post with these keys, however many posts were added or
+ * removed before it.
+ */
+public final class FeedCursor {
+
+    public final Date createdAt;
+    public final String objectId;
+
+    public FeedCursor(Date createdAt, String objectId) {
+        this.createdAt = createdAt;
+        this.objectId = objectId;
+    }
+
+    /**
+     * Whether a post with these keys comes after the cursor in the feed.
+     */
+    public boolean isBefore(Date createdAt, String objectId) {
+        int byDate = createdAt.compareTo(this.createdAt);
+        return byDate < 0 || (byDate == 0 && objectId.compareTo(this.objectId) < 0);
+    }
+
+    @Override
+    public String toString() {
+        return "FeedCursor{" + createdAt.getTime() + ", " + objectId + "}";
+    }
+}
@@ -0,0 +1,18 @@
+package com.codepath_group16.unigram.data.feed;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A page of a feed and the cursor the next one starts from, null after the last page.
+ */
+public final class FeedPage<T> {
+
+    public final List<T> items;
+    public final FeedCursor next;
+
+    public FeedPage(List<T> items, FeedCursor next) {
+        this.items = Collections.unmodifiableList(items);
+        this.next = next;
+    }
+}
@@ -0,0 +1,218 @@
+package com.codepath_group16.unigram.data.feed;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Loads a feed one page at a time as it is scrolled, starting each page from the
+ * {@link FeedCursor} of the last one. Unlike skip and limit the server never walks over the
+ * posts that were already shown, so the cost of a page doesn't grow with how deep the feed was
+ * scrolled, and posts added in the meantime can't shift a post into the next page twice.
+ * <p>
+ * Pages load on the executor one at a time. The listener is called from there with a new
+ * {@link State} after every change.
+ * <p>
+ * With a {@link FeedCache} the feed is stale while revalidated: {@link #start()} shows the cached
+ * posts first and replaces them once the first page comes from the source. Every page from the
+ * source is written back to the cache.
+ */
+public class FeedPager<T> {
+
+    private final PageSource<T> mSource;
+    private final FeedCache<T> mCache;
+    private final Executor mExecutor;
+    private final int mPageSize;
+    private final int mPrefetchDistance;
+    private final Listener<T> mListener;
+
+    private List<T> mItems = Collections.emptyList();
+    private FeedCursor mNext;
+    private boolean mEndReached;
+    private boolean mLoading;
+    private boolean mStarted;
+    /**
+     * Whether the items came from the cache and the source didn't replace them yet.
+     */
+    private boolean mStale;
+    private Exception mError;
+    /**
+     * Incremented by {@link #refresh()} so pages loaded for the previous feed are dropped.
+     */
+    private int mGeneration;
+
+    /**
+     * @param prefetchDistance the next page is loaded once an item this close to the end is
+     *                         shown
+     */
+    public FeedPager(PageSource<T> source, Executor executor, int pageSize, int prefetchDistance,
+                     Listener<T> listener) {
+        this(source, null, executor, pageSize, prefetchDistance, listener);
+    }
+
+    /**
+     * @param cache where the feed is read from first and written to, null for none
+     */
+    public FeedPager(PageSource<T> source, FeedCache<T> cache, Executor executor, int pageSize,
+                     int prefetchDistance, Listener<T> listener) {
+        mSource = source;
+        mCache = cache;
+        mExecutor = executor;
+        mPageSize = pageSize;
+        mPrefetchDistance = prefetchDistance;
+        mListener = listener;
+    }
+
+    /**
+     * Shows the cached feed and loads the first page, unless that was done already.
+     */
+    public synchronized void start() {
+        if (mStarted) {
+            return;
+        }
+        mStarted = true;
+        if (mCache == null) {
+            load(null, true);
+            return;
+        }
+        int generation = mGeneration;
+        mLoading = true;
+        notifyChanged();
+        mExecutor.execute(() -> {
+            FeedPage<T> cached = mCache.read();
+            synchronized (this) {
+                if (generation == mGeneration && !cached.items.isEmpty()) {
+                    mItems = cached.items;
+                    mNext = cached.next;
+                    mStale = true;
+                    notifyChanged();
+                }
+            }
+            fetch(generation, null, true);
+        });
+    }
+
+    /**
+     * Loads the first page again, the items stay until it is there.
+     */
+    public synchronized void refresh() {
+        mStarted = true;
+        mGeneration++;
+        mLoading = false;
+        load(null, true);
+    }
+
+    /**
+     * Loads the next page when the item at {@code position} is close to the end of the loaded
+     * ones. A page that failed is only loaded again by {@link #retry()}.
+     */
+    public synchronized void onItemShown(int position) {
+        if (mError == null && position >= mItems.size() - mPrefetchDistance) {
+            loadMore();
+        }
+    }
+
+    public synchronized void retry() {
+        if (mItems.isEmpty() || mStale) {
+            refresh();
+        } else {
+            loadMore();
+        }
+    }
+
+    public synchronized State<T> getState() {
+        return new State<>(mItems, mLoading, mEndReached, mStale, mError);
+    }
+
+    private void loadMore() {
+        if (!mLoading && mNext != null) {
+            load(mNext, false);
+        }
+    }
+
+    private void load(FeedCursor after, boolean replace) {
+        int generation = mGeneration;
+        mLoading = true;
+        mError = null;
+        notifyChanged();
+        mExecutor.execute(() -> fetch(generation, after, replace));
+    }
+
+    /**
+     * Loads the page from the source and saves it in the cache, on the executor.
+     */
+    private void fetch(int generation, FeedCursor after, boolean replace) {
+        FeedPage<T> page = null;
+        Exception error = null;
+        try {
+            page = mSource.loadPage(after, mPageSize);
+        } catch (Exception e) {
+            error = e;
+        }
+        if (page != null && mCache != null && isCurrent(generation)) {
+            mCache.write(page, replace);
+        }
+        onLoaded(generation, replace, page, error);
+    }
+
+    private synchronized boolean isCurrent(int generation) {
+        return generation == mGeneration;
+    }
+
+    private synchronized void onLoaded(int generation, boolean replace, FeedPage<T> page, Exception error) {
+        if (generation != mGeneration) {
+            return;
+        }
+        mLoading = false;
+        if (page == null) {
+            mError = error;
+        } else {
+            List<T> items = new ArrayList<>(replace ? page.items.size() : mItems.size() + page.items.size());
+            if (!replace) {
+                items.addAll(mItems);
+            }
+            items.addAll(page.items);
+            mItems = Collections.unmodifiableList(items);
+            mNext = page.next;
+            mEndReached = page.next == null;
+            if (replace) {
+                mStale = false;
+            }
+        }
+        notifyChanged();
+    }
+
+    private void notifyChanged() {
+        mListener.onFeedChanged(getState());
+    }
+
+    public interface Listener<T> {
+        void onFeedChanged(State<T> state);
+    }
+
+    /**
+     * What the feed looks like after a change. Never modified.
+     */
+    public static final class State<T> {
+        public final List<T> items;
+        public final boolean loading;
+        public final boolean endReached;
+        /**
+         * Whether the items are the cached ones, shown until the source answers.
+         */
+        public final boolean stale;
+        /**
+         * Why the last page failed to load, null when it didn't.
+         */
+        public final Exception error;
+
+        State(List<T> items, boolean loading, boolean endReached, boolean stale, Exception error) {
+            this.items = items;
+            this.loading = loading;
+            this.endReached = endReached;
+            this.stale = stale;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.codepath_group16.unigram.data.feed;
+
+/**
+ * Loads the pages of a feed, blocking until the page is there.
+ */
+public interface PageSource<T> {
+
+    /**
+     * Loads at most {@code limit} items that come after {@code after}, or the first page when it
+     * is null.
+     */
+    FeedPage<T> loadPage(FeedCursor after, int limit) throws Exception;
+}
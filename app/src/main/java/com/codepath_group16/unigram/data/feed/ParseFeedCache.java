@@ -0,0 +1,74 @@
+package com.codepath_group16.unigram.data.feed;
+
+import android.util.Log;
+
+import com.codepath_group16.unigram.data.explore.PostSearch;
+import com.codepath_group16.unigram.data.likes.LikedPostsResolver;
+import com.codepath_group16.unigram.data.models.Post;
+import com.parse.ParseException;
+import com.parse.ParseObject;
+import com.parse.ParseQuery;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Keeps the newest posts of the feed pinned in the Parse local datastore, with their authors,
+ * so the feed opens with them before the network answers.
+ * <p>
+ * At most {@link #MAX_CACHED_POSTS} are kept: a new first page evicts everything that was pinned
+ * before and later pages only fill the room that is left, so the cache holds the head of the
+ * feed as it was last seen.
+ */
+public class ParseFeedCache implements FeedCache<Post> {
+
+    public static final int MAX_CACHED_POSTS = 60;
+
+    private static final String TAG = "ParseFeedCache";
+    private static final String PIN_NAME = "feed";
+
+    private int mCachedPosts;
+
+    @Override
+    public synchronized FeedPage<Post> read() {
+        try {
+            List<Post> posts = ParseQuery.getQuery(Post.class)
+                    .fromPin(PIN_NAME)
+                    .include(Post.KEY_AUTHOR)
+                    .addDescendingOrder(ParsePostSource.KEY_CREATED_AT)
+                    .addDescendingOrder(ParsePostSource.KEY_OBJECT_ID)
+                    .setLimit(MAX_CACHED_POSTS)
+                    .find();
+            mCachedPosts = posts.size();
+            // No query before the cached posts show, the fresh page resolves the rest
+            LikedPostsResolver.getInstance().resolveCached(posts);
+            PostSearch.getInstance().index(posts);
+            if (posts.isEmpty()) {
+                return new FeedPage<>(Collections.emptyList(), null);
+            }
+            // More posts may follow, the next page says
+            Post last = posts.get(posts.size() - 1);
+            return new FeedPage<>(posts, new FeedCursor(last.getCreatedAt(), last.getObjectId()));
+        } catch (ParseException e) {
+            Log.e(TAG, "Unable to read the cached feed", e);
+            return new FeedPage<>(Collections.emptyList(), null);
+        }
+    }
+
+    @Override
+    public synchronized void write(FeedPage<Post> page, boolean first) {
+        try {
+            if (first) {
+                ParseObject.unpinAll(PIN_NAME);
+                mCachedPosts = 0;
+            }
+            int count = Math.min(page.items.size(), MAX_CACHED_POSTS - mCachedPosts);
+            if (count > 0) {
+                ParseObject.pinAll(PIN_NAME, page.items.subList(0, count));
+                mCachedPosts += count;
+            }
+        } catch (ParseException e) {
+            Log.e(TAG, "Unable to cache the feed", e);
+        }
+    }
+}
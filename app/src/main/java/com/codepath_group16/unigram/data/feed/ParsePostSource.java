@@ -0,0 +1,154 @@
+package com.codepath_group16.unigram.data.feed;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.codepath_group16.unigram.data.explore.PostSearch;
+import com.codepath_group16.unigram.data.likes.LikedPostsResolver;
+import com.codepath_group16.unigram.data.likes.ParseLikeCounter;
+import com.codepath_group16.unigram.data.models.Post;
+import com.codepath_group16.unigram.data.models.UserStats;
+import com.parse.ParseException;
+import com.parse.ParseQuery;
+import com.parse.ParseUser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pages of {@link Post}s, newest first, with their authors and whether the user liked them.
+ * <p>
+ * The authors come with the posts through {@code include} instead of one fetch per post, and
+ * only the keys the feed shows are sent back. The likes of a page are resolved with one more
+ * query by the {@link LikedPostsResolver}, their counts with another by the
+ * {@link ParseLikeCounter} when the cached ones are stale.
+ * <p>
+ * The posts of one author, for a profile, come with their images only.
+ */
+public class ParsePostSource implements PageSource<Post> {
+
+    private static final String TAG = "ParsePostSource";
+    static final String KEY_CREATED_AT = "createdAt";
+    static final String KEY_OBJECT_ID = "objectId";
+    private static final String KEY_AUTHOR_USERNAME = Post.KEY_AUTHOR + ".username";
+    private static final List<String> FEED_KEYS = Arrays.asList(
+            Post.KEY_AUTHOR,
+            KEY_AUTHOR_USERNAME,
+            Post.KEY_IMAGE,
+            Post.KEY_IMAGE_MEDIUM,
+            Post.KEY_CAPTION,
+            Post.KEY_LIKES_COUNT,
+            Post.KEY_AUTHOR + "." + UserStats.KEY_USER_STATS
+    );
+    private static final List<String> PROFILE_KEYS = Arrays.asList(
+            Post.KEY_THUMBNAIL,
+            Post.KEY_IMAGE_MEDIUM,
+            // Shown by the posts from before the variants
+            Post.KEY_IMAGE
+    );
+
+    private final AtomicInteger mRoundTrips = new AtomicInteger();
+    /**
+     * Whose posts are loaded, null for the feed of everyone.
+     */
+    private final ParseUser mAuthor;
+
+    public ParsePostSource() {
+        this(null);
+    }
+
+    private ParsePostSource(ParseUser author) {
+        mAuthor = author;
+    }
+
+    /**
+     * The posts of {@code author}, for a profile grid.
+     */
+    public static ParsePostSource byAuthor(@NonNull ParseUser author) {
+        return new ParsePostSource(author);
+    }
+
+    /**
+     * Number of requests sent to the server, one per page and one more each for the likes
+     * and the counts that weren't cached.
+     */
+    public int getRoundTrips() {
+        return mRoundTrips.get();
+    }
+
+    @Override
+    public FeedPage<Post> loadPage(FeedCursor after, int limit) throws ParseException {
+        ParseQuery<Post> query = after == null ? newQuery() : after(after);
+        if (mAuthor == null) {
+            query.include(Post.KEY_AUTHOR).selectKeys(FEED_KEYS);
+        } else {
+            query.selectKeys(PROFILE_KEYS);
+        }
+        query.addDescendingOrder(KEY_CREATED_AT)
+                .addDescendingOrder(KEY_OBJECT_ID)
+                .setLimit(limit);
+        mRoundTrips.incrementAndGet();
+        List<Post> posts = query.find();
+        if (mAuthor == null) {
+            resolveLikes(posts);
+            reconcileLikesCounts(posts);
+            PostSearch.getInstance().index(posts);
+        }
+
+        FeedCursor next = null;
+        if (posts.size() == limit) {
+            Post last = posts.get(posts.size() - 1);
+            next = new FeedCursor(last.getCreatedAt(), last.getObjectId());
+        }
+        return new FeedPage<>(posts, next);
+    }
+
+    private void resolveLikes(List<Post> posts) {
+        try {
+            if (LikedPostsResolver.getInstance().resolve(posts)) {
+                mRoundTrips.incrementAndGet();
+            }
+        } catch (ParseException e) {
+            mRoundTrips.incrementAndGet();
+            // The posts still show, only not as liked
+            Log.e(TAG, "Unable to resolve the likes of " + posts.size() + " posts", e);
+        }
+    }
+
+    private void reconcileLikesCounts(List<Post> posts) {
+        try {
+            if (ParseLikeCounter.getInstance().reconcile(posts)) {
+                mRoundTrips.incrementAndGet();
+            }
+        } catch (ParseException e) {
+            mRoundTrips.incrementAndGet();
+            // The posts show the count of their row until the next page
+            Log.e(TAG, "Unable to read the likes counts of " + posts.size() + " posts", e);
+        }
+    }
+
+    /**
+     * Selects the posts after the cursor: older ones, and the ones created in the same
+     * millisecond with a smaller id.
+     */
+    private ParseQuery<Post> after(FeedCursor cursor) {
+        List<ParseQuery<Post>> queries = new ArrayList<>(2);
+        queries.add(newQuery()
+                .whereLessThan(KEY_CREATED_AT, cursor.createdAt));
+        queries.add(newQuery()
+                .whereEqualTo(KEY_CREATED_AT, cursor.createdAt)
+                .whereLessThan(KEY_OBJECT_ID, cursor.objectId));
+        return ParseQuery.or(queries);
+    }
+
+    private ParseQuery<Post> newQuery() {
+        ParseQuery<Post> query = ParseQuery.getQuery(Post.class);
+        if (mAuthor != null) {
+            query.whereEqualTo(Post.KEY_AUTHOR, mAuthor);
+        }
+        return query;
+    }
+}
@@ -0,0 +1,313 @@
+package com.codepath_group16.unigram.data.likes;
+
+import android.util.Log;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+
+import com.codepath_group16.unigram.AppExecutors;
+import com.codepath_group16.unigram.data.models.Like;
+import com.codepath_group16.unigram.data.models.LikeCounterShard;
+import com.codepath_group16.unigram.data.models.Post;
+import com.codepath_group16.unigram.data.models.UserStats;
+import com.codepath_group16.unigram.data.profile.UserStatsCounter;
+import com.parse.ParseException;
+import com.parse.ParseObject;
+import com.parse.ParseQuery;
+import com.parse.ParseUser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects the likes and unlikes of the user and saves them together.
+ * <p>
+ * A tap only changes what {@link Post#getIsLiked()} and {@link Post#getLikesCount()} show. Taps
+ * are collected for {@link #FLUSH_DELAY_MILLIS}, only the last state of each post counts, and
+ * for the posts whose state differs from the server a {@link Like} of the user is saved, or
+ * deleted, in one batch. Liking and unliking a post within the window sends nothing. When the
+ * batch fails, each like is saved on its own by {@link SplitBatchSaver}, so one like only fails
+ * itself. The posts that failed go back to the state the server has and the {@link Listener}s
+ * are told. A shard of the {@link ParseLikeCounter} and the stats of the author are then saved
+ * for the likes that were, so a like that failed never leaves a count behind.
+ * <p>
+ * One batch is in flight at a time. Likes are set and saved on the main thread, the counts can
+ * be read from any thread, like the diffing thread of a list adapter.
+ */
+public class LikeAggregator {
+
+    private static final String TAG = "LikeAggregator";
+    private static final long FLUSH_DELAY_MILLIS = 1000;
+    private static LikeAggregator sInstance;
+
+    /**
+     * Posts toggled since the last flush, by id.
+     */
+    private final Map<String, PendingLike> mPending = new LinkedHashMap<>();
+    private final List<Listener> mListeners = new CopyOnWriteArrayList<>();
+    private Map<String, PendingLike> mInFlight = Collections.emptyMap();
+    private boolean mFlushScheduled;
+
+    private LikeAggregator() {
+    }
+
+    public static synchronized LikeAggregator getInstance() {
+        if (sInstance == null) {
+            sInstance = new LikeAggregator();
+        }
+        return sInstance;
+    }
+
+    @MainThread
+    public void addListener(@NonNull Listener listener) {
+        mListeners.add(listener);
+    }
+
+    @MainThread
+    public void removeListener(@NonNull Listener listener) {
+        mListeners.remove(listener);
+    }
+
+    /**
+     * Records that the user wants {@code post} liked or not, the post shows it right away.
+     */
+    @MainThread
+    public synchronized void setLiked(@NonNull Post post, boolean liked) {
+        String id = post.getObjectId();
+        PendingLike pending = mPending.get(id);
+        if (pending == null) {
+            // A batch in flight already counts its change in the post
+            PendingLike inFlight = mInFlight.get(id);
+            pending = new PendingLike(post, inFlight != null ? inFlight.liked : post.getIsLiked());
+            mPending.put(id, pending);
+        }
+        pending.liked = liked;
+        LikedPostsResolver.getInstance().invalidate(id);
+        scheduleFlush();
+    }
+
+    /**
+     * Whether the user liked the post with {@code postId} in a tap that isn't saved yet, null
+     * when there is none.
+     */
+    public synchronized Boolean getLiked(@NonNull String postId) {
+        PendingLike pending = mPending.get(postId);
+        if (pending == null) {
+            pending = mInFlight.get(postId);
+        }
+        return pending != null ? pending.liked : null;
+    }
+
+    /**
+     * The change to the likes count of {@code post} that is not saved yet, -1, 0 or 1.
+     */
+    public synchronized int getPendingLikesDelta(@NonNull Post post) {
+        PendingLike pending = mPending.get(post.getObjectId());
+        return pending != null ? pending.getDelta() : 0;
+    }
+
+    private void scheduleFlush() {
+        if (mFlushScheduled) {
+            return;
+        }
+        mFlushScheduled = true;
+        AppExecutors executors = AppExecutors.getInstance();
+        executors.scheduler().schedule(() -> executors.mainThread().execute(this::flush),
+                FLUSH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void flush() {
+        mFlushScheduled = false;
+        if (!mInFlight.isEmpty()) {
+            // Flushed again once the batch in flight is done
+            return;
+        }
+        ParseUser user = ParseUser.getCurrentUser();
+        if (user == null) {
+            mPending.clear();
+            return;
+        }
+
+        ParseLikeCounter counter = ParseLikeCounter.getInstance();
+        Map<String, PendingLike> batch = new HashMap<>();
+        for (Map.Entry<String, PendingLike> entry : mPending.entrySet()) {
+            PendingLike pending = entry.getValue();
+            if (pending.liked == pending.saved) {
+                continue;
+            }
+            pending.shard = counter.increment(pending.post, pending.getDelta());
+            pending.authorStats = UserStatsCounter.countLike(pending.post, pending.getDelta());
+            batch.put(entry.getKey(), pending);
+        }
+        int toggled = mPending.size();
+        mPending.clear();
+        if (batch.isEmpty()) {
+            Log.v(TAG, toggled + " posts toggled back, nothing to save");
+            return;
+        }
+
+        Log.i(TAG, "Saving the likes of " + batch.size() + " posts, " + toggled + " toggled");
+        mInFlight = batch;
+        List<PendingLike> changes = new ArrayList<>(batch.values());
+        AppExecutors executors = AppExecutors.getInstance();
+        executors.network().execute(() -> {
+            Map<String, ParseException> failed = save(user, changes);
+            executors.mainThread().execute(() -> onSaved(batch, failed));
+        });
+    }
+
+    /**
+     * Saves a {@link Like} for each post the user liked and deletes the likes of the posts they
+     * unliked, and returns why the changes that couldn't be saved failed, by post id.
+     */
+    @WorkerThread
+    private static Map<String, ParseException> save(ParseUser user, List<PendingLike> changes) {
+        List<Like> likes = new ArrayList<>();
+        List<Post> unliked = new ArrayList<>();
+        for (PendingLike change : changes) {
+            if (change.liked) {
+                likes.add(new Like(user, change.post));
+            } else {
+                unliked.add(change.post);
+            }
+        }
+
+        Map<String, ParseException> failed = new HashMap<>();
+        for (Map.Entry<Like, ParseException> entry : SplitBatchSaver.save(likes, ParseObject::saveAll).entrySet()) {
+            failed.put(entry.getKey().getPost().getObjectId(), entry.getValue());
+        }
+        if (!unliked.isEmpty()) {
+            try {
+                // Every like of the posts, one saved twice is taken back as well
+                List<Like> rows = ParseQuery.getQuery(Like.class)
+                        .whereEqualTo(Like.KEY_USER, user)
+                        .whereContainedIn(Like.KEY_POST, unliked)
+                        .setLimit(ParseQuery.MAX_LIMIT)
+                        .find();
+                for (Map.Entry<Like, ParseException> entry
+                        : SplitBatchSaver.save(rows, LikeAggregator::deleteAll).entrySet()) {
+                    failed.put(entry.getKey().getPost().getObjectId(), entry.getValue());
+                }
+            } catch (ParseException e) {
+                for (Post post : unliked) {
+                    failed.put(post.getObjectId(), e);
+                }
+            }
+        }
+        return failed;
+    }
+
+    @WorkerThread
+    private static void deleteAll(List<Like> likes) throws ParseException {
+        try {
+            ParseObject.deleteAll(likes);
+        } catch (ParseException e) {
+            // Deleted by the batch that failed before it was split
+            if (likes.size() > 1 || e.getCode() != ParseException.OBJECT_NOT_FOUND) {
+                throw e;
+            }
+        }
+    }
+
+    private void onSaved(Map<String, PendingLike> batch, Map<String, ParseException> failed) {
+        List<Post> rolledBack = new ArrayList<>();
+        List<ParseObject> counts = new ArrayList<>();
+        synchronized (this) {
+            mInFlight = Collections.emptyMap();
+            for (Map.Entry<String, PendingLike> entry : batch.entrySet()) {
+                PendingLike pending = entry.getValue();
+                ParseException e = failed.get(entry.getKey());
+                if (e != null) {
+                    Log.e(TAG, "Unable to save the like of " + entry.getKey(), e);
+                    rollBack(entry.getKey(), pending, rolledBack);
+                } else {
+                    counts.add(pending.shard);
+                    // Posts of the same author may share their stats
+                    if (pending.authorStats != null && !counts.contains(pending.authorStats)) {
+                        counts.add(pending.authorStats);
+                    }
+                }
+            }
+            if (!mPending.isEmpty()) {
+                scheduleFlush();
+            }
+        }
+        if (!counts.isEmpty()) {
+            ParseObject.saveAllInBackground(counts, e -> {
+                if (e != null) {
+                    // The likes are saved, the counts are sent again with the next like of the
+                    // same shard or author and are only off until then
+                    Log.e(TAG, "Unable to save the counts of " + (batch.size() - failed.size()) + " likes", e);
+                }
+            });
+        }
+        for (Post post : rolledBack) {
+            for (Listener listener : mListeners) {
+                listener.onLikeRolledBack(post);
+            }
+        }
+    }
+
+    /**
+     * Takes back a like that couldn't be saved. Its counts weren't sent yet.
+     */
+    private void rollBack(String postId, PendingLike failed, List<Post> rolledBack) {
+        ParseLikeCounter.getInstance().rollBack(failed.post, failed.shard, failed.getDelta());
+        if (failed.authorStats != null) {
+            // Shared with the other posts of the author, only this like is taken out
+            failed.authorStats.increment(UserStats.KEY_LIKES_COUNT, -failed.getDelta());
+        }
+        LikedPostsResolver.getInstance().invalidate(postId);
+
+        PendingLike newer = mPending.get(postId);
+        if (newer != null) {
+            // Tapped again since, that decides what the post shows and is saved next
+            newer.saved = failed.saved;
+        } else {
+            failed.post.setIsLiked(failed.saved, false);
+        }
+        rolledBack.add(failed.post);
+    }
+
+    public interface Listener {
+        /**
+         * Called when the like of {@code post} couldn't be saved and it shows what the server
+         * has again.
+         */
+        void onLikeRolledBack(@NonNull Post post);
+    }
+
+    private static class PendingLike {
+        final Post post;
+        /**
+         * Whether the post is liked on the server, or will be once the batch in flight is saved.
+         */
+        boolean saved;
+        boolean liked;
+        /**
+         * The shard of the likes count saved with the like.
+         */
+        LikeCounterShard shard;
+        /**
+         * The stats of the author saved with the like, null when the author has none.
+         */
+        UserStats authorStats;
+
+        PendingLike(Post post, boolean saved) {
+            this.post = post;
+            this.saved = saved;
+            this.liked = saved;
+        }
+
+        int getDelta() {
+            return liked == saved ? 0 : liked ? 1 : -1;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.codepath_group16.unigram.data.likes;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+
+import com.codepath_group16.unigram.data.models.Like;
+import com.codepath_group16.unigram.data.models.Post;
+import com.parse.ParseException;
+import com.parse.ParseQuery;
+import com.parse.ParseUser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Sets {@link Post#getIsLiked()} on a page of posts with one query of the {@link Like}s of the
+ * user, instead of one query per post.
+ * <p>
+ * The answers are kept in memory by user and post, so posts shown again, after a refresh or from
+ * the cache, don't need a query. Liking or unliking a post forgets its answer, and a tap the
+ * {@link LikeAggregator} didn't save yet always wins over what the server said.
+ */
+public class LikedPostsResolver {
+
+    private static final String TAG = "LikedPostsResolver";
+    private static final int MAX_CACHED_ANSWERS = 500;
+    private static LikedPostsResolver sInstance;
+
+    /**
+     * Whether the user liked the post, by user and post id, least recently used first.
+     */
+    private final Map<String, Boolean> mLiked = new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > MAX_CACHED_ANSWERS;
+        }
+    };
+
+    private LikedPostsResolver() {
+    }
+
+    public static synchronized LikedPostsResolver getInstance() {
+        if (sInstance == null) {
+            sInstance = new LikedPostsResolver();
+        }
+        return sInstance;
+    }
+
+    /**
+     * Sets whether the current user liked each of the posts, asking the server about the posts
+     * without a cached answer in a single query.
+     *
+     * @return whether the server was asked
+     * @throws ParseException when the query fails, the posts keep what they had
+     */
+    @WorkerThread
+    public boolean resolve(@NonNull List<Post> posts) throws ParseException {
+        ParseUser user = ParseUser.getCurrentUser();
+        if (user == null || posts.isEmpty()) {
+            return false;
+        }
+        String userId = user.getObjectId();
+        List<Post> unknown = new ArrayList<>();
+        synchronized (this) {
+            for (Post post : posts) {
+                if (!mLiked.containsKey(key(userId, post.getObjectId()))) {
+                    unknown.add(post);
+                }
+            }
+        }
+
+        if (!unknown.isEmpty()) {
+            List<Like> likes = ParseQuery.getQuery(Like.class)
+                    .whereEqualTo(Like.KEY_USER, user)
+                    .whereContainedIn(Like.KEY_POST, unknown)
+                    .selectKeys(Collections.singletonList(Like.KEY_POST))
+                    .setLimit(ParseQuery.MAX_LIMIT)
+                    .find();
+            Set<String> likedIds = new HashSet<>();
+            for (Like like : likes) {
+                likedIds.add(like.getPost().getObjectId());
+            }
+            synchronized (this) {
+                for (Post post : unknown) {
+                    mLiked.put(key(userId, post.getObjectId()), likedIds.contains(post.getObjectId()));
+                }
+            }
+            Log.v(TAG, "Resolved " + unknown.size() + " of " + posts.size() + " posts in one query, "
+                    + likedIds.size() + " liked");
+        }
+        applyCached(userId, posts);
+        return !unknown.isEmpty();
+    }
+
+    /**
+     * Sets whether the current user liked each of the posts from the cached answers only, the
+     * other posts keep what they had.
+     */
+    public void resolveCached(@NonNull List<Post> posts) {
+        ParseUser user = ParseUser.getCurrentUser();
+        if (user != null) {
+            applyCached(user.getObjectId(), posts);
+        }
+    }
+
+    /**
+     * Forgets whether the current user liked the post, it is asked again the next time.
+     */
+    public void invalidate(@NonNull String postId) {
+        ParseUser user = ParseUser.getCurrentUser();
+        if (user != null) {
+            synchronized (this) {
+                mLiked.remove(key(user.getObjectId(), postId));
+            }
+        }
+    }
+
+    private void applyCached(String userId, List<Post> posts) {
+        LikeAggregator aggregator = LikeAggregator.getInstance();
+        for (Post post : posts) {
+            Boolean liked = aggregator.getLiked(post.getObjectId());
+            if (liked == null) {
+                synchronized (this) {
+                    liked = mLiked.get(key(userId, post.getObjectId()));
+                }
+            }
+            if (liked != null) {
+                post.setIsLiked(liked, false);
+            }
+        }
+    }
+
+    private static String key(String userId, String postId) {
+        return userId + '/' + postId;
+    }
+}
@@ -0,0 +1,160 @@
+package com.codepath_group16.unigram.data.likes;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+
+import com.codepath_group16.unigram.data.models.LikeCounterShard;
+import com.codepath_group16.unigram.data.models.Post;
+import com.parse.ParseException;
+import com.parse.ParseQuery;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * The likes counts of the posts, split over {@link LikeCounterShard}s so the likers of a popular
+ * post don't all write the post row.
+ * <p>
+ * A like increments a random one of {@link #SHARDS} shards of the post, creating it when it
+ * doesn't exist yet. The count of a post is {@link Post#KEY_LIKES_COUNT}, which only holds the
+ * likes from before the shards, plus the counts of all of its shards. Shards with the same
+ * index created by two users at once only mean one more row to sum.
+ * <p>
+ * The counts are cached by a {@link ShardedCounter} and read again, a page of posts with one
+ * query, once they are {@link #MAX_AGE_MILLIS} old.
+ */
+public class ParseLikeCounter {
+
+    public static final int SHARDS = 10;
+    private static final long MAX_AGE_MILLIS = 60_000;
+    private static final String TAG = "ParseLikeCounter";
+    private static ParseLikeCounter sInstance;
+
+    private final ShardedCounter mCounter = new ShardedCounter(SHARDS, MAX_AGE_MILLIS, new Random());
+    /**
+     * The shards known of each post, by post id and shard index.
+     */
+    private final Map<String, Map<Integer, LikeCounterShard>> mShards = new HashMap<>();
+
+    private ParseLikeCounter() {
+    }
+
+    public static synchronized ParseLikeCounter getInstance() {
+        if (sInstance == null) {
+            sInstance = new ParseLikeCounter();
+        }
+        return sInstance;
+    }
+
+    /**
+     * The cached count of the post, what the post row holds before it was read.
+     */
+    public int getLikesCount(@NonNull Post post) {
+        Integer total = mCounter.getTotal(post.getObjectId());
+        return total != null ? total : post.getInt(Post.KEY_LIKES_COUNT);
+    }
+
+    /**
+     * Reads the shards of the posts whose count is stale, all in one query.
+     *
+     * @return whether the server was asked
+     */
+    @WorkerThread
+    public boolean reconcile(@NonNull List<Post> posts) throws ParseException {
+        long now = SystemClock.elapsedRealtime();
+        List<Post> stale = new ArrayList<>();
+        for (Post post : posts) {
+            if (mCounter.isStale(post.getObjectId(), now)) {
+                stale.add(post);
+            }
+        }
+        if (stale.isEmpty()) {
+            return false;
+        }
+
+        List<LikeCounterShard> shards = ParseQuery.getQuery(LikeCounterShard.class)
+                .whereContainedIn(LikeCounterShard.KEY_POST, stale)
+                .selectKeys(Arrays.asList(LikeCounterShard.KEY_POST, LikeCounterShard.KEY_SHARD,
+                        LikeCounterShard.KEY_COUNT))
+                // Room for shards created twice
+                .setLimit(Math.min(stale.size() * SHARDS * 2, 1000))
+                .find();
+        Map<String, Map<Integer, LikeCounterShard>> byPost = new HashMap<>();
+        Map<String, Integer> sums = new HashMap<>();
+        for (Post post : stale) {
+            byPost.put(post.getObjectId(), new HashMap<>());
+            sums.put(post.getObjectId(), post.getInt(Post.KEY_LIKES_COUNT));
+        }
+        for (LikeCounterShard shard : shards) {
+            String postId = shard.getPost().getObjectId();
+            Map<Integer, LikeCounterShard> known = byPost.get(postId);
+            if (known == null) {
+                continue;
+            }
+            known.put(shard.getShard(), shard);
+            sums.put(postId, sums.get(postId) + shard.getCount());
+        }
+
+        synchronized (this) {
+            for (Map.Entry<String, Integer> sum : sums.entrySet()) {
+                mCounter.reconcile(sum.getKey(), sum.getValue(), now);
+                Map<Integer, LikeCounterShard> known = mShards.get(sum.getKey());
+                if (known == null) {
+                    mShards.put(sum.getKey(), byPost.get(sum.getKey()));
+                } else {
+                    // Keeps the shards created here and not saved yet
+                    known.putAll(byPost.get(sum.getKey()));
+                }
+            }
+        }
+        Log.v(TAG, "Reconciled " + stale.size() + " of " + posts.size() + " counts from "
+                + shards.size() + " shards");
+        return true;
+    }
+
+    /**
+     * Adds {@code delta} likes to a random shard of the post and to its cached count. The shard
+     * is returned to be saved with the like.
+     */
+    @MainThread
+    public synchronized LikeCounterShard increment(@NonNull Post post, int delta) {
+        int index = mCounter.pickShard();
+        Map<Integer, LikeCounterShard> known = mShards.get(post.getObjectId());
+        if (known == null) {
+            known = new HashMap<>();
+            mShards.put(post.getObjectId(), known);
+        }
+        LikeCounterShard shard = known.get(index);
+        if (shard == null) {
+            shard = new LikeCounterShard(post, index);
+            known.put(index, shard);
+        }
+        shard.increment(LikeCounterShard.KEY_COUNT, delta);
+        mCounter.add(post.getObjectId(), delta, post.getInt(Post.KEY_LIKES_COUNT));
+        return shard;
+    }
+
+    /**
+     * Takes back an {@link #increment} whose shard couldn't be saved.
+     */
+    @MainThread
+    public synchronized void rollBack(@NonNull Post post, @NonNull LikeCounterShard shard, int delta) {
+        if (shard.getObjectId() == null) {
+            Map<Integer, LikeCounterShard> known = mShards.get(post.getObjectId());
+            if (known != null) {
+                known.remove(shard.getShard());
+            }
+        } else {
+            shard.revert(LikeCounterShard.KEY_COUNT);
+        }
+        mCounter.add(post.getObjectId(), -delta, post.getInt(Post.KEY_LIKES_COUNT));
+    }
+}
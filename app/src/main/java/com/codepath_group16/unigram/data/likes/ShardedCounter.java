@@ -0,0 +1,91 @@
+package com.codepath_group16.unigram.data.likes;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Counters split over shards, so the writers of a busy counter don't all update the same row.
+ * A write goes to a random shard and the total is the sum of all of them.
+ * <p>
+ * Summing the shards needs a read of every shard, so the totals are cached. Writes seen by this
+ * counter are added to the cached total right away, the writes of others only show once the
+ * total is reconciled from the shards, which is due {@code maxAgeMillis} after the last time.
+ */
+public class ShardedCounter {
+
+    private final int mShards;
+    private final long mMaxAgeMillis;
+    private final Random mRandom;
+    private final Map<String, Total> mTotals = new HashMap<>();
+
+    public ShardedCounter(int shards, long maxAgeMillis, Random random) {
+        if (shards < 1) {
+            throw new IllegalArgumentException("At least one shard, not " + shards);
+        }
+        mShards = shards;
+        mMaxAgeMillis = maxAgeMillis;
+        mRandom = random;
+    }
+
+    public int getShardCount() {
+        return mShards;
+    }
+
+    /**
+     * The shard the next write to a counter goes to.
+     */
+    public int pickShard() {
+        return mRandom.nextInt(mShards);
+    }
+
+    /**
+     * The cached total of the counter, null when it was never reconciled.
+     */
+    public synchronized Integer getTotal(String counterId) {
+        Total total = mTotals.get(counterId);
+        return total != null ? total.value : null;
+    }
+
+    /**
+     * Whether the total of the counter has to be read from its shards again.
+     */
+    public synchronized boolean isStale(String counterId, long nowMillis) {
+        Total total = mTotals.get(counterId);
+        return total == null || total.reconciledAtMillis == null
+                || nowMillis - total.reconciledAtMillis >= mMaxAgeMillis;
+    }
+
+    /**
+     * Replaces the cached total with the sum of the shards read at {@code nowMillis}.
+     */
+    public synchronized void reconcile(String counterId, int sum, long nowMillis) {
+        mTotals.put(counterId, new Total(sum, nowMillis));
+    }
+
+    /**
+     * Adds a write of this counter to the cached total. A counter that was never reconciled
+     * starts from {@code fallback} and stays stale.
+     */
+    public synchronized void add(String counterId, int delta, int fallback) {
+        Total total = mTotals.get(counterId);
+        if (total == null) {
+            total = new Total(fallback, null);
+            mTotals.put(counterId, total);
+        }
+        total.value += delta;
+    }
+
+    private static class Total {
+        int value;
+        /**
+         * Null when the total was never read from the shards.
+         */
+        final Long reconciledAtMillis;
+
+        Total(int value, Long reconciledAtMillis) {
+            this.value = value;
+            this.reconciledAtMillis = reconciledAtMillis;
+        }
+    }
+}
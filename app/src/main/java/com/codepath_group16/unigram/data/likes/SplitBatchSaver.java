@@ -0,0 +1,58 @@
+package com.codepath_group16.unigram.data.likes;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+
+import com.parse.ParseException;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Saves a batch in one request and, when the request fails, each item on its own, so one item
+ * that can't be saved, like the like of a post deleted meanwhile, only fails itself.
+ * <p>
+ * Items saved by the failed request are saved again, which sends nothing for Parse objects
+ * without changes left. A {@link Saver} that deletes has to take an item it finds already
+ * deleted as done.
+ */
+final class SplitBatchSaver {
+
+    private SplitBatchSaver() {
+    }
+
+    /**
+     * Saves {@code items} and returns the ones that couldn't be saved, with why.
+     */
+    @NonNull
+    @WorkerThread
+    static <T> Map<T, ParseException> save(@NonNull List<T> items, @NonNull Saver<T> saver) {
+        Map<T, ParseException> failed = new IdentityHashMap<>();
+        if (items.isEmpty()) {
+            return failed;
+        }
+        try {
+            saver.save(items);
+            return failed;
+        } catch (ParseException e) {
+            if (items.size() == 1) {
+                failed.put(items.get(0), e);
+                return failed;
+            }
+        }
+        for (T item : items) {
+            try {
+                saver.save(Collections.singletonList(item));
+            } catch (ParseException e) {
+                failed.put(item, e);
+            }
+        }
+        return failed;
+    }
+
+    interface Saver<T> {
+        void save(@NonNull List<T> items) throws ParseException;
+    }
+}
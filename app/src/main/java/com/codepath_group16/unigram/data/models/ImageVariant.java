@@ -0,0 +1,50 @@
+package com.codepath_group16.unigram.data.models;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The sizes a post image is uploaded in, each stored in its own key of the {@link Post}, so a
+ * view downloads the smallest image that still covers it.
+ */
+public enum ImageVariant {
+    /**
+     * A cell of a three column grid on a 1080 pixels wide screen.
+     */
+    THUMBNAIL(360, Post.KEY_THUMBNAIL),
+    MEDIUM(640, Post.KEY_IMAGE_MEDIUM),
+    FULL(1080, Post.KEY_IMAGE);
+
+    /**
+     * Length in pixels of the longest edge.
+     */
+    public final int maxEdge;
+    public final String key;
+
+    ImageVariant(int maxEdge, String key) {
+        this.maxEdge = maxEdge;
+        this.key = key;
+    }
+
+    /**
+     * The variants in the order they should be tried for a view whose longest edge is
+     * {@code targetEdge} pixels: the smallest that covers it, the larger ones, and then the
+     * smaller ones from the largest, for the posts that don't have every variant.
+     */
+    public static List<ImageVariant> covering(int targetEdge) {
+        ImageVariant[] variants = values();
+        List<ImageVariant> larger = new ArrayList<>(variants.length);
+        List<ImageVariant> smaller = new ArrayList<>(variants.length);
+        for (ImageVariant variant : variants) {
+            if (variant.maxEdge >= targetEdge) {
+                larger.add(variant);
+            } else {
+                smaller.add(variant);
+            }
+        }
+        Collections.reverse(smaller);
+        larger.addAll(smaller);
+        return larger;
+    }
+}
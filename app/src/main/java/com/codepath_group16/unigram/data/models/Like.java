@@ -0,0 +1,29 @@
+package com.codepath_group16.unigram.data.models;
+
+import com.parse.ParseClassName;
+import com.parse.ParseObject;
+import com.parse.ParseUser;
+
+/**
+ * A like of a {@link Post} by a user, a row of its own so the user liking a post of someone else
+ * can write it. It gets the default ACL, anyone can read it and only the user who liked can
+ * take it back.
+ */
+@ParseClassName("Like")
+public class Like extends ParseObject {
+
+    public static final String KEY_USER = "user";
+    public static final String KEY_POST = "post";
+
+    public Like() {
+    }
+
+    public Like(ParseUser user, Post post) {
+        put(KEY_USER, user);
+        put(KEY_POST, post);
+    }
+
+    public Post getPost() {
+        return (Post) getParseObject(KEY_POST);
+    }
+}
@@ -0,0 +1,43 @@
+package com.codepath_group16.unigram.data.models;
+
+import com.parse.ParseACL;
+import com.parse.ParseClassName;
+import com.parse.ParseObject;
+
+/**
+ * One of the rows the likes count of a {@link Post} is split over, see
+ * {@link com.codepath_group16.unigram.data.likes.ParseLikeCounter}.
+ */
+@ParseClassName("LikeCounterShard")
+public class LikeCounterShard extends ParseObject {
+
+    public static final String KEY_POST = "post";
+    public static final String KEY_SHARD = "shard";
+    public static final String KEY_COUNT = "count";
+
+    public LikeCounterShard() {
+    }
+
+    public LikeCounterShard(Post post, int shard) {
+        put(KEY_POST, post);
+        put(KEY_SHARD, shard);
+        put(KEY_COUNT, 0);
+        // Everyone who likes the post writes to its shards, not only the user creating them
+        ParseACL acl = new ParseACL();
+        acl.setPublicReadAccess(true);
+        acl.setPublicWriteAccess(true);
+        setACL(acl);
+    }
+
+    public Post getPost() {
+        return (Post) getParseObject(KEY_POST);
+    }
+
+    public int getShard() {
+        return getInt(KEY_SHARD);
+    }
+
+    public int getCount() {
+        return getInt(KEY_COUNT);
+    }
+}
@@ -1,17 +1,19 @@
 package com.codepath_group16.unigram.data.models;
 
+import com.codepath_group16.unigram.data.likes.LikeAggregator;
+import com.codepath_group16.unigram.data.likes.ParseLikeCounter;
 import com.parse.ParseClassName;
 import com.parse.ParseFile;
 import com.parse.ParseObject;
-import com.parse.ParseRelation;
 import com.parse.ParseUser;
 
 @ParseClassName("Post")
 public class Post extends ParseObject {
 
-    public static final String KEY_LIKED_BY = "likedBy";
     public static final String KEY_CAPTION = "caption";
     public static final String KEY_IMAGE = "image";
+    public static final String KEY_IMAGE_MEDIUM = "imageMedium";
+    public static final String KEY_THUMBNAIL = "thumbnail";
     public static final String KEY_AUTHOR = "author";
     public static final String KEY_LIKES_COUNT = "likesCount";
 
@@ -36,6 +38,31 @@ public class Post extends ParseObject {
         put(KEY_IMAGE, parseFile);
     }
 
+    /**
+     * The image in the given size, null for the posts from before it was uploaded.
+     */
+    public ParseFile getImage(ImageVariant variant) {
+        return getParseFile(variant.key);
+    }
+
+    public void setImage(ImageVariant variant, ParseFile parseFile) {
+        put(variant.key, parseFile);
+    }
+
+    /**
+     * The smallest image that covers a view whose longest edge is {@code targetEdge} pixels,
+     * the largest there is when none does.
+     */
+    public ParseFile getImageCovering(int targetEdge) {
+        for (ImageVariant variant : ImageVariant.covering(targetEdge)) {
+            ParseFile image = getImage(variant);
+            if (image != null) {
+                return image;
+            }
+        }
+        return null;
+    }
+
     public ParseUser getAuthor() {
         return getParseUser(KEY_AUTHOR);
     }
@@ -44,21 +71,22 @@ public class Post extends ParseObject {
         put(KEY_AUTHOR, user);
     }
 
+    /**
+     * The cached count of the {@link ParseLikeCounter} shards, with the likes of the user that
+     * the {@link LikeAggregator} didn't save yet.
+     */
     public int getLikesCount() {
-        return getInt(KEY_LIKES_COUNT);
+        return ParseLikeCounter.getInstance().getLikesCount(this)
+                + LikeAggregator.getInstance().getPendingLikesDelta(this);
     }
 
+    /**
+     * @param isUpdate whether the user (un)liked the post and it has to be saved, the
+     *                 {@link LikeAggregator} saves it together with the other likes
+     */
     public void setIsLiked(boolean liked, boolean isUpdate) {
         if (isUpdate) {
-            ParseRelation<ParseObject> relation = this.getRelation(Post.KEY_LIKED_BY);
-            if (liked) {
-                relation.add(ParseUser.getCurrentUser());
-                this.increment(KEY_LIKES_COUNT);
-            } else {
-                relation.remove(ParseUser.getCurrentUser());
-                this.increment(KEY_LIKES_COUNT, -1);
-            }
-            this.saveEventually();
+            LikeAggregator.getInstance().setLiked(this, liked);
         }
         isLiked = liked;
     }
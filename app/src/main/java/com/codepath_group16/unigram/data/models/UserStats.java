@@ -0,0 +1,53 @@
+package com.codepath_group16.unigram.data.models;
+
+import com.parse.ParseACL;
+import com.parse.ParseClassName;
+import com.parse.ParseObject;
+import com.parse.ParseUser;
+
+/**
+ * The post and like totals of a user, so a profile doesn't count them with queries. The user
+ * points to it with {@link #KEY_USER_STATS}.
+ * <p>
+ * A user can only write their own row, while the likes are added by whoever likes the posts,
+ * so the totals are kept in a row of their own that everyone can write.
+ */
+@ParseClassName("UserStats")
+public class UserStats extends ParseObject {
+
+    /**
+     * Key of the pointer from the user to their stats.
+     */
+    public static final String KEY_USER_STATS = "stats";
+    public static final String KEY_USER = "user";
+    public static final String KEY_POSTS_COUNT = "postsCount";
+    public static final String KEY_LIKES_COUNT = "likesCount";
+
+    public UserStats() {
+    }
+
+    public UserStats(ParseUser user, int postsCount, int likesCount) {
+        put(KEY_USER, user);
+        put(KEY_POSTS_COUNT, postsCount);
+        put(KEY_LIKES_COUNT, likesCount);
+        ParseACL acl = new ParseACL();
+        acl.setPublicReadAccess(true);
+        acl.setPublicWriteAccess(true);
+        setACL(acl);
+    }
+
+    /**
+     * The stats of the user, null when the user has none yet.
+     */
+    public static UserStats of(ParseUser user) {
+        return (UserStats) user.getParseObject(KEY_USER_STATS);
+    }
+
+    public int getPostsCount() {
+        return getInt(KEY_POSTS_COUNT);
+    }
+
+    public int getLikesCount() {
+        return getInt(KEY_LIKES_COUNT);
+    }
+}
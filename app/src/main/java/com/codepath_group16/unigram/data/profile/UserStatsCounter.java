@@ -0,0 +1,94 @@
+package com.codepath_group16.unigram.data.profile;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import com.codepath_group16.unigram.data.models.Like;
+import com.codepath_group16.unigram.data.models.Post;
+import com.codepath_group16.unigram.data.models.UserStats;
+import com.parse.ParseException;
+import com.parse.ParseQuery;
+import com.parse.ParseUser;
+
+/**
+ * Keeps the {@link UserStats} totals up to date as posts are shared and liked.
+ * <p>
+ * The stats of a user are created with the totals counted once from their posts and
+ * {@link Like}s, so the users who shared before there were stats start from the right totals.
+ */
+public final class UserStatsCounter {
+
+    private static final String TAG = "UserStatsCounter";
+
+    private UserStatsCounter() {
+    }
+
+    /**
+     * Counts a post shared by the current user, creating their stats the first time.
+     */
+    @WorkerThread
+    public static synchronized void countPost() throws ParseException {
+        ParseUser user = ParseUser.getCurrentUser();
+        if (user == null) {
+            return;
+        }
+        UserStats stats = UserStats.of(user);
+        if (stats == null) {
+            // Counted with the other posts of the user, the post was saved first
+            getOrCreate(user);
+            return;
+        }
+        stats.increment(UserStats.KEY_POSTS_COUNT);
+        stats.save();
+    }
+
+    /**
+     * The stats of {@code user}, the current user, created the first time with one count query of
+     * their posts and one of the likes of their posts.
+     */
+    @NonNull
+    @WorkerThread
+    public static synchronized UserStats getOrCreate(@NonNull ParseUser user) throws ParseException {
+        UserStats stats = UserStats.of(user);
+        if (stats == null) {
+            // Another device of the user may have created them since the user was loaded
+            user.fetch();
+            stats = UserStats.of(user);
+        }
+        if (stats != null) {
+            return stats;
+        }
+        int posts = postsOf(user).count();
+        int likes = ParseQuery.getQuery(Like.class)
+                .whereMatchesQuery(Like.KEY_POST, postsOf(user))
+                .count();
+        stats = new UserStats(user, posts, likes);
+        stats.save();
+        user.put(UserStats.KEY_USER_STATS, stats);
+        user.save();
+        Log.i(TAG, String.format("Created the stats of %s with %d posts and %d likes",
+                user.getObjectId(), posts, likes));
+        return stats;
+    }
+
+    /**
+     * Adds a like of {@code post} to the stats of its author, to be saved with the like. Null
+     * when the author has no stats yet, the like is counted when they are created.
+     */
+    @Nullable
+    public static UserStats countLike(@NonNull Post post, int delta) {
+        ParseUser author = post.getAuthor();
+        UserStats stats = author != null ? UserStats.of(author) : null;
+        if (stats != null) {
+            stats.increment(UserStats.KEY_LIKES_COUNT, delta);
+        }
+        return stats;
+    }
+
+    private static ParseQuery<Post> postsOf(ParseUser user) {
+        return ParseQuery.getQuery(Post.class).whereEqualTo(Post.KEY_AUTHOR, user);
+    }
+}
@@ -0,0 +1,83 @@
+package com.codepath_group16.unigram.data.upload;
+
+import android.content.Context;
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The photos captured to be posted. They are written once by the camera into private storage
+ * and handed to the {@link UploadQueue} as they are, which deletes them once the post is done
+ * with.
+ */
+public final class CaptureFiles {
+
+    private static final String TAG = "CaptureFiles";
+    private static final String DIRECTORY = "captures";
+    /**
+     * Captures not queued for this long were abandoned on the preview screen.
+     */
+    private static final long ABANDONED_AFTER_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private CaptureFiles() {
+    }
+
+    /**
+     * A new file for the camera to write a photo into.
+     */
+    @NonNull
+    public static File newFile(@NonNull Context context) {
+        File directory = directory(context);
+        if (!directory.exists() && !directory.mkdirs()) {
+            Log.e(TAG, "Unable to create " + directory);
+        }
+        return new File(directory, "capture-" + System.currentTimeMillis() + ".jpg");
+    }
+
+    /**
+     * Whether the image is a photo the app captured, rather than one picked from the gallery.
+     */
+    public static boolean isCapture(@NonNull Context context, @NonNull Uri image) {
+        if (!"file".equals(image.getScheme()) || image.getPath() == null) {
+            return false;
+        }
+        File parent = new File(image.getPath()).getParentFile();
+        return directory(context).equals(parent);
+    }
+
+    /**
+     * Deletes the photo if the app captured it.
+     */
+    public static void delete(@NonNull Context context, @NonNull Uri image) {
+        if (isCapture(context, image)) {
+            //noinspection ResultOfMethodCallIgnored
+            new File(image.getPath()).delete();
+        }
+    }
+
+    /**
+     * Deletes the abandoned captures that no post in {@code inUse} uploads.
+     */
+    static void deleteAbandoned(@NonNull Context context, @NonNull Collection<String> inUse) {
+        File[] files = directory(context).listFiles();
+        if (files == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (File file : files) {
+            if (!inUse.contains(Uri.fromFile(file).toString())
+                    && now - file.lastModified() > ABANDONED_AFTER_MILLIS && file.delete()) {
+                Log.v(TAG, "Deleted abandoned " + file);
+            }
+        }
+    }
+
+    private static File directory(Context context) {
+        return new File(context.getFilesDir(), DIRECTORY);
+    }
+}
@@ -0,0 +1,190 @@
+package com.codepath_group16.unigram.data.upload;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.codepath_group16.unigram.data.models.ImageVariant;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A post waiting in the {@link UploadQueue}. Everything needed to finish the post after a
+ * process restart is kept here and written to disk by the {@link UploadStore}.
+ */
+public class PendingPost {
+
+    private static final String KEY_ID = "id";
+    private static final String KEY_CAPTION = "caption";
+    private static final String KEY_SOURCE_URI = "sourceUri";
+    private static final String KEY_IMAGE_PATH = "imagePath";
+    private static final String KEY_MIME_TYPE = "mimeType";
+    private static final String KEY_AUTHOR_ID = "authorId";
+    private static final String KEY_ATTEMPTS = "attempts";
+    private static final String KEY_CREATED_AT = "createdAt";
+    private static final String KEY_UPLOAD_SESSION_URL = "uploadSessionUrl";
+    private static final String KEY_UPLOAD_OFFSET = "uploadOffset";
+    private static final String KEY_UPLOADED_NAME = "uploadedName";
+    private static final String KEY_UPLOADED_URL = "uploadedUrl";
+    private static final String KEY_VARIANTS = "variants";
+    private static final String KEY_VARIANT_PATH = "path";
+
+    final String id;
+    final String caption;
+    final String sourceUri;
+    final String authorId;
+    final long createdAt;
+    /**
+     * Path of the encoded image, null until the source has been encoded.
+     */
+    @Nullable
+    volatile String imagePath;
+    @Nullable
+    volatile String mimeType;
+    volatile int attempts;
+    /**
+     * Resumable upload session of the image and how many bytes the server acknowledged.
+     */
+    @Nullable
+    volatile String uploadSessionUrl;
+    volatile long uploadOffset;
+    /**
+     * Name and url of the image once the server has all of it, so a retry only has to save
+     * the post itself.
+     */
+    @Nullable
+    volatile String uploadedName;
+    @Nullable
+    volatile String uploadedUrl;
+    /**
+     * The smaller variants encoded with the image, by the {@link ImageVariant} they are.
+     */
+    final Map<ImageVariant, Variant> variants = new ConcurrentHashMap<>();
+
+    PendingPost(@NonNull String caption, @NonNull String sourceUri, @NonNull String authorId) {
+        this(UUID.randomUUID().toString(), caption, sourceUri, authorId, System.currentTimeMillis());
+    }
+
+    private PendingPost(String id, String caption, String sourceUri, String authorId, long createdAt) {
+        this.id = id;
+        this.caption = caption;
+        this.sourceUri = sourceUri;
+        this.authorId = authorId;
+        this.createdAt = createdAt;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getCaption() {
+        return caption;
+    }
+
+    JSONObject toJson() throws JSONException {
+        JSONObject json = new JSONObject();
+        json.put(KEY_ID, id);
+        json.put(KEY_CAPTION, caption);
+        json.put(KEY_SOURCE_URI, sourceUri);
+        json.put(KEY_AUTHOR_ID, authorId);
+        json.put(KEY_CREATED_AT, createdAt);
+        json.put(KEY_ATTEMPTS, attempts);
+        if (imagePath != null) {
+            json.put(KEY_IMAGE_PATH, imagePath);
+            json.put(KEY_MIME_TYPE, mimeType);
+        }
+        if (uploadSessionUrl != null) {
+            json.put(KEY_UPLOAD_SESSION_URL, uploadSessionUrl);
+            json.put(KEY_UPLOAD_OFFSET, uploadOffset);
+        }
+        if (uploadedName != null) {
+            json.put(KEY_UPLOADED_NAME, uploadedName);
+            json.put(KEY_UPLOADED_URL, uploadedUrl);
+        }
+        if (!variants.isEmpty()) {
+            JSONObject variantsJson = new JSONObject();
+            for (Map.Entry<ImageVariant, Variant> variant : variants.entrySet()) {
+                variantsJson.put(variant.getKey().name(), variant.getValue().toJson());
+            }
+            json.put(KEY_VARIANTS, variantsJson);
+        }
+        return json;
+    }
+
+    static PendingPost fromJson(JSONObject json) throws JSONException {
+        PendingPost post = new PendingPost(
+                json.getString(KEY_ID),
+                json.getString(KEY_CAPTION),
+                json.getString(KEY_SOURCE_URI),
+                json.getString(KEY_AUTHOR_ID),
+                json.getLong(KEY_CREATED_AT)
+        );
+        post.attempts = json.optInt(KEY_ATTEMPTS);
+        if (json.has(KEY_IMAGE_PATH)) {
+            post.imagePath = json.getString(KEY_IMAGE_PATH);
+            post.mimeType = json.getString(KEY_MIME_TYPE);
+        }
+        if (json.has(KEY_UPLOAD_SESSION_URL)) {
+            post.uploadSessionUrl = json.getString(KEY_UPLOAD_SESSION_URL);
+            post.uploadOffset = json.getLong(KEY_UPLOAD_OFFSET);
+        }
+        if (json.has(KEY_UPLOADED_NAME)) {
+            post.uploadedName = json.getString(KEY_UPLOADED_NAME);
+            post.uploadedUrl = json.getString(KEY_UPLOADED_URL);
+        }
+        JSONObject variantsJson = json.optJSONObject(KEY_VARIANTS);
+        if (variantsJson != null) {
+            for (ImageVariant variant : ImageVariant.values()) {
+                if (variantsJson.has(variant.name())) {
+                    post.variants.put(variant, Variant.fromJson(variantsJson.getJSONObject(variant.name())));
+                }
+            }
+        }
+        return post;
+    }
+
+    /**
+     * A smaller variant of the image, uploaded as a single request once encoded.
+     */
+    static class Variant {
+        final String path;
+        @Nullable
+        volatile String uploadedName;
+        @Nullable
+        volatile String uploadedUrl;
+
+        Variant(@NonNull String path) {
+            this.path = path;
+        }
+
+        JSONObject toJson() throws JSONException {
+            JSONObject json = new JSONObject();
+            json.put(KEY_VARIANT_PATH, path);
+            if (uploadedName != null) {
+                json.put(KEY_UPLOADED_NAME, uploadedName);
+                json.put(KEY_UPLOADED_URL, uploadedUrl);
+            }
+            return json;
+        }
+
+        static Variant fromJson(JSONObject json) throws JSONException {
+            Variant variant = new Variant(json.getString(KEY_VARIANT_PATH));
+            if (json.has(KEY_UPLOADED_NAME)) {
+                variant.uploadedName = json.getString(KEY_UPLOADED_NAME);
+                variant.uploadedUrl = json.getString(KEY_UPLOADED_URL);
+            }
+            return variant;
+        }
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "PendingPost{id=" + id + ", attempts=" + attempts + ", imagePath=" + imagePath
+                + ", uploadOffset=" + uploadOffset + "}";
+    }
+}
@@ -0,0 +1,343 @@
+package com.codepath_group16.unigram.data.upload;
+
+import com.codepath_group16.unigram.metrics.Counter;
+import com.codepath_group16.unigram.metrics.Metrics;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Uploads a file in fixed size chunks so an interrupted upload can continue from the last chunk
+ * the server acknowledged instead of starting over.
+ * <p>
+ * The protocol follows the usual resumable upload conventions:
+ * <ul>
+ * <li>{@code POST endpoint} with {@code X-Upload-Content-Length} opens a session and returns
+ * its url in the {@code Location} header.</li>
+ * <li>{@code PUT session} with {@code Content-Range: bytes first-last/total} sends a chunk. The
+ * server answers {@code 308} with a {@code Range: bytes=0-last} header for the bytes it has,
+ * and {@code 200} or {@code 201} with the file json once everything was received.</li>
+ * <li>{@code PUT session} with {@code Content-Range: bytes * /total} and no body asks the
+ * server how much it has, which is how a new attempt finds where to continue.</li>
+ * <li>{@code 404} or {@code 410} for a session means the server dropped it, which is reported
+ * as a {@link SessionExpiredException}. So is a session that has every byte but still doesn't
+ * answer with the file.</li>
+ * </ul>
+ * Chunks are read from a memory mapped view of the file so the image is never copied in full on
+ * the heap. This class does blocking network I/O and must not be called on the main thread.
+ */
+public class ResumableUploader {
+
+    public static final int DEFAULT_CHUNK_SIZE = 256 * 1024;
+
+    static final int HTTP_RESUME_INCOMPLETE = 308;
+    private static final int HTTP_GONE = 410;
+    /**
+     * The counter of the bytes written to the server, by every upload.
+     */
+    static final String BYTES_METRIC = "upload.bytes";
+    private static final int WRITE_SLICE_SIZE = 16 * 1024;
+    private static final int TIMEOUT_MILLIS = 30_000;
+    private static final Counter BYTES_SENT = Metrics.getInstance().counter(BYTES_METRIC);
+
+    private final URL mEndpoint;
+    private final int mChunkSize;
+    private final Map<String, String> mHeaders = new LinkedHashMap<>();
+
+    public ResumableUploader(URL endpoint) {
+        this(endpoint, DEFAULT_CHUNK_SIZE);
+    }
+
+    public ResumableUploader(URL endpoint, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+        }
+        mEndpoint = endpoint;
+        mChunkSize = chunkSize;
+    }
+
+    /**
+     * Adds a header sent with every request, for example the Parse application id and the
+     * session token of the user.
+     */
+    public ResumableUploader addHeader(String name, String value) {
+        mHeaders.put(name, value);
+        return this;
+    }
+
+    /**
+     * Uploads {@code file}, continuing {@code session} when it has already been started by a
+     * previous attempt. The session is updated after each acknowledged chunk and reported to
+     * {@code listener}, so the caller can save it and pass it back after a failure.
+     *
+     * @return the file as stored by the server
+     * @throws IOException when the connection fails, after which the upload can be resumed
+     */
+    public UploadedFile upload(File file, String fileName, String contentType, Session session,
+                               Listener listener) throws IOException {
+        long total = file.length();
+        if (total == 0) {
+            throw new IOException("Nothing to upload in " + file);
+        }
+        if (session.url == null) {
+            session.url = startSession(fileName, contentType, total);
+            session.offset = 0;
+            listener.onCheckpoint(session);
+        } else {
+            Response status = queryStatus(session.url, total);
+            if (status.file != null) {
+                listener.onProgress(total, total);
+                return status.file;
+            }
+            if (status.acknowledged >= total) {
+                throw new SessionExpiredException("Upload session has every byte but no file");
+            }
+            if (status.acknowledged != session.offset) {
+                session.offset = status.acknowledged;
+                listener.onCheckpoint(session);
+            }
+        }
+        listener.onProgress(session.offset, total);
+
+        try (RandomAccessFile input = new RandomAccessFile(file, "r");
+             FileChannel channel = input.getChannel()) {
+            while (true) {
+                long length = Math.min(mChunkSize, total - session.offset);
+                MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, session.offset, length);
+                Response response = sendChunk(session.url, chunk, session.offset, total, listener);
+                if (response.file != null) {
+                    session.offset = total;
+                    listener.onProgress(total, total);
+                    return response.file;
+                }
+                if (response.acknowledged <= session.offset) {
+                    throw new IOException("Server did not acknowledge the chunk at " + session.offset);
+                }
+                session.offset = response.acknowledged;
+                listener.onCheckpoint(session);
+                listener.onProgress(session.offset, total);
+                if (session.offset >= total) {
+                    // Every byte is acknowledged, there is no chunk left to send for the file
+                    Response status = queryStatus(session.url, total);
+                    if (status.file != null) {
+                        listener.onProgress(total, total);
+                        return status.file;
+                    }
+                    throw new SessionExpiredException("Upload session has every byte but no file");
+                }
+            }
+        }
+    }
+
+    private URL startSession(String fileName, String contentType, long total) throws IOException {
+        HttpURLConnection connection = open(mEndpoint, "POST");
+        try {
+            connection.setRequestProperty("X-Upload-Content-Type", contentType);
+            connection.setRequestProperty("X-Upload-Content-Length", String.valueOf(total));
+            connection.setRequestProperty("Content-Type", "application/json; charset=utf-8");
+            byte[] body;
+            try {
+                body = new JSONObject().put("name", fileName).toString().getBytes(StandardCharsets.UTF_8);
+            } catch (JSONException e) {
+                throw new IOException(e);
+            }
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(body.length);
+            try (OutputStream output = connection.getOutputStream()) {
+                output.write(body);
+            }
+            int code = connection.getResponseCode();
+            String location = connection.getHeaderField("Location");
+            if ((code != HttpURLConnection.HTTP_OK && code != HttpURLConnection.HTTP_CREATED) || location == null) {
+                throw new IOException("Unable to start upload session, HTTP " + code);
+            }
+            return new URL(mEndpoint, location);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private Response queryStatus(URL session, long total) throws IOException {
+        HttpURLConnection connection = open(session, "PUT");
+        try {
+            connection.setRequestProperty("Content-Range", "bytes */" + total);
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(0);
+            connection.getOutputStream().close();
+            return readResponse(connection);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private Response sendChunk(URL session, ByteBuffer chunk, long offset, long total,
+                               Listener listener) throws IOException {
+        int length = chunk.remaining();
+        HttpURLConnection connection = open(session, "PUT");
+        try {
+            connection.setRequestProperty("Content-Range",
+                    String.format(Locale.US, "bytes %d-%d/%d", offset, offset + length - 1, total));
+            connection.setRequestProperty("Content-Type", "application/octet-stream");
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(length);
+            byte[] slice = new byte[Math.min(WRITE_SLICE_SIZE, Math.max(length, 1))];
+            long sent = offset;
+            try (OutputStream output = connection.getOutputStream()) {
+                while (chunk.hasRemaining()) {
+                    int count = Math.min(slice.length, chunk.remaining());
+                    chunk.get(slice, 0, count);
+                    output.write(slice, 0, count);
+                    BYTES_SENT.add(count);
+                    sent += count;
+                    listener.onProgress(sent, total);
+                }
+            }
+            return readResponse(connection);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private Response readResponse(HttpURLConnection connection) throws IOException {
+        int code = connection.getResponseCode();
+        if (code == HTTP_RESUME_INCOMPLETE) {
+            return Response.incomplete(parseRange(connection.getHeaderField("Range")));
+        }
+        if (code == HttpURLConnection.HTTP_OK || code == HttpURLConnection.HTTP_CREATED) {
+            try (InputStream input = connection.getInputStream()) {
+                JSONObject json = new JSONObject(readFully(input));
+                return Response.complete(new UploadedFile(json.getString("name"), json.getString("url")));
+            } catch (JSONException e) {
+                throw new IOException("Invalid upload response", e);
+            }
+        }
+        if (code == HttpURLConnection.HTTP_NOT_FOUND || code == HTTP_GONE) {
+            throw new SessionExpiredException("Upload session expired, HTTP " + code);
+        }
+        throw new IOException("Upload failed, HTTP " + code);
+    }
+
+    private HttpURLConnection open(URL url, String method) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod(method);
+        connection.setConnectTimeout(TIMEOUT_MILLIS);
+        connection.setReadTimeout(TIMEOUT_MILLIS);
+        connection.setUseCaches(false);
+        for (Map.Entry<String, String> header : mHeaders.entrySet()) {
+            connection.setRequestProperty(header.getKey(), header.getValue());
+        }
+        return connection;
+    }
+
+    /**
+     * Returns the number of bytes the server has from a {@code Range: bytes=0-last} header. A
+     * missing header means nothing was received yet.
+     */
+    static long parseRange(String range) throws IOException {
+        if (range == null) {
+            return 0;
+        }
+        int dash = range.lastIndexOf('-');
+        if (!range.startsWith("bytes=") || dash < 0) {
+            throw new IOException("Invalid Range header: " + range);
+        }
+        try {
+            return Long.parseLong(range.substring(dash + 1).trim()) + 1;
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid Range header: " + range, e);
+        }
+    }
+
+    private static String readFully(InputStream input) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int count;
+        while ((count = input.read(buffer)) != -1) {
+            output.write(buffer, 0, count);
+        }
+        return new String(output.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Where an upload stands. The url is null until the session has been started.
+     */
+    public static class Session {
+        public URL url;
+        public long offset;
+
+        public Session() {
+        }
+
+        public Session(URL url, long offset) {
+            this.url = url;
+            this.offset = offset;
+        }
+    }
+
+    public static class UploadedFile {
+        public final String name;
+        public final String url;
+
+        UploadedFile(String name, String url) {
+            this.name = name;
+            this.url = url;
+        }
+    }
+
+    /**
+     * The server doesn't know the session anymore, it expired or was never started there. It
+     * can't be continued, the upload has to start again with a new {@link Session}.
+     */
+    public static class SessionExpiredException extends IOException {
+        SessionExpiredException(String message) {
+            super(message);
+        }
+    }
+
+    public interface Listener {
+        /**
+         * Called with the number of bytes written to the connection so far.
+         */
+        void onProgress(long bytesSent, long totalBytes);
+
+        /**
+         * Called whenever the server acknowledged more bytes, the session should be saved so a
+         * later attempt can continue from there.
+         */
+        void onCheckpoint(Session session);
+    }
+
+    private static class Response {
+        final long acknowledged;
+        final UploadedFile file;
+
+        private Response(long acknowledged, UploadedFile file) {
+            this.acknowledged = acknowledged;
+            this.file = file;
+        }
+
+        static Response incomplete(long acknowledged) {
+            return new Response(acknowledged, null);
+        }
+
+        static Response complete(UploadedFile file) {
+            return new Response(-1, file);
+        }
+    }
+}
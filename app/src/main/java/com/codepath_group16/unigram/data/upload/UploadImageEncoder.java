@@ -0,0 +1,443 @@
+package com.codepath_group16.unigram.data.upload;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Debug;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.exifinterface.media.ExifInterface;
+
+import com.codepath_group16.unigram.metrics.Metrics;
+import com.codepath_group16.unigram.metrics.Timer;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Encodes a picked or captured image into a file that is ready to be uploaded as a
+ * {@link com.parse.ParseFile}.
+ * <p>
+ * The source is never decoded at full resolution: the bounds are read first, the image is
+ * decoded with a power of two sample size close to the requested max edge, scaled and rotated
+ * according to its EXIF orientation in a single pass and finally compressed straight into a file.
+ * Smaller variants of the same image are scaled from that bitmap, the source is decoded once.
+ */
+public class UploadImageEncoder {
+
+    public static final int DEFAULT_MAX_EDGE = 1080;
+    public static final int DEFAULT_QUALITY = 85;
+
+    private static final String TAG = "UploadImageEncoder";
+    private static final Timer ENCODE_TIMER = Metrics.getInstance().timer("upload.encode");
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private final ContentResolver mContentResolver;
+    private final File mOutputDirectory;
+    private int mMaxEdge = DEFAULT_MAX_EDGE;
+    private int mQuality = DEFAULT_QUALITY;
+    private Format mFormat = Format.JPEG;
+    private boolean mPassThrough;
+
+    public UploadImageEncoder(@NonNull Context context) {
+        this(context.getContentResolver(), new File(context.getCacheDir(), "uploads"));
+    }
+
+    public UploadImageEncoder(@NonNull ContentResolver contentResolver, @NonNull File outputDirectory) {
+        mContentResolver = contentResolver;
+        mOutputDirectory = outputDirectory;
+    }
+
+    /**
+     * Sets the length in pixels of the longest edge of the encoded image. Images that are
+     * already smaller than this are never upscaled.
+     */
+    public UploadImageEncoder setMaxEdge(int maxEdge) {
+        if (maxEdge <= 0) {
+            throw new IllegalArgumentException("maxEdge must be positive: " + maxEdge);
+        }
+        mMaxEdge = maxEdge;
+        return this;
+    }
+
+    /**
+     * Sets the compression quality, from 0 to 100.
+     */
+    public UploadImageEncoder setQuality(int quality) {
+        if (quality < 0 || quality > 100) {
+            throw new IllegalArgumentException("quality must be between 0 and 100: " + quality);
+        }
+        mQuality = quality;
+        return this;
+    }
+
+    public UploadImageEncoder setFormat(@NonNull Format format) {
+        mFormat = format;
+        return this;
+    }
+
+    /**
+     * Lets a source that is already in the format and no larger than the max edge be copied
+     * instead of decoded and compressed again. The copy keeps all of the metadata of the
+     * source, so only sources with nothing private in it should pass through, like the photos
+     * the app captured itself.
+     */
+    public UploadImageEncoder setPassThrough(boolean passThrough) {
+        mPassThrough = passThrough;
+        return this;
+    }
+
+    /**
+     * Decodes the image behind {@code source} and writes the encoded result into a new file of
+     * the output directory. This does disk I/O and must not be called on the main thread.
+     */
+    @NonNull
+    public EncodedImage encode(@NonNull Uri source) throws IOException {
+        return encode(source, new int[]{mMaxEdge}).get(0);
+    }
+
+    /**
+     * Decodes the image behind {@code source} once and writes a file for each of the max
+     * edges, in the same order. Images are never upscaled, so variants may end up the same size.
+     * With {@link #setPassThrough} the source is not decoded at all when every variant can be a
+     * copy of it.
+     */
+    @NonNull
+    public List<EncodedImage> encode(@NonNull Uri source, @NonNull int[] maxEdges) throws IOException {
+        long startedAt = ENCODE_TIMER.start();
+        try {
+            return encodeVariants(source, maxEdges);
+        } finally {
+            ENCODE_TIMER.stop(startedAt);
+        }
+    }
+
+    private List<EncodedImage> encodeVariants(Uri source, int[] maxEdges) throws IOException {
+        long start = SystemClock.elapsedRealtime();
+        MemorySampler memory = new MemorySampler();
+        int largestEdge = 0;
+        for (int maxEdge : maxEdges) {
+            if (maxEdge <= 0) {
+                throw new IllegalArgumentException("maxEdge must be positive: " + maxEdge);
+            }
+            largestEdge = Math.max(largestEdge, maxEdge);
+        }
+
+        // Read only the dimensions, no pixels are allocated here
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        try (InputStream input = open(source)) {
+            BitmapFactory.decodeStream(input, null, options);
+        }
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            throw new IOException("Unable to decode image bounds of " + source);
+        }
+        int sourceWidth = options.outWidth;
+        int sourceHeight = options.outHeight;
+
+        int orientation;
+        try (InputStream input = open(source)) {
+            orientation = new ExifInterface(input).getAttributeInt(
+                    ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL);
+        }
+
+        // Sources already in the output format and small enough are copied as they are
+        boolean[] passThrough = new boolean[maxEdges.length];
+        int decodeEdge = 0;
+        for (int i = 0; i < maxEdges.length; i++) {
+            passThrough[i] = mPassThrough && mFormat.mimeType.equals(options.outMimeType)
+                    && Math.max(sourceWidth, sourceHeight) <= maxEdges[i];
+            if (!passThrough[i]) {
+                decodeEdge = Math.max(decodeEdge, maxEdges[i]);
+            }
+        }
+
+        Bitmap largest = null;
+        if (decodeEdge > 0) {
+            options = new BitmapFactory.Options();
+            options.inSampleSize = calculateInSampleSize(sourceWidth, sourceHeight, decodeEdge);
+            options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+            Bitmap sampled;
+            try (InputStream input = open(source)) {
+                sampled = BitmapFactory.decodeStream(input, null, options);
+            }
+            if (sampled == null) {
+                throw new IOException("Unable to decode image " + source);
+            }
+            memory.sample();
+
+            largest = transform(sampled, orientation, decodeEdge);
+            memory.sample();
+        }
+
+        if (!mOutputDirectory.exists() && !mOutputDirectory.mkdirs()) {
+            if (largest != null) {
+                largest.recycle();
+            }
+            throw new IOException("Unable to create " + mOutputDirectory);
+        }
+        // Encodes run concurrently on the image pool, and retries encode again, so a time based
+        // name could be taken by another encode of the same millisecond
+        String name = "post-" + UUID.randomUUID();
+        List<File> written = new ArrayList<>(maxEdges.length);
+        List<EncodedImage> encoded = new ArrayList<>(maxEdges.length);
+        try {
+            for (int i = 0; i < maxEdges.length; i++) {
+                File output = new File(mOutputDirectory,
+                        name + (maxEdges.length > 1 ? "-" + maxEdges[i] : "") + "." + mFormat.extension);
+                written.add(output);
+                int width;
+                int height;
+                if (passThrough[i]) {
+                    copy(source, output);
+                    // The orientation stays in the EXIF of the copy, viewers apply it
+                    boolean transposed = isTransposed(orientation);
+                    width = transposed ? sourceHeight : sourceWidth;
+                    height = transposed ? sourceWidth : sourceHeight;
+                } else {
+                    Bitmap bitmap = scaleDown(largest, maxEdges[i]);
+                    width = bitmap.getWidth();
+                    height = bitmap.getHeight();
+                    try {
+                        compress(bitmap, output, source);
+                    } finally {
+                        memory.sample();
+                        if (bitmap != largest) {
+                            bitmap.recycle();
+                        }
+                    }
+                }
+                encoded.add(new EncodedImage(
+                        output,
+                        mFormat.mimeType,
+                        width,
+                        height,
+                        output.length(),
+                        memory.getPeakBytes(),
+                        SystemClock.elapsedRealtime() - start
+                ));
+            }
+        } catch (IOException e) {
+            for (File output : written) {
+                //noinspection ResultOfMethodCallIgnored
+                output.delete();
+            }
+            throw e;
+        } finally {
+            if (largest != null) {
+                largest.recycle();
+            }
+        }
+
+        Log.i(TAG, String.format("Encoded %dx%d %s into %s", sourceWidth, sourceHeight, source, encoded));
+        return encoded;
+    }
+
+    private void copy(Uri source, File output) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream input = open(source);
+             OutputStream stream = new FileOutputStream(output)) {
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                stream.write(buffer, 0, read);
+            }
+        }
+    }
+
+    private static boolean isTransposed(int orientation) {
+        return orientation == ExifInterface.ORIENTATION_ROTATE_90
+                || orientation == ExifInterface.ORIENTATION_ROTATE_270
+                || orientation == ExifInterface.ORIENTATION_TRANSPOSE
+                || orientation == ExifInterface.ORIENTATION_TRANSVERSE;
+    }
+
+    private void compress(Bitmap bitmap, File output, Uri source) throws IOException {
+        try (OutputStream stream = new BufferedOutputStream(new FileOutputStream(output), BUFFER_SIZE)) {
+            if (!bitmap.compress(mFormat.compressFormat(), mQuality, stream)) {
+                throw new IOException("Unable to compress image " + source);
+            }
+        }
+    }
+
+    /**
+     * The bitmap scaled so its longest edge is at most {@code maxEdge}, itself when it already is.
+     */
+    private static Bitmap scaleDown(Bitmap bitmap, int maxEdge) {
+        int longestEdge = Math.max(bitmap.getWidth(), bitmap.getHeight());
+        if (longestEdge <= maxEdge) {
+            return bitmap;
+        }
+        float scale = (float) maxEdge / longestEdge;
+        return Bitmap.createScaledBitmap(bitmap, Math.round(bitmap.getWidth() * scale),
+                Math.round(bitmap.getHeight() * scale), true);
+    }
+
+    private InputStream open(Uri source) throws FileNotFoundException {
+        InputStream input = mContentResolver.openInputStream(source);
+        if (input == null) {
+            throw new FileNotFoundException("Unable to open " + source);
+        }
+        return input;
+    }
+
+    /**
+     * Scales the sampled bitmap down to the max edge and applies the EXIF orientation with a
+     * single matrix so only one extra bitmap is allocated.
+     */
+    private static Bitmap transform(Bitmap sampled, int orientation, int maxEdge) {
+        Matrix matrix = new Matrix();
+
+        int longestEdge = Math.max(sampled.getWidth(), sampled.getHeight());
+        if (longestEdge > maxEdge) {
+            float scale = (float) maxEdge / longestEdge;
+            matrix.postScale(scale, scale);
+        }
+
+        switch (orientation) {
+            case ExifInterface.ORIENTATION_FLIP_HORIZONTAL:
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_180:
+                matrix.postRotate(180);
+                break;
+            case ExifInterface.ORIENTATION_FLIP_VERTICAL:
+                matrix.postScale(1, -1);
+                break;
+            case ExifInterface.ORIENTATION_TRANSPOSE:
+                matrix.postRotate(90);
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_90:
+                matrix.postRotate(90);
+                break;
+            case ExifInterface.ORIENTATION_TRANSVERSE:
+                matrix.postRotate(-90);
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_270:
+                matrix.postRotate(-90);
+                break;
+            default:
+                break;
+        }
+
+        if (matrix.isIdentity()) {
+            return sampled;
+        }
+        Bitmap transformed = Bitmap.createBitmap(
+                sampled, 0, 0, sampled.getWidth(), sampled.getHeight(), matrix, true);
+        if (transformed != sampled) {
+            sampled.recycle();
+        }
+        return transformed;
+    }
+
+    /**
+     * Returns the largest power of two sample size that still keeps the longest edge of the
+     * decoded image at or above {@code maxEdge}, so the final scale never has to upscale.
+     */
+    static int calculateInSampleSize(int width, int height, int maxEdge) {
+        int longestEdge = Math.max(width, height);
+        int inSampleSize = 1;
+        while (longestEdge / (inSampleSize * 2) >= maxEdge) {
+            inSampleSize *= 2;
+        }
+        return inSampleSize;
+    }
+
+    public enum Format {
+        JPEG("jpg", "image/jpeg"),
+        WEBP("webp", "image/webp");
+
+        final String extension;
+        final String mimeType;
+
+        Format(String extension, String mimeType) {
+            this.extension = extension;
+            this.mimeType = mimeType;
+        }
+
+        @SuppressWarnings("deprecation")
+        Bitmap.CompressFormat compressFormat() {
+            if (this == JPEG) {
+                return Bitmap.CompressFormat.JPEG;
+            }
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+                return Bitmap.CompressFormat.WEBP_LOSSY;
+            }
+            return Bitmap.CompressFormat.WEBP;
+        }
+    }
+
+    /**
+     * Result of {@link #encode(Uri)}, along with the numbers we need to check the encoder.
+     */
+    public static class EncodedImage {
+        public final File file;
+        public final String mimeType;
+        public final int width;
+        public final int height;
+        public final long sizeBytes;
+        /**
+         * The most memory the app used during the encode, Java and native heap together, as the
+         * pixels of bitmaps are on the native heap from Android 8.
+         */
+        public final long peakMemoryBytes;
+        public final long encodeMillis;
+
+        EncodedImage(File file, String mimeType, int width, int height, long sizeBytes,
+                     long peakMemoryBytes, long encodeMillis) {
+            this.file = file;
+            this.mimeType = mimeType;
+            this.width = width;
+            this.height = height;
+            this.sizeBytes = sizeBytes;
+            this.peakMemoryBytes = peakMemoryBytes;
+            this.encodeMillis = encodeMillis;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return String.format("%dx%d %s, %d bytes, peak Java + native heap %d KB, %d ms",
+                    width, height, mimeType, sizeBytes, peakMemoryBytes / 1024, encodeMillis);
+        }
+    }
+
+    /**
+     * Keeps the highest memory usage seen between the samples taken during an encode. The Java
+     * heap alone would miss the decoded bitmaps, which are allocated on the native heap from
+     * Android 8.
+     */
+    private static class MemorySampler {
+        private final Runtime mRuntime = Runtime.getRuntime();
+        private long mPeakBytes;
+
+        MemorySampler() {
+            sample();
+        }
+
+        void sample() {
+            long javaHeapBytes = mRuntime.totalMemory() - mRuntime.freeMemory();
+            mPeakBytes = Math.max(mPeakBytes, javaHeapBytes + Debug.getNativeHeapAllocatedSize());
+        }
+
+        long getPeakBytes() {
+            return mPeakBytes;
+        }
+    }
+}
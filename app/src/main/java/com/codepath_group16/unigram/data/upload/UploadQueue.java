@@ -0,0 +1,689 @@
+package com.codepath_group16.unigram.data.upload;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.NetworkInfo;
+import android.net.NetworkRequest;
+import android.net.Uri;
+import android.text.TextUtils;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.codepath_group16.unigram.AppExecutors;
+import com.codepath_group16.unigram.BuildConfig;
+import com.codepath_group16.unigram.ProgressChannel;
+import com.codepath_group16.unigram.UnigramApplication;
+import com.codepath_group16.unigram.data.models.ImageVariant;
+import com.codepath_group16.unigram.data.models.Post;
+import com.codepath_group16.unigram.data.profile.UserStatsCounter;
+import com.codepath_group16.unigram.metrics.Counter;
+import com.codepath_group16.unigram.metrics.Metrics;
+import com.codepath_group16.unigram.metrics.Timer;
+import com.parse.ParseDecoder;
+import com.parse.ParseException;
+import com.parse.ParseFile;
+import com.parse.ParseUser;
+import com.parse.SaveCallback;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Durable queue of posts waiting to be uploaded.
+ * <p>
+ * {@link #enqueue(String, Uri, ParseUser)} only records the post in memory and hands the disk
+ * write to a background thread, so it is safe to call from the main thread. Each post is then
+ * encoded on the image pool of {@link AppExecutors} and uploaded on its network pool. Failed attempts are retried with an
+ * exponential backoff, and posts still pending when the process dies are picked up again by
+ * {@link #resume()}.
+ */
+public class UploadQueue {
+
+    public static final int DEFAULT_CONCURRENCY = 2;
+    static final int MAX_ATTEMPTS = 8;
+    static final long INITIAL_BACKOFF_MILLIS = TimeUnit.SECONDS.toMillis(2);
+    static final long MAX_BACKOFF_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    private static final long NO_RETRY = -1;
+    /**
+     * Returned by {@link #prepare(PendingPost)} when the post can be uploaded.
+     */
+    private static final long READY_TO_SEND = -2;
+    // Share of the progress bar given to the image, the rest is for saving the post
+    private static final int IMAGE_PROGRESS_SHARE = 90;
+    /**
+     * Variants encoded from the same decode as the image and uploaded alongside it.
+     */
+    private static final List<ImageVariant> SMALLER_VARIANTS =
+            Arrays.asList(ImageVariant.MEDIUM, ImageVariant.THUMBNAIL);
+
+    private static final String TAG = "UploadQueue";
+    private static final Timer SEND_TIMER = Metrics.getInstance().timer("upload.send");
+    /**
+     * The bytes sent in single requests, {@link ResumableUploader} counts the chunks it sends.
+     */
+    private static final Counter BYTES_UPLOADED = Metrics.getInstance().counter(ResumableUploader.BYTES_METRIC);
+    private static final Counter UPLOADED = Metrics.getInstance().counter("upload.success");
+    private static final Counter RETRIED = Metrics.getInstance().counter("upload.retry");
+    private static final Counter FAILED = Metrics.getInstance().counter("upload.failure");
+    private static volatile UploadQueue sInstance;
+
+    private final Context mContext;
+    private final UploadStore mStore;
+    private final File mImageDirectory;
+    private final File mVariantDirectory;
+    private final AppExecutors mExecutors = AppExecutors.getInstance();
+    // Keeps the writes to the store in order
+    private final Executor mPersistence = mExecutors.newSerialExecutor();
+    private final List<Listener> mListeners = new CopyOnWriteArrayList<>();
+    // Parse reports the progress of an upload hundreds of times, the listeners hear of it once
+    // a frame
+    private final ProgressChannel mProgress = ProgressChannel.onMainThread((id, percent) -> {
+        for (Listener listener : mListeners) {
+            listener.onProgress(id, percent);
+        }
+    });
+
+    // Guarded by this
+    private final Map<String, PendingPost> mPending = new LinkedHashMap<>();
+    private final Map<String, ScheduledFuture<?>> mScheduled = new HashMap<>();
+    private final Set<String> mRunning = new HashSet<>();
+    /**
+     * Running posts asked to run again right away once their attempt ends, like when the
+     * network came back while it was failing.
+     */
+    private final Set<String> mRerunRequested = new HashSet<>();
+    private final Set<String> mWaitingForNetwork = new HashSet<>();
+    private boolean mResumed = false;
+
+    private UploadQueue(Context context) {
+        mContext = context.getApplicationContext();
+        mStore = new UploadStore(new File(mContext.getFilesDir(), "upload_queue.json"));
+        mImageDirectory = new File(mContext.getFilesDir(), "uploads");
+        mVariantDirectory = new File(mImageDirectory, "variants");
+        registerNetworkCallback();
+    }
+
+    public static UploadQueue getInstance(@NonNull Context context) {
+        if (sInstance == null) {
+            synchronized (UploadQueue.class) {
+                if (sInstance == null) {
+                    sInstance = new UploadQueue(context);
+                }
+            }
+        }
+        return sInstance;
+    }
+
+    /**
+     * Sets how many posts can be uploaded at the same time, the uploads share the network pool
+     * of {@link AppExecutors}.
+     */
+    public void setConcurrency(int concurrency) {
+        mExecutors.setNetworkThreads(concurrency);
+    }
+
+    public void addListener(@NonNull Listener listener) {
+        mListeners.add(listener);
+    }
+
+    public void removeListener(@NonNull Listener listener) {
+        mListeners.remove(listener);
+    }
+
+    /**
+     * Loads the posts left over by a previous process and schedules them again. Only the first
+     * call has any effect.
+     */
+    public void resume() {
+        synchronized (this) {
+            if (mResumed) {
+                return;
+            }
+            mResumed = true;
+        }
+        mPersistence.execute(() -> {
+            List<PendingPost> stored = mStore.read();
+            List<PendingPost> toSchedule = new ArrayList<>();
+            synchronized (this) {
+                for (PendingPost post : stored) {
+                    if (!mPending.containsKey(post.id)) {
+                        mPending.put(post.id, post);
+                        toSchedule.add(post);
+                    }
+                }
+            }
+            List<String> sources = new ArrayList<>(stored.size());
+            for (PendingPost post : stored) {
+                sources.add(post.sourceUri);
+            }
+            CaptureFiles.deleteAbandoned(mContext, sources);
+            Log.i(TAG, String.format("Resuming %d pending posts", toSchedule.size()));
+            for (PendingPost post : toSchedule) {
+                schedule(post, 0);
+            }
+        });
+    }
+
+    /**
+     * Queues a new post and returns its id right away. The image is read, encoded and uploaded
+     * in the background.
+     */
+    @NonNull
+    public String enqueue(@NonNull String caption, @NonNull Uri image, @NonNull ParseUser author) {
+        PendingPost post = new PendingPost(caption, image.toString(), author.getObjectId());
+        synchronized (this) {
+            mPending.put(post.id, post);
+        }
+        persist();
+        schedule(post, 0);
+        return post.id;
+    }
+
+    public synchronized boolean isPending(@NonNull String id) {
+        return mPending.containsKey(id);
+    }
+
+    private void schedule(PendingPost post, long delayMillis) {
+        synchronized (this) {
+            if (!mPending.containsKey(post.id)) {
+                return;
+            }
+            if (mRunning.contains(post.id)) {
+                // The attempt would schedule its own retry with its backoff, it runs again now
+                mRerunRequested.add(post.id);
+                return;
+            }
+            ScheduledFuture<?> previous = mScheduled.remove(post.id);
+            if (previous != null) {
+                previous.cancel(false);
+            }
+            mScheduled.put(post.id, mExecutors.scheduler().schedule(
+                    () -> mExecutors.image().execute(() -> run(post)), delayMillis, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    private void run(PendingPost post) {
+        synchronized (this) {
+            mScheduled.remove(post.id);
+            if (!mPending.containsKey(post.id) || !mRunning.add(post.id)) {
+                return;
+            }
+            mWaitingForNetwork.remove(post.id);
+        }
+        long retryDelay = NO_RETRY;
+        boolean rerun = false;
+        try {
+            retryDelay = prepare(post);
+            if (retryDelay == READY_TO_SEND) {
+                // Still running until the upload is done
+                mExecutors.network().execute(() -> send(post));
+            }
+        } catch (RuntimeException e) {
+            // Like a SecurityException once the grant to the picked image is revoked, the post
+            // would otherwise stay pending without anything running it
+            retryDelay = retryOrFail(post, e);
+        } finally {
+            if (retryDelay != READY_TO_SEND) {
+                rerun = endRun(post);
+            }
+        }
+        if (retryDelay != NO_RETRY && retryDelay != READY_TO_SEND) {
+            schedule(post, rerun ? 0 : retryDelay);
+        }
+    }
+
+    private void send(PendingPost post) {
+        long retryDelay;
+        long startedAt = SEND_TIMER.start();
+        boolean rerun;
+        try {
+            retryDelay = upload(post);
+        } catch (RuntimeException e) {
+            retryDelay = retryOrFail(post, e);
+        } finally {
+            SEND_TIMER.stop(startedAt);
+            rerun = endRun(post);
+        }
+        if (retryDelay != NO_RETRY) {
+            schedule(post, rerun ? 0 : retryDelay);
+        }
+    }
+
+    /**
+     * Marks the attempt at {@code post} as done and returns whether it was asked to run again
+     * meanwhile.
+     */
+    private synchronized boolean endRun(PendingPost post) {
+        mRunning.remove(post.id);
+        return mRerunRequested.remove(post.id);
+    }
+
+    /**
+     * Encodes what the post is missing, on the image pool, and returns {@link #READY_TO_SEND}
+     * when it can be uploaded, else the delay before the next attempt, or {@link #NO_RETRY}
+     * when the post is done with.
+     */
+    private long prepare(PendingPost post) {
+        boolean needsImage = post.imagePath == null || !new File(post.imagePath).exists();
+        if (post.uploadedName == null && needsImage) {
+            try {
+                List<ImageVariant> variants = new ArrayList<>(SMALLER_VARIANTS);
+                variants.add(0, ImageVariant.FULL);
+                Uri source = Uri.parse(post.sourceUri);
+                // The photos captured by the app are uploaded as the camera wrote them when
+                // they are small enough, without decoding them again
+                List<UploadImageEncoder.EncodedImage> encoded =
+                        new UploadImageEncoder(mContext.getContentResolver(), mImageDirectory)
+                                .setPassThrough(CaptureFiles.isCapture(mContext, source))
+                                .encode(source, maxEdges(variants));
+                post.imagePath = encoded.get(0).file.getAbsolutePath();
+                post.mimeType = encoded.get(0).mimeType;
+                for (int i = 1; i < encoded.size(); i++) {
+                    PendingPost.Variant previous = post.variants.get(variants.get(i));
+                    if (previous != null && previous.uploadedName != null) {
+                        // Already on the server from an earlier encode
+                        //noinspection ResultOfMethodCallIgnored
+                        encoded.get(i).file.delete();
+                    } else {
+                        post.variants.put(variants.get(i), new PendingPost.Variant(encoded.get(i).file.getAbsolutePath()));
+                    }
+                }
+                // A session started with the previous encode can't be continued with new bytes
+                post.uploadSessionUrl = null;
+                post.uploadOffset = 0;
+                persist();
+            } catch (FileNotFoundException e) {
+                // The picked image is gone, there is nothing left to retry with
+                Log.e(TAG, "Source of " + post + " no longer exists", e);
+                finish(post, e);
+                return NO_RETRY;
+            } catch (IOException e) {
+                return retryOrFail(post, e);
+            }
+        }
+
+        if (hasFile(post.imagePath)) {
+            encodeMissingVariants(post);
+        }
+
+        if (!isConnected()) {
+            synchronized (this) {
+                mWaitingForNetwork.add(post.id);
+            }
+            notifyWaitingForNetwork(post);
+            // The network callback restarts it as soon as we are online, this is only a fallback
+            return MAX_BACKOFF_MILLIS;
+        }
+        return READY_TO_SEND;
+    }
+
+    /**
+     * Runs one attempt at uploading the encoded post, on the network pool, and returns the delay
+     * before the next attempt, or {@link #NO_RETRY} when the post is done with.
+     */
+    private long upload(PendingPost post) {
+        try {
+            ParseFile parseImageFile = uploadImage(post);
+            Map<ImageVariant, ParseFile> variantFiles = uploadVariants(post);
+
+            Post parsePost = new Post();
+            parsePost.setCaption(post.caption);
+            parsePost.setImage(parseImageFile);
+            for (Map.Entry<ImageVariant, ParseFile> variant : variantFiles.entrySet()) {
+                parsePost.setImage(variant.getKey(), variant.getValue());
+            }
+            parsePost.setAuthor(ParseUser.createWithoutData(ParseUser.class, post.authorId));
+            await(parsePost::saveInBackground);
+        } catch (ParseException | IOException e) {
+            return retryOrFail(post, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return NO_RETRY;
+        }
+
+        try {
+            UserStatsCounter.countPost();
+        } catch (ParseException e) {
+            // Retrying would share the post twice, the count is only off by one
+            Log.e(TAG, "Unable to count " + post + " in the stats of its author", e);
+        }
+
+        notifyProgress(post, 100);
+        finish(post, null);
+        return NO_RETRY;
+    }
+
+    private static boolean hasFile(@Nullable String path) {
+        return path != null && new File(path).exists();
+    }
+
+    /**
+     * Encodes the variants the post doesn't have from its encoded image, for the posts queued
+     * before there were variants. The post is shared without them when this fails.
+     */
+    private void encodeMissingVariants(PendingPost post) {
+        List<ImageVariant> missing = new ArrayList<>();
+        for (ImageVariant variant : SMALLER_VARIANTS) {
+            if (!post.variants.containsKey(variant)) {
+                missing.add(variant);
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+        try {
+            List<UploadImageEncoder.EncodedImage> encoded =
+                    new UploadImageEncoder(mContext.getContentResolver(), mVariantDirectory)
+                            .encode(Uri.fromFile(new File(post.imagePath)), maxEdges(missing));
+            for (int i = 0; i < missing.size(); i++) {
+                post.variants.put(missing.get(i), new PendingPost.Variant(encoded.get(i).file.getAbsolutePath()));
+            }
+            persist();
+        } catch (IOException e) {
+            Log.e(TAG, "Unable to encode the variants of " + post, e);
+        }
+    }
+
+    /**
+     * Uploads the variants that previous attempts didn't, each in a single request as they are
+     * small.
+     */
+    private Map<ImageVariant, ParseFile> uploadVariants(PendingPost post)
+            throws ParseException, IOException, InterruptedException {
+        Map<ImageVariant, ParseFile> files = new EnumMap<>(ImageVariant.class);
+        for (Map.Entry<ImageVariant, PendingPost.Variant> entry : post.variants.entrySet()) {
+            PendingPost.Variant variant = entry.getValue();
+            if (variant.uploadedName != null) {
+                files.put(entry.getKey(), parseFile(variant.uploadedName, variant.uploadedUrl));
+            } else if (hasFile(variant.path)) {
+                File variantFile = new File(variant.path);
+                ParseFile file = new ParseFile(variantFile, post.mimeType);
+                await(file::saveInBackground);
+                BYTES_UPLOADED.add(variantFile.length());
+                variant.uploadedName = file.getName();
+                variant.uploadedUrl = file.getUrl();
+                persist();
+                files.put(entry.getKey(), file);
+            }
+        }
+        return files;
+    }
+
+    private static int[] maxEdges(List<ImageVariant> variants) {
+        int[] maxEdges = new int[variants.size()];
+        for (int i = 0; i < maxEdges.length; i++) {
+            maxEdges[i] = variants.get(i).maxEdge;
+        }
+        return maxEdges;
+    }
+
+    /**
+     * Uploads the encoded image unless a previous attempt already did. With a resumable upload
+     * endpoint configured the image is sent in chunks and an interrupted upload continues from
+     * the last acknowledged chunk, otherwise it goes to Parse as a single request.
+     */
+    private ParseFile uploadImage(PendingPost post)
+            throws ParseException, IOException, InterruptedException {
+        if (post.uploadedName != null) {
+            return parseFile(post.uploadedName, post.uploadedUrl);
+        }
+
+        File imageFile = new File(post.imagePath);
+        ParseFile parseImageFile;
+        if (TextUtils.isEmpty(BuildConfig.RESUMABLE_UPLOAD_URL)) {
+            parseImageFile = new ParseFile(imageFile, post.mimeType);
+            await(callback -> parseImageFile.saveInBackground(callback,
+                    percentDone -> notifyProgress(post, percentDone * IMAGE_PROGRESS_SHARE / 100)));
+            BYTES_UPLOADED.add(imageFile.length());
+        } else {
+            ResumableUploader uploader = new ResumableUploader(new URL(BuildConfig.RESUMABLE_UPLOAD_URL))
+                    .addHeader("X-Parse-Application-Id", UnigramApplication.PARSE_APPLICATION_ID)
+                    .addHeader("X-Parse-Client-Key", UnigramApplication.PARSE_CLIENT_KEY);
+            ParseUser currentUser = ParseUser.getCurrentUser();
+            if (currentUser != null && currentUser.getSessionToken() != null) {
+                uploader.addHeader("X-Parse-Session-Token", currentUser.getSessionToken());
+            }
+            ResumableUploader.Session session = new ResumableUploader.Session(
+                    post.uploadSessionUrl == null ? null : new URL(post.uploadSessionUrl),
+                    post.uploadOffset
+            );
+            ResumableUploader.UploadedFile uploaded;
+            try {
+                uploaded = uploader.upload(
+                        imageFile, imageFile.getName(), post.mimeType, session, new ResumableUploader.Listener() {
+                            private int mLastPercent = -1;
+
+                            @Override
+                            public void onProgress(long bytesSent, long totalBytes) {
+                                int percent = (int) (bytesSent * IMAGE_PROGRESS_SHARE / totalBytes);
+                                if (percent != mLastPercent) {
+                                    mLastPercent = percent;
+                                    notifyProgress(post, percent);
+                                }
+                            }
+
+                            @Override
+                            public void onCheckpoint(ResumableUploader.Session session) {
+                                post.uploadSessionUrl = session.url.toString();
+                                post.uploadOffset = session.offset;
+                                persist();
+                            }
+                        });
+            } catch (ResumableUploader.SessionExpiredException e) {
+                // Asking the server about the same session again would fail the same way until
+                // the post is given up on, the next attempt starts a new one
+                post.uploadSessionUrl = null;
+                post.uploadOffset = 0;
+                persist();
+                throw e;
+            }
+            parseImageFile = parseFile(uploaded.name, uploaded.url);
+        }
+
+        post.uploadedName = parseImageFile.getName();
+        post.uploadedUrl = parseImageFile.getUrl();
+        persist();
+        return parseImageFile;
+    }
+
+    /**
+     * Returns a {@link ParseFile} pointing at a file that is already stored on the server.
+     */
+    private static ParseFile parseFile(String name, String url) throws IOException {
+        try {
+            JSONObject json = new JSONObject()
+                    .put("__type", "File")
+                    .put("name", name)
+                    .put("url", url);
+            return (ParseFile) ParseDecoder.get().decode(json);
+        } catch (JSONException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private long retryOrFail(PendingPost post, Exception e) {
+        post.attempts++;
+        if (post.attempts >= MAX_ATTEMPTS) {
+            Log.e(TAG, "Giving up on " + post, e);
+            finish(post, e);
+            return NO_RETRY;
+        }
+        RETRIED.increment();
+        long delay = backoffMillis(post.attempts);
+        Log.w(TAG, String.format("Attempt %d of %s failed, retrying in %d ms", post.attempts, post, delay), e);
+        persist();
+        notifyFailed(post, e, true);
+        return delay;
+    }
+
+    /**
+     * Removes the post from the queue, deletes its encoded images and the photo it was captured
+     * into, and tells the listeners how it ended. A null {@code error} means the post was uploaded.
+     */
+    private void finish(PendingPost post, @Nullable Exception error) {
+        synchronized (this) {
+            mPending.remove(post.id);
+            mWaitingForNetwork.remove(post.id);
+        }
+        persist();
+        if (post.imagePath != null) {
+            //noinspection ResultOfMethodCallIgnored
+            new File(post.imagePath).delete();
+        }
+        for (PendingPost.Variant variant : post.variants.values()) {
+            //noinspection ResultOfMethodCallIgnored
+            new File(variant.path).delete();
+        }
+        CaptureFiles.delete(mContext, Uri.parse(post.sourceUri));
+        if (error == null) {
+            UPLOADED.increment();
+            notifyUploaded(post);
+        } else {
+            FAILED.increment();
+            notifyFailed(post, error, false);
+        }
+    }
+
+    private void persist() {
+        // The queue is read on the serial executor, a write submitted later can't store an
+        // older queue than one submitted before it
+        mPersistence.execute(() -> {
+            List<PendingPost> snapshot;
+            synchronized (this) {
+                snapshot = new ArrayList<>(mPending.values());
+            }
+            mStore.write(snapshot);
+        });
+    }
+
+    /**
+     * Exponential backoff with some jitter so many failed posts don't all retry at once.
+     */
+    static long backoffMillis(int attempts) {
+        long delay = INITIAL_BACKOFF_MILLIS << Math.min(attempts - 1, 16);
+        delay = Math.min(delay, MAX_BACKOFF_MILLIS);
+        return delay + ThreadLocalRandom.current().nextLong(delay / 5 + 1);
+    }
+
+    private boolean isConnected() {
+        ConnectivityManager cm = (ConnectivityManager) mContext.getSystemService(Context.CONNECTIVITY_SERVICE);
+        NetworkInfo activeNetwork = cm.getActiveNetworkInfo();
+        return activeNetwork != null && activeNetwork.isConnectedOrConnecting();
+    }
+
+    private void registerNetworkCallback() {
+        ConnectivityManager cm = (ConnectivityManager) mContext.getSystemService(Context.CONNECTIVITY_SERVICE);
+        NetworkRequest request = new NetworkRequest.Builder()
+                .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+                .build();
+        cm.registerNetworkCallback(request, new ConnectivityManager.NetworkCallback() {
+            @Override
+            public void onAvailable(@NonNull Network network) {
+                List<PendingPost> waiting = new ArrayList<>();
+                synchronized (UploadQueue.this) {
+                    // The running attempts may be failing for the lack of network, they are
+                    // run again as soon as they end instead of waiting out their backoff
+                    Set<String> ids = new HashSet<>(mWaitingForNetwork);
+                    ids.addAll(mRunning);
+                    for (String id : ids) {
+                        PendingPost post = mPending.get(id);
+                        if (post != null) {
+                            waiting.add(post);
+                        }
+                    }
+                    mWaitingForNetwork.clear();
+                }
+                for (PendingPost post : waiting) {
+                    schedule(post, 0);
+                }
+            }
+        });
+    }
+
+    /**
+     * Blocks the worker until a Parse save completes, so the pool size really bounds the number
+     * of uploads in flight.
+     */
+    private static void await(SaveTask task) throws ParseException, InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        ParseException[] error = new ParseException[1];
+        task.save(e -> {
+            error[0] = e;
+            latch.countDown();
+        });
+        latch.await();
+        if (error[0] != null) {
+            throw error[0];
+        }
+    }
+
+    private void notifyProgress(PendingPost post, int percent) {
+        mProgress.publish(post.id, percent);
+    }
+
+    private void notifyWaitingForNetwork(PendingPost post) {
+        mExecutors.mainThread().execute(() -> {
+            for (Listener listener : mListeners) {
+                listener.onWaitingForNetwork(post.id);
+            }
+        });
+    }
+
+    private void notifyUploaded(PendingPost post) {
+        mExecutors.mainThread().execute(() -> {
+            for (Listener listener : mListeners) {
+                listener.onUploaded(post.id);
+            }
+        });
+    }
+
+    private void notifyFailed(PendingPost post, Exception e, boolean willRetry) {
+        mExecutors.mainThread().execute(() -> {
+            for (Listener listener : mListeners) {
+                listener.onFailed(post.id, e, willRetry);
+            }
+        });
+    }
+
+    private interface SaveTask {
+        void save(SaveCallback callback);
+    }
+
+    /**
+     * Receives the state of queued posts. All methods are called on the main thread, the
+     * progress at most once a frame.
+     */
+    public interface Listener {
+        void onProgress(@NonNull String id, int percent);
+
+        void onWaitingForNetwork(@NonNull String id);
+
+        void onUploaded(@NonNull String id);
+
+        void onFailed(@NonNull String id, @NonNull Exception e, boolean willRetry);
+    }
+}
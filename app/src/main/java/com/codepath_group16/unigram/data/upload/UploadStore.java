@@ -0,0 +1,79 @@
+package com.codepath_group16.unigram.data.upload;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.core.util.AtomicFile;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Keeps the pending posts of the {@link UploadQueue} in a JSON file so they survive a process
+ * restart. Writes go through an {@link AtomicFile} so a crash mid write never loses the queue.
+ * <p>
+ * Both methods do disk I/O and must not be called on the main thread.
+ */
+class UploadStore {
+
+    private static final String TAG = "UploadStore";
+
+    private final AtomicFile mFile;
+
+    UploadStore(@NonNull File file) {
+        mFile = new AtomicFile(file);
+    }
+
+    @NonNull
+    List<PendingPost> read() {
+        List<PendingPost> posts = new ArrayList<>();
+        try (FileInputStream input = mFile.openRead()) {
+            byte[] bytes = new byte[input.available()];
+            int read = 0;
+            while (read < bytes.length) {
+                int count = input.read(bytes, read, bytes.length - read);
+                if (count < 0) {
+                    break;
+                }
+                read += count;
+            }
+            JSONArray array = new JSONArray(new String(bytes, 0, read, StandardCharsets.UTF_8));
+            for (int i = 0; i < array.length(); i++) {
+                posts.add(PendingPost.fromJson(array.getJSONObject(i)));
+            }
+        } catch (FileNotFoundException e) {
+            // Nothing was ever queued
+        } catch (IOException | JSONException e) {
+            Log.e(TAG, "Unable to read pending posts", e);
+        }
+        return posts;
+    }
+
+    void write(@NonNull Collection<PendingPost> posts) {
+        FileOutputStream output = null;
+        try {
+            JSONArray array = new JSONArray();
+            for (PendingPost post : posts) {
+                array.put(post.toJson());
+            }
+            output = mFile.startWrite();
+            output.write(array.toString().getBytes(StandardCharsets.UTF_8));
+            mFile.finishWrite(output);
+        } catch (IOException | JSONException e) {
+            Log.e(TAG, "Unable to write pending posts", e);
+            if (output != null) {
+                mFile.failWrite(output);
+            }
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.codepath_group16.unigram.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A count any thread can add to without a lock.
+ */
+public class Counter {
+
+    private final AtomicLong mCount = new AtomicLong();
+
+    public void increment() {
+        mCount.incrementAndGet();
+    }
+
+    public void add(long delta) {
+        mCount.addAndGet(delta);
+    }
+
+    public long get() {
+        return mCount.get();
+    }
+}
@@ -0,0 +1,107 @@
+package com.codepath_group16.unigram.metrics;
+
+import androidx.annotation.NonNull;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The counters, timers and histograms of the app, by name.
+ * <p>
+ * Look a metric up once and keep it in a field, recording into it then costs a few atomic
+ * operations and no lookup. {@link MetricsDump} writes them all to a file to compare builds.
+ */
+public class Metrics {
+
+    private static final Metrics sInstance = new Metrics();
+
+    private final ConcurrentMap<String, Counter> mCounters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Timer> mTimers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Histogram> mHistograms = new ConcurrentHashMap<>();
+
+    Metrics() {
+    }
+
+    public static Metrics getInstance() {
+        return sInstance;
+    }
+
+    @NonNull
+    public Counter counter(@NonNull String name) {
+        Counter counter = mCounters.get(name);
+        if (counter == null) {
+            Counter created = new Counter();
+            counter = mCounters.putIfAbsent(name, created);
+            if (counter == null) {
+                counter = created;
+            }
+        }
+        return counter;
+    }
+
+    @NonNull
+    public Timer timer(@NonNull String name) {
+        Timer timer = mTimers.get(name);
+        if (timer == null) {
+            Timer created = new Timer(name);
+            timer = mTimers.putIfAbsent(name, created);
+            if (timer == null) {
+                timer = created;
+            }
+        }
+        return timer;
+    }
+
+    @NonNull
+    public Histogram histogram(@NonNull String name) {
+        Histogram histogram = mHistograms.get(name);
+        if (histogram == null) {
+            Histogram created = new Histogram();
+            histogram = mHistograms.putIfAbsent(name, created);
+            if (histogram == null) {
+                histogram = created;
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * Every metric, sorted by name. Timers are in milliseconds.
+     */
+    @NonNull
+    public JSONObject toJson() throws JSONException {
+        JSONObject counters = new JSONObject();
+        for (Map.Entry<String, Counter> entry : new TreeMap<>(mCounters).entrySet()) {
+            counters.put(entry.getKey(), entry.getValue().get());
+        }
+        JSONObject timers = new JSONObject();
+        for (Map.Entry<String, Timer> entry : new TreeMap<>(mTimers).entrySet()) {
+            timers.put(entry.getKey(), toJson(entry.getValue().snapshot(), 1e-6));
+        }
+        JSONObject histograms = new JSONObject();
+        for (Map.Entry<String, Histogram> entry : new TreeMap<>(mHistograms).entrySet()) {
+            histograms.put(entry.getKey(), toJson(entry.getValue().snapshot(), 1));
+        }
+        return new JSONObject()
+                .put("counters", counters)
+                .put("timers", timers)
+                .put("histograms", histograms);
+    }
+
+    private static JSONObject toJson(Histogram.Snapshot snapshot, double scale) throws JSONException {
+        return new JSONObject()
+                .put("count", snapshot.count)
+                .put("sum", snapshot.sum * scale)
+                .put("mean", snapshot.getMean() * scale)
+                .put("min", snapshot.min * scale)
+                .put("p50", snapshot.getPercentile(50) * scale)
+                .put("p90", snapshot.getPercentile(90) * scale)
+                .put("p99", snapshot.getPercentile(99) * scale)
+                .put("max", snapshot.max * scale);
+    }
+}
@@ -0,0 +1,108 @@
+package com.codepath_group16.unigram.metrics;
+
+import android.content.Context;
+import android.os.Build;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.codepath_group16.unigram.AppExecutors;
+import com.codepath_group16.unigram.BuildConfig;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Writes the {@link Metrics} of the process, with the build and the device they come from and the
+ * stats of the {@link AppExecutors} pools, to a JSON file in the app's external files, to compare
+ * builds without sending anything anywhere. Each process gets its own file, rewritten on each
+ * dump, and only the last {@value #MAX_DUMPS} are kept. Pull them with
+ * {@code adb pull /sdcard/Android/data/com.codepath_group16.unigram/files/metrics}.
+ */
+public final class MetricsDump {
+
+    private static final String TAG = "MetricsDump";
+    private static final String DIRECTORY = "metrics";
+    private static final int MAX_DUMPS = 20;
+
+    private static final String sFileName = "metrics-"
+            + new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US).format(new Date()) + ".json";
+
+    private MetricsDump() {
+    }
+
+    /**
+     * Writes the metrics on the disk I/O pool, any thread may call it.
+     */
+    public static void write(@NonNull Context context) {
+        Context appContext = context.getApplicationContext();
+        AppExecutors.getInstance().diskIO().execute(() -> writeNow(appContext));
+    }
+
+    private static synchronized void writeNow(Context context) {
+        File baseDirectory = context.getExternalFilesDir(null);
+        File directory = new File(baseDirectory != null ? baseDirectory : context.getFilesDir(), DIRECTORY);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            Log.e(TAG, "Unable to create " + directory);
+            return;
+        }
+        File file = new File(directory, sFileName);
+        try (OutputStream output = new FileOutputStream(file)) {
+            output.write(toJson().toString(2).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException | JSONException e) {
+            Log.e(TAG, "Unable to write " + file, e);
+            return;
+        }
+        Log.v(TAG, "Wrote " + file);
+        deleteOldDumps(directory);
+    }
+
+    private static JSONObject toJson() throws JSONException {
+        JSONObject build = new JSONObject()
+                .put("versionName", BuildConfig.VERSION_NAME)
+                .put("versionCode", BuildConfig.VERSION_CODE)
+                .put("buildType", BuildConfig.BUILD_TYPE)
+                .put("eagerParseInit", BuildConfig.EAGER_PARSE_INIT)
+                .put("device", Build.MANUFACTURER + " " + Build.MODEL)
+                .put("sdk", Build.VERSION.SDK_INT);
+        JSONArray executors = new JSONArray();
+        for (AppExecutors.PoolStats stats : AppExecutors.getInstance().getStats()) {
+            executors.put(new JSONObject()
+                    .put("name", stats.name)
+                    .put("queueDepth", stats.queueDepth)
+                    .put("activeThreads", stats.activeThreads)
+                    .put("completedTasks", stats.completedTasks)
+                    .put("averageWaitMillis", stats.averageWaitMillis)
+                    .put("maxWaitMillis", stats.maxWaitMillis)
+                    .put("averageRunMillis", stats.averageRunMillis));
+        }
+        return Metrics.getInstance().toJson()
+                .put("writtenAt", System.currentTimeMillis())
+                .put("build", build)
+                .put("executors", executors);
+    }
+
+    private static void deleteOldDumps(File directory) {
+        File[] dumps = directory.listFiles((dir, name) -> name.startsWith("metrics-") && name.endsWith(".json"));
+        if (dumps == null || dumps.length <= MAX_DUMPS) {
+            return;
+        }
+        // The names sort by the time their process started
+        Arrays.sort(dumps);
+        for (int i = 0; i < dumps.length - MAX_DUMPS; i++) {
+            //noinspection ResultOfMethodCallIgnored
+            dumps[i].delete();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.codepath_group16.unigram.metrics;
+
+import android.os.Trace;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link Histogram} of durations in nanoseconds.
+ * <p>
+ * {@link #start()} also opens a trace section named after the timer, so what it times shows in
+ * systrace and the profiler, and {@link #stop(long)} closes it. Trace sections nest and belong to
+ * a thread: stop a timer on the thread that started it, before stopping the timers started
+ * earlier there. Durations measured across threads go through {@link #recordMillis(long)}.
+ */
+public class Timer {
+
+    /**
+     * The longest section name {@link Trace} takes.
+     */
+    private static final int MAX_SECTION_LENGTH = 127;
+
+    private final String mSectionName;
+    private final Histogram mNanos = new Histogram();
+
+    Timer(@NonNull String name) {
+        mSectionName = name.length() > MAX_SECTION_LENGTH ? name.substring(0, MAX_SECTION_LENGTH) : name;
+    }
+
+    /**
+     * Starts timing on the calling thread and returns what {@link #stop(long)} takes.
+     */
+    public long start() {
+        Trace.beginSection(mSectionName);
+        return System.nanoTime();
+    }
+
+    /**
+     * Records the time since {@code startedAt}, as returned by {@link #start()}.
+     */
+    public void stop(long startedAt) {
+        record(System.nanoTime() - startedAt);
+        Trace.endSection();
+    }
+
+    public void record(long nanos) {
+        mNanos.record(nanos);
+    }
+
+    public void recordMillis(long millis) {
+        record(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    /**
+     * The durations recorded so far, in nanoseconds.
+     */
+    @NonNull
+    public Histogram.Snapshot snapshot() {
+        return mNanos.snapshot();
+    }
+}
@@ -1,30 +1,78 @@
 package com.codepath_group16.unigram.ui.explore;
 
 import android.os.Bundle;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.TextView;
 
 import androidx.annotation.NonNull;
-import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
-import androidx.lifecycle.Observer;
 import androidx.lifecycle.ViewModelProvider;
+import androidx.recyclerview.widget.LinearLayoutManager;
 
+import com.bumptech.glide.Glide;
 import com.codepath_group16.unigram.R;
+import com.codepath_group16.unigram.data.likes.LikeAggregator;
+import com.codepath_group16.unigram.databinding.FragmentExploreBinding;
+import com.codepath_group16.unigram.ui.feed.FeedAdapter;
+import com.google.android.material.snackbar.Snackbar;
 
 public class ExploreFragment extends Fragment {
 
     private ExploreViewModel mExploreViewModel;
+    private FragmentExploreBinding mBinding;
+    private LikeAggregator.Listener mLikeListener;
 
     public View onCreateView(@NonNull LayoutInflater inflater,
                              ViewGroup container, Bundle savedInstanceState) {
         mExploreViewModel =
                 new ViewModelProvider(this).get(ExploreViewModel.class);
-        View root = inflater.inflate(R.layout.fragment_explore, container, false);
-        final TextView textView = root.findViewById(R.id.text_explore);
-        mExploreViewModel.getText().observe(getViewLifecycleOwner(), textView::setText);
-        return root;
+
+        mBinding = FragmentExploreBinding.inflate(inflater, container, false);
+
+        FeedAdapter resultsAdapter = new FeedAdapter(Glide.with(this));
+        mBinding.results.setLayoutManager(new LinearLayoutManager(getContext()));
+        mBinding.results.setAdapter(resultsAdapter);
+        mLikeListener = resultsAdapter::onLikeChanged;
+        LikeAggregator.getInstance().addListener(mLikeListener);
+
+        mBinding.search.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+                mExploreViewModel.search(s.toString());
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+            }
+        });
+
+        mExploreViewModel.getResults().observe(getViewLifecycleOwner(), results -> {
+            resultsAdapter.submitPosts(results);
+            boolean typed = mBinding.search.getText().toString().trim().length() > 0;
+            mBinding.noResults.setVisibility(typed && results.isEmpty() ? View.VISIBLE : View.GONE);
+        });
+        mExploreViewModel.getIndexFailed().observe(getViewLifecycleOwner(), failed -> {
+            if (failed) {
+                Snackbar.make(mBinding.getRoot(), R.string.explore_index_failed, Snackbar.LENGTH_INDEFINITE)
+                        .setAction(R.string.action_retry, v -> mExploreViewModel.indexRecent())
+                        .show();
+            }
+        });
+
+        return mBinding.getRoot();
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        LikeAggregator.getInstance().removeListener(mLikeListener);
+        mBinding = null;
     }
-}
\ No newline at end of file
+}
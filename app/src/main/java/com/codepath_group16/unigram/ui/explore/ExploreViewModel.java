@@ -1,19 +1,74 @@
 package com.codepath_group16.unigram.ui.explore;
 
+import android.util.Log;
+
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.ViewModel;
 
+import com.codepath_group16.unigram.AppExecutors;
+import com.codepath_group16.unigram.data.explore.PostSearch;
+import com.codepath_group16.unigram.data.models.Post;
+import com.parse.ParseException;
+
+import java.util.Collections;
+import java.util.List;
+
 public class ExploreViewModel extends ViewModel {
 
-    private MutableLiveData<String> mText;
+    private static final int MAX_RESULTS = 50;
+
+    private final String TAG = getClass().getSimpleName();
+    private final MutableLiveData<List<Post>> mResults = new MutableLiveData<>(Collections.emptyList());
+    private final MutableLiveData<Boolean> mIndexFailed = new MutableLiveData<>(false);
+    private String mQuery = "";
+    /**
+     * Incremented by every search so the results of an older query are dropped.
+     */
+    private int mGeneration;
 
     public ExploreViewModel() {
-        mText = new MutableLiveData<>();
-        mText.setValue("This is the explore fragment");
+        indexRecent();
+    }
+
+    public LiveData<List<Post>> getResults() {
+        return mResults;
+    }
+
+    public LiveData<Boolean> getIndexFailed() {
+        return mIndexFailed;
+    }
+
+    void indexRecent() {
+        mIndexFailed.setValue(false);
+        AppExecutors.getInstance().diskIO().execute(() -> {
+            try {
+                PostSearch.getInstance().indexRecent();
+            } catch (ParseException e) {
+                Log.e(TAG, "Unable to index the recent posts", e);
+                mIndexFailed.postValue(true);
+            }
+            // Results of a query typed before the posts were there
+            AppExecutors.getInstance().mainThread().execute(() -> search(mQuery));
+        });
     }
 
-    public LiveData<String> getText() {
-        return mText;
+    /**
+     * Searches as the query is typed, off the main thread.
+     */
+    void search(String query) {
+        mQuery = query;
+        int generation = ++mGeneration;
+        AppExecutors.getInstance().computation().execute(() -> {
+            long start = System.nanoTime();
+            List<Post> results = PostSearch.getInstance().search(query, MAX_RESULTS);
+            Log.v(TAG, results.size() + " results for \"" + query + "\" in "
+                    + (System.nanoTime() - start) / 1000 + " us");
+            AppExecutors.getInstance().mainThread().execute(() -> {
+                if (generation == mGeneration) {
+                    mResults.setValue(results);
+                }
+            });
+        });
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,184 @@
+package com.codepath_group16.unigram.ui.feed;
+
+import android.view.LayoutInflater;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.bumptech.glide.RequestManager;
+import com.codepath_group16.unigram.R;
+import com.codepath_group16.unigram.data.models.Post;
+import com.codepath_group16.unigram.databinding.ItemPostBinding;
+import com.parse.ParseFile;
+import com.parse.ParseUser;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Shows the posts of the feed, and the results of the explore tab. New pages are diffed off the
+ * main thread by the {@link ListAdapter}, posts are the same when their ids match. Liking a post
+ * only rebinds its like button and count.
+ */
+public class FeedAdapter extends ListAdapter<FeedAdapter.Row, FeedAdapter.PostViewHolder> {
+
+    private static final DiffUtil.ItemCallback<Row> DIFF_CALLBACK = new DiffUtil.ItemCallback<Row>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Row oldItem, @NonNull Row newItem) {
+            return Objects.equals(oldItem.post.getObjectId(), newItem.post.getObjectId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Row oldItem, @NonNull Row newItem) {
+            return oldItem.liked == newItem.liked
+                    && oldItem.likesCount == newItem.likesCount
+                    && isSamePost(oldItem, newItem);
+        }
+
+        @Override
+        public Object getChangePayload(@NonNull Row oldItem, @NonNull Row newItem) {
+            return isSamePost(oldItem, newItem) ? LIKE_PAYLOAD : null;
+        }
+
+        private boolean isSamePost(Row oldItem, Row newItem) {
+            return Objects.equals(oldItem.caption, newItem.caption)
+                    && Objects.equals(oldItem.updatedAt, newItem.updatedAt);
+        }
+    };
+
+    /**
+     * Payload of a rebind that only changes whether the post is liked.
+     */
+    private static final Object LIKE_PAYLOAD = new Object();
+
+    private final RequestManager mRequestManager;
+    /**
+     * Width of the images in pixels, they fill the list.
+     */
+    private int mImageEdge;
+
+    public FeedAdapter(RequestManager requestManager) {
+        super(DIFF_CALLBACK);
+        mRequestManager = requestManager;
+    }
+
+    public void submitPosts(@NonNull List<Post> posts) {
+        submitPosts(posts, null);
+    }
+
+    /**
+     * Shows {@code posts}, the rows whose like or count changed since they were last submitted
+     * are rebound even when the posts are the same objects.
+     */
+    public void submitPosts(@NonNull List<Post> posts, @Nullable Runnable commitCallback) {
+        List<Row> rows = new ArrayList<>(posts.size());
+        for (Post post : posts) {
+            rows.add(new Row(post));
+        }
+        submitList(rows, commitCallback);
+    }
+
+    @NonNull
+    @Override
+    public PostViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        mImageEdge = parent.getWidth() > 0
+                ? parent.getWidth() : parent.getResources().getDisplayMetrics().widthPixels;
+        PostViewHolder holder = new PostViewHolder(
+                ItemPostBinding.inflate(LayoutInflater.from(parent.getContext()), parent, false));
+        holder.mBinding.like.setOnClickListener(v -> {
+            int position = holder.getAdapterPosition();
+            if (position == RecyclerView.NO_POSITION) {
+                return;
+            }
+            Post post = getItem(position).post;
+            post.setIsLiked(!post.getIsLiked(), true);
+            notifyItemChanged(position, LIKE_PAYLOAD);
+        });
+        return holder;
+    }
+
+    /**
+     * Shows the like of {@code post} again after it changed outside of the adapter.
+     */
+    public void onLikeChanged(Post post) {
+        List<Row> rows = getCurrentList();
+        for (int i = 0; i < rows.size(); i++) {
+            if (Objects.equals(rows.get(i).post.getObjectId(), post.getObjectId())) {
+                notifyItemChanged(i, LIKE_PAYLOAD);
+            }
+        }
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull PostViewHolder holder, int position, @NonNull List<Object> payloads) {
+        boolean likeOnly = !payloads.isEmpty();
+        for (Object payload : payloads) {
+            likeOnly &= payload == LIKE_PAYLOAD;
+        }
+        if (likeOnly) {
+            bindLike(holder, getItem(position).post);
+        } else {
+            onBindViewHolder(holder, position);
+        }
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull PostViewHolder holder, int position) {
+        Post post = getItem(position).post;
+        ParseUser author = post.getAuthor();
+        holder.mBinding.author.setText(author == null ? null : author.getUsername());
+        holder.mBinding.caption.setText(post.getCaption());
+        bindLike(holder, post);
+
+        ParseFile image = post.getImageCovering(mImageEdge);
+        mRequestManager
+                .load(image == null ? null : image.getUrl())
+                .centerCrop()
+                .into(holder.mBinding.image);
+    }
+
+    private static void bindLike(PostViewHolder holder, Post post) {
+        boolean liked = post.getIsLiked();
+        holder.mBinding.like.setImageResource(liked ? R.drawable.ic_favorite : R.drawable.ic_favorite_border);
+        holder.mBinding.like.setContentDescription(holder.itemView.getResources()
+                .getString(liked ? R.string.unlike_post_description : R.string.like_post_description));
+        int likes = post.getLikesCount();
+        holder.mBinding.likesCount.setText(holder.itemView.getResources()
+                .getQuantityString(R.plurals.likes_count, likes, likes));
+    }
+
+    /**
+     * A post with what its row shows, taken when it was submitted. The posts are shared and
+     * change in place, comparing them directly would always find them the same.
+     */
+    public static final class Row {
+        final Post post;
+        final boolean liked;
+        final int likesCount;
+        final String caption;
+        final Date updatedAt;
+
+        Row(Post post) {
+            this.post = post;
+            liked = post.getIsLiked();
+            likesCount = post.getLikesCount();
+            caption = post.getCaption();
+            updatedAt = post.getUpdatedAt();
+        }
+    }
+
+    public static class PostViewHolder extends RecyclerView.ViewHolder {
+        final ItemPostBinding mBinding;
+
+        PostViewHolder(ItemPostBinding binding) {
+            super(binding.getRoot());
+            mBinding = binding;
+        }
+    }
+}
@@ -4,27 +4,84 @@ import android.os.Bundle;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.TextView;
 
 import androidx.annotation.NonNull;
-import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
-import androidx.lifecycle.Observer;
 import androidx.lifecycle.ViewModelProvider;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
+import com.bumptech.glide.Glide;
 import com.codepath_group16.unigram.R;
+import com.codepath_group16.unigram.data.likes.LikeAggregator;
+import com.codepath_group16.unigram.databinding.FragmentFeedBinding;
+import com.google.android.material.snackbar.Snackbar;
+
+import java.util.Objects;
 
 public class FeedFragment extends Fragment {
 
     private FeedViewModel mFeedViewModel;
+    private FragmentFeedBinding mBinding;
+    private LikeAggregator.Listener mLikeListener;
 
     public View onCreateView(@NonNull LayoutInflater inflater,
                              ViewGroup container, Bundle savedInstanceState) {
         mFeedViewModel =
                 new ViewModelProvider(this).get(FeedViewModel.class);
-        View root = inflater.inflate(R.layout.fragment_feed, container, false);
-        final TextView textView = root.findViewById(R.id.text_feed);
-        mFeedViewModel.getText().observe(getViewLifecycleOwner(), textView::setText);
-        return root;
+
+        mBinding = FragmentFeedBinding.inflate(inflater, container, false);
+
+        FeedAdapter feedAdapter = new FeedAdapter(Glide.with(this));
+        LinearLayoutManager layoutManager = new LinearLayoutManager(getContext());
+        mBinding.feed.setLayoutManager(layoutManager);
+        mBinding.feed.setAdapter(feedAdapter);
+        mBinding.feed.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                loadPagesNearEnd();
+            }
+        });
+        mBinding.feedRefresh.setOnRefreshListener(() -> mFeedViewModel.refresh());
+        mLikeListener = feedAdapter::onLikeChanged;
+        LikeAggregator.getInstance().addListener(mLikeListener);
+
+        mFeedViewModel.getFeed().observe(getViewLifecycleOwner(), feed -> {
+            // A short page may not fill the screen, look again once it is laid out
+            feedAdapter.submitPosts(feed.items, () -> {
+                if (mBinding != null) {
+                    mBinding.feed.post(this::loadPagesNearEnd);
+                }
+            });
+            if (!feed.loading) {
+                mBinding.feedRefresh.setRefreshing(false);
+            } else if (feed.items.isEmpty()) {
+                mBinding.feedRefresh.setRefreshing(true);
+            }
+            mBinding.emptyFeed.setVisibility(
+                    feed.items.isEmpty() && !feed.loading && feed.error == null ? View.VISIBLE : View.GONE);
+            if (feed.error != null) {
+                Snackbar.make(mBinding.getRoot(), R.string.feed_load_failed, Snackbar.LENGTH_INDEFINITE)
+                        .setAction(R.string.action_retry, v -> mFeedViewModel.retry())
+                        .show();
+            }
+        });
+
+        return mBinding.getRoot();
+    }
+
+    private void loadPagesNearEnd() {
+        if (mBinding == null) {
+            return;
+        }
+        LinearLayoutManager layoutManager = (LinearLayoutManager) mBinding.feed.getLayoutManager();
+        mFeedViewModel.onPostShown(Objects.requireNonNull(layoutManager).findLastVisibleItemPosition());
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        LikeAggregator.getInstance().removeListener(mLikeListener);
+        mBinding = null;
     }
-}
\ No newline at end of file
+}
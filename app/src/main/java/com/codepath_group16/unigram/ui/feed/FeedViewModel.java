@@ -1,19 +1,73 @@
 package com.codepath_group16.unigram.ui.feed;
 
+import android.os.SystemClock;
+import android.util.Log;
+
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.ViewModel;
 
+import com.codepath_group16.unigram.AppExecutors;
+import com.codepath_group16.unigram.StartupTrace;
+import com.codepath_group16.unigram.data.feed.FeedPager;
+import com.codepath_group16.unigram.data.feed.ParseFeedCache;
+import com.codepath_group16.unigram.data.feed.ParsePostSource;
+import com.codepath_group16.unigram.data.models.Post;
+
+import java.util.Locale;
+
 public class FeedViewModel extends ViewModel {
 
-    private MutableLiveData<String> mText;
+    private static final int PAGE_SIZE = 20;
+    /**
+     * Loads the next page once the feed is scrolled this many posts from the end.
+     */
+    private static final int PREFETCH_DISTANCE = 5;
+
+    private final String TAG = getClass().getSimpleName();
+    private final MutableLiveData<FeedPager.State<Post>> mFeed = new MutableLiveData<>();
+    private final ParsePostSource mSource = new ParsePostSource();
+    private final FeedPager<Post> mPager;
+    private final long mStartMillis = SystemClock.elapsedRealtime();
+    private boolean mFirstPostShown;
+    private boolean mFreshPostShown;
 
     public FeedViewModel() {
-        mText = new MutableLiveData<>();
-        mText.setValue("This is the feed fragment");
+        mPager = new FeedPager<>(mSource, new ParseFeedCache(), AppExecutors.getInstance().diskIO(), PAGE_SIZE,
+                PREFETCH_DISTANCE, this::onFeedChanged);
+        mPager.start();
+    }
+
+    /**
+     * Called on the I/O executor, logs how long the first posts took to show up.
+     */
+    private synchronized void onFeedChanged(FeedPager.State<Post> feed) {
+        if (!feed.items.isEmpty() && (!mFirstPostShown || (!mFreshPostShown && !feed.stale))) {
+            Log.i(TAG, String.format(Locale.US, "First %s post after %d ms, %d round trips",
+                    feed.stale ? "cached" : "fresh", SystemClock.elapsedRealtime() - mStartMillis,
+                    mSource.getRoundTrips()));
+            if (!mFirstPostShown) {
+                StartupTrace.onFeedShown(feed.stale);
+            }
+            mFirstPostShown = true;
+            mFreshPostShown = !feed.stale;
+        }
+        mFeed.postValue(feed);
+    }
+
+    public LiveData<FeedPager.State<Post>> getFeed() {
+        return mFeed;
+    }
+
+    void onPostShown(int position) {
+        mPager.onItemShown(position);
+    }
+
+    void refresh() {
+        mPager.refresh();
     }
 
-    public LiveData<String> getText() {
-        return mText;
+    void retry() {
+        mPager.retry();
     }
-}
\ No newline at end of file
+}
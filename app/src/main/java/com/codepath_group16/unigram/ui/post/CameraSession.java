@@ -0,0 +1,184 @@
+package com.codepath_group16.unigram.ui.post;
+
+import android.app.Application;
+import android.util.Log;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.camera.core.CameraSelector;
+import androidx.camera.core.ImageCapture;
+import androidx.camera.core.Preview;
+import androidx.camera.lifecycle.ProcessCameraProvider;
+import androidx.camera.view.PreviewView;
+import androidx.core.content.ContextCompat;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LifecycleOwner;
+
+import com.codepath_group16.unigram.AppExecutors;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+/**
+ * The camera of the post flow, shared by its screens through the activity.
+ * <p>
+ * CameraX is started when the user opens the Post tab, so the capture screen doesn't wait for
+ * it, no use case is bound until then. The preview and capture use cases stay bound while the
+ * user goes between the capture and preview screens, going back to the camera from the preview
+ * only hands the preview a new view. They are released by {@link #release()} on any other
+ * screen, the gallery of the Post tab included, and with the activity.
+ */
+public class CameraSession extends AndroidViewModel {
+
+    private static final String TAG = "CameraSession";
+
+    /**
+     * Writes the photos and runs the capture callbacks, one at a time, on a thread of the camera
+     * alone so a capture doesn't wait behind gallery paging or uploads on the io pool.
+     */
+    private final Executor mExecutor = AppExecutors.getInstance().camera();
+    private final Executor mMainExecutor;
+    private ListenableFuture<ProcessCameraProvider> mProvider;
+    @Nullable
+    private Preview mPreview;
+    @Nullable
+    private ImageCapture mImageCapture;
+    @Nullable
+    private CaptureProfile mProfile;
+    @Nullable
+    private LifecycleOwner mOwner;
+    /**
+     * Counts the releases, a bind waiting for the provider is dropped when one came in between.
+     */
+    private int mReleases;
+
+    public CameraSession(@NonNull Application application) {
+        super(application);
+        mMainExecutor = ContextCompat.getMainExecutor(application);
+    }
+
+    /**
+     * Starts CameraX if it isn't yet, it finds the cameras and their sizes in the background.
+     * The camera itself is not opened.
+     */
+    @MainThread
+    public void warmUp() {
+        if (mProvider == null) {
+            Log.v(TAG, "Starting the camera provider");
+            mProvider = ProcessCameraProvider.getInstance(getApplication());
+        }
+    }
+
+    /**
+     * Whether the use cases are bound from an earlier visit of the capture screen.
+     */
+    @MainThread
+    boolean isBound() {
+        return mImageCapture != null;
+    }
+
+    Executor getExecutor() {
+        return mExecutor;
+    }
+
+    /**
+     * The capture use case, null until the camera is bound.
+     */
+    @Nullable
+    @MainThread
+    ImageCapture getImageCapture() {
+        return mImageCapture;
+    }
+
+    /**
+     * Shows the camera in {@code viewFinder} and takes photos with {@code profile}. Only the
+     * capture use case is bound again when the profile changed, nothing when the camera is
+     * already bound to {@code owner}.
+     */
+    @MainThread
+    void bind(@NonNull LifecycleOwner owner, @NonNull CaptureProfile profile,
+              @NonNull PreviewView viewFinder) {
+        warmUp();
+        ListenableFuture<ProcessCameraProvider> future = mProvider;
+        int releases = mReleases;
+        future.addListener(() -> {
+            if (releases != mReleases) {
+                return;
+            }
+            ProcessCameraProvider provider;
+            try {
+                provider = future.get();
+            } catch (ExecutionException | InterruptedException e) {
+                Log.e(TAG, "Unable to start the camera", e);
+                return;
+            }
+            if (owner != mOwner) {
+                // A new activity, the use cases of the old one are gone with it
+                provider.unbindAll();
+                mPreview = null;
+                mImageCapture = null;
+                mOwner = owner;
+            }
+            if (mPreview == null) {
+                mPreview = new Preview.Builder().build();
+            }
+            mPreview.setSurfaceProvider(viewFinder.getSurfaceProvider());
+            if (mImageCapture != null && profile == mProfile) {
+                return;
+            }
+
+            ImageCapture imageCapture = profile.apply(new ImageCapture.Builder())
+                    .setIoExecutor(mExecutor)
+                    .build();
+            try {
+                if (mImageCapture != null) {
+                    provider.unbind(mImageCapture);
+                }
+                // The preview is left alone when it is bound already
+                provider.bindToLifecycle(owner, CameraSelector.DEFAULT_BACK_CAMERA, mPreview, imageCapture);
+                mImageCapture = imageCapture;
+                mProfile = profile;
+            } catch (Exception e) {
+                Log.e(TAG, "Use case binding failed", e);
+            }
+        }, mMainExecutor);
+    }
+
+    /**
+     * Stops showing the camera in the view it was given, the camera stays open.
+     */
+    @MainThread
+    void detachPreview() {
+        if (mPreview != null) {
+            mPreview.setSurfaceProvider(null);
+        }
+    }
+
+    /**
+     * Closes the camera, the provider stays started for the next time.
+     */
+    @MainThread
+    public void release() {
+        mReleases++;
+        if (mOwner == null) {
+            return;
+        }
+        Log.v(TAG, "Releasing the camera");
+        try {
+            mProvider.get().unbindAll();
+        } catch (ExecutionException | InterruptedException e) {
+            Log.e(TAG, "Unable to release the camera", e);
+        }
+        mPreview = null;
+        mImageCapture = null;
+        mProfile = null;
+        mOwner = null;
+    }
+
+    @Override
+    protected void onCleared() {
+        release();
+    }
+}
@@ -1,9 +1,9 @@
 package com.codepath_group16.unigram.ui.post;
 
 import android.Manifest;
-import android.content.res.Resources;
 import android.net.Uri;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -11,26 +11,24 @@ import android.view.ViewGroup;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
-import androidx.camera.core.CameraSelector;
+import androidx.annotation.Nullable;
 import androidx.camera.core.ImageCapture;
 import androidx.camera.core.ImageCaptureException;
-import androidx.camera.core.Preview;
-import androidx.camera.lifecycle.ProcessCameraProvider;
+import androidx.camera.view.PreviewView;
 import androidx.core.content.ContextCompat;
 import androidx.core.content.PermissionChecker;
 import androidx.fragment.app.Fragment;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.Observer;
+import androidx.lifecycle.ViewModelProvider;
 import androidx.navigation.Navigation;
 
 import com.codepath_group16.unigram.R;
+import com.codepath_group16.unigram.data.upload.CaptureFiles;
 import com.codepath_group16.unigram.databinding.FragmentCaptureImageBinding;
-import com.google.common.util.concurrent.ListenableFuture;
 
 import java.io.File;
-import java.text.SimpleDateFormat;
-import java.util.Objects;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Executor;
 
 import static androidx.core.content.PermissionChecker.PERMISSION_GRANTED;
 
@@ -41,12 +39,10 @@ import static androidx.core.content.PermissionChecker.PERMISSION_GRANTED;
 public class CaptureImageFragment extends Fragment {
 
     private final String TAG = getClass().getSimpleName();
-    private final String FILENAME_FORMAT = "yyyy-MM-dd-HH-mm-ss-SSS";
     private final int REQUEST_CODE_PERMISSIONS = 10;
     private final String[] REQUIRED_PERMISSIONS = {Manifest.permission.CAMERA};
-    private ImageCapture imageCapture = null;
-    private File outputDirectory;
-    private ExecutorService cameraExecutor;
+    private CameraSession mCameraSession;
+    private CaptureProfile mProfile;
     private FragmentCaptureImageBinding mBinding;
 
     public CaptureImageFragment() {
@@ -59,6 +55,13 @@ public class CaptureImageFragment extends Fragment {
         // Inflate the layout for this fragment
         mBinding = FragmentCaptureImageBinding.inflate(inflater, container, false);
 
+        // Kept by the activity so the camera stays open between the screens of the post flow
+        mCameraSession = new ViewModelProvider(requireActivity()).get(CameraSession.class);
+
+        mProfile = CaptureProfile.load(requireContext());
+        mBinding.captureProfileButton.setText(mProfile.label);
+        mBinding.captureProfileButton.setOnClickListener(v -> switchProfile());
+
         // Request camera permissions
         if (allPermissionsGranted()) {
             startCamera();
@@ -71,13 +74,15 @@ public class CaptureImageFragment extends Fragment {
         // Set up the listener for take photo button
         mBinding.cameraCaptureButton.setOnClickListener(v -> takePhoto());
 
-        outputDirectory = getOutputDirectory();
-
-        cameraExecutor = Executors.newSingleThreadExecutor();
-
         return mBinding.getRoot();
     }
 
+    @Override
+    public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+        timeFirstPreviewFrame();
+    }
+
     @Override
     public void onRequestPermissionsResult(int requestCode, @NonNull String[] permissions, @NonNull int[] grantResults) {
         if (requestCode == REQUEST_CODE_PERMISSIONS) {
@@ -107,112 +112,91 @@ public class CaptureImageFragment extends Fragment {
     }
 
     private void startCamera() {
-        ListenableFuture<ProcessCameraProvider> cameraProviderFuture = ProcessCameraProvider.getInstance(requireContext());
-
-        cameraProviderFuture.addListener(() -> {
-            // Used to bind the lifecycle of cameras to the lifecycle owner
-            ProcessCameraProvider cameraProvider = null;
-            try {
-                cameraProvider = cameraProviderFuture.get();
-            } catch (ExecutionException | InterruptedException e) {
-                e.printStackTrace();
-            }
-
-            // Preview
-            Preview preview = new Preview.Builder().build();
-            preview.setSurfaceProvider(mBinding.viewFinder.getSurfaceProvider());
-
-            imageCapture = new ImageCapture.Builder()
-                    .build();
-
-            // Select back camera as a default
-            CameraSelector cameraSelector = CameraSelector.DEFAULT_BACK_CAMERA;
-
-
-            try {
-                // Unbind use cases before rebinding
-                Objects.requireNonNull(cameraProvider).unbindAll();
+        mCameraSession.bind(requireActivity(), mProfile, mBinding.viewFinder);
+    }
 
-                // Bind use cases to camera
-                cameraProvider.bindToLifecycle(
-                        requireActivity(), cameraSelector, preview, imageCapture);
+    private void switchProfile() {
+        mProfile = mProfile.next();
+        mProfile.save(requireContext());
+        mBinding.captureProfileButton.setText(mProfile.label);
+        if (allPermissionsGranted()) {
+            startCamera();
+        }
+    }
 
-            } catch (Exception exc) {
-                Log.e(TAG, "Use case binding failed", exc);
+    /**
+     * Logs how long the preview took to show the camera, and whether it was open already.
+     */
+    private void timeFirstPreviewFrame() {
+        long openedAt = SystemClock.elapsedRealtime();
+        boolean bound = mCameraSession.isBound();
+        LiveData<PreviewView.StreamState> streamState = mBinding.viewFinder.getPreviewStreamState();
+        streamState.observe(getViewLifecycleOwner(), new Observer<PreviewView.StreamState>() {
+            @Override
+            public void onChanged(PreviewView.StreamState state) {
+                if (state == PreviewView.StreamState.STREAMING) {
+                    CaptureLatency.onFirstPreviewFrame(SystemClock.elapsedRealtime() - openedAt, bound);
+                    streamState.removeObserver(this);
+                }
             }
-
-        }, ContextCompat.getMainExecutor(requireContext()));
+        });
     }
 
     private void takePhoto() {
         // Get a stable reference of the modifiable image capture use case
+        ImageCapture imageCapture = mCameraSession.getImageCapture();
         if (imageCapture == null) {
             return;
         }
 
 
-        // Create time-stamped output file to hold the image
-        File photoFile = new File(
-                outputDirectory,
-                new SimpleDateFormat(FILENAME_FORMAT, Resources.getSystem().getConfiguration().locale
-                ).format(System.currentTimeMillis()) + ".jpg"
-        );
+        // The photo is written once into private storage and uploaded from there, the upload
+        // queue deletes it once the post is done with
+        File photoFile = CaptureFiles.newFile(requireContext());
 
         // Create output options object which contains file + metadata
         ImageCapture.OutputFileOptions outputOptions = new ImageCapture.OutputFileOptions.Builder(photoFile).build();
 
 
         // Set up image capture listener, which is triggered after photo has
-        // been taken
-        imageCapture.takePicture(outputOptions, ContextCompat.getMainExecutor(requireContext()), new ImageCapture.OnImageSavedCallback() {
+        // been taken. It runs on the camera executor, only navigating is left to the main thread
+        Executor mainExecutor = ContextCompat.getMainExecutor(requireContext());
+        CaptureLatency.onShutter(photoFile, mProfile);
+        imageCapture.takePicture(outputOptions, mCameraSession.getExecutor(), new ImageCapture.OnImageSavedCallback() {
             @Override
             public void onImageSaved(@NonNull ImageCapture.OutputFileResults outputFileResults) {
+                CaptureLatency.onSaved(photoFile);
                 Uri savedUri = Uri.fromFile(photoFile);
-                String msg = "Photo capture succeeded: " + savedUri;
-                Navigation.findNavController(mBinding.getRoot()).navigate(
-                        CaptureImageFragmentDirections.actionNavigationCaptureImageToNavigationImagePreview(savedUri)
-                );
-                Log.d(TAG, msg);
+                Log.d(TAG, "Photo capture succeeded: " + savedUri);
+                mainExecutor.execute(() -> {
+                    if (!isResumed()) {
+                        // Left the screen while the photo was written, nothing will post it
+                        CaptureLatency.onFailed(photoFile);
+                        //noinspection ResultOfMethodCallIgnored
+                        photoFile.delete();
+                        return;
+                    }
+                    Navigation.findNavController(mBinding.getRoot()).navigate(
+                            CaptureImageFragmentDirections.actionNavigationCaptureImageToNavigationImagePreview(savedUri)
+                    );
+                });
             }
 
             @Override
             public void onError(@NonNull ImageCaptureException exc) {
-                Log.e(TAG, "Photo capture failed: ${exc.message}", exc);
+                Log.e(TAG, "Photo capture failed: " + exc.getMessage(), exc);
+                CaptureLatency.onFailed(photoFile);
+                //noinspection ResultOfMethodCallIgnored
+                photoFile.delete();
             }
         });
 
     }
 
-    private File getOutputDirectory() {
-
-        File[] mediaDir = requireContext().getExternalMediaDirs();
-
-        File file;
-        if (mediaDir.length > 0) {
-            file = mediaDir[0];
-        } else {
-            file = null;
-        }
-
-        if (file != null) {
-            File outputFile = new File(file, requireContext().getResources().getString(R.string.app_name));
-            if (outputFile.mkdirs()) {
-                file = outputFile;
-            }
-        }
-
-        if (file != null && file.exists()) {
-            return file;
-        } else {
-            return requireContext().getFilesDir();
-        }
-
-    }
-
     @Override
-    public void onDestroy() {
-        super.onDestroy();
-        cameraExecutor.shutdown();
+    public void onDestroyView() {
+        super.onDestroyView();
+        mCameraSession.detachPreview();
     }
 
 }
@@ -0,0 +1,89 @@
+package com.codepath_group16.unigram.ui.post;
+
+import android.net.Uri;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.codepath_group16.unigram.metrics.Metrics;
+
+import java.io.File;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Times each capture from the press of the shutter until the photo shows in the preview, with
+ * how long the camera took to write it on the way, and the time the camera takes to show.
+ * Both are logged and recorded in {@link Metrics}, by capture profile and by whether the camera
+ * was reused.
+ */
+final class CaptureLatency {
+
+    private static final String TAG = "CaptureLatency";
+
+    /**
+     * Captures on their way to the preview, by the path of their photo.
+     */
+    private static final Map<String, Capture> sCaptures = new ConcurrentHashMap<>();
+
+    private CaptureLatency() {
+    }
+
+    static void onShutter(@NonNull File photo, @NonNull CaptureProfile profile) {
+        sCaptures.put(photo.getPath(), new Capture(profile));
+    }
+
+    static void onSaved(@NonNull File photo) {
+        Capture capture = sCaptures.get(photo.getPath());
+        if (capture != null) {
+            capture.savedAt = SystemClock.elapsedRealtime();
+        }
+    }
+
+    static void onFailed(@NonNull File photo) {
+        sCaptures.remove(photo.getPath());
+    }
+
+    /**
+     * Records the capture of {@code photo} once the preview shows it, only the first time.
+     */
+    static void onShown(@NonNull Uri photo) {
+        String path = photo.getPath();
+        Capture capture = path != null ? sCaptures.remove(path) : null;
+        if (capture == null) {
+            return;
+        }
+        long shownAt = SystemClock.elapsedRealtime();
+        String profile = capture.profile.name().toLowerCase(Locale.US);
+        Metrics metrics = Metrics.getInstance();
+        metrics.timer("capture.shutter_to_preview." + profile).recordMillis(shownAt - capture.shutterAt);
+        if (capture.savedAt > 0) {
+            metrics.timer("capture.shutter_to_saved." + profile).recordMillis(capture.savedAt - capture.shutterAt);
+        }
+        Log.i(TAG, "Capture " + capture.profile + ": shutter to preview "
+                + (shownAt - capture.shutterAt) + " ms, saved after "
+                + (capture.savedAt - capture.shutterAt) + " ms");
+    }
+
+    /**
+     * Records how long the capture screen waited for the first frame of the preview,
+     * {@code bound} tells whether the camera was still open from an earlier visit.
+     */
+    static void onFirstPreviewFrame(long millis, boolean bound) {
+        Metrics.getInstance().timer("capture.first_preview_frame." + (bound ? "reused" : "opened"))
+                .recordMillis(millis);
+        Log.i(TAG, "First preview frame after " + millis + " ms, camera " + (bound ? "reused" : "opened"));
+    }
+
+    private static class Capture {
+        final CaptureProfile profile;
+        final long shutterAt = SystemClock.elapsedRealtime();
+        volatile long savedAt;
+
+        Capture(CaptureProfile profile) {
+            this.profile = profile;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.codepath_group16.unigram.ui.post;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Size;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.StringRes;
+import androidx.camera.core.ImageCapture;
+
+import com.codepath_group16.unigram.R;
+import com.codepath_group16.unigram.data.models.ImageVariant;
+
+/**
+ * How the camera takes a photo, chosen by the user on the capture screen and kept for the next
+ * capture.
+ */
+enum CaptureProfile {
+    /**
+     * Takes the photo as soon as possible, at about the size it is uploaded in, so it is quick to
+     * write and the upload queue can often send it as it is.
+     */
+    LATENCY(ImageCapture.CAPTURE_MODE_MINIMIZE_LATENCY, R.string.capture_profile_latency) {
+        @Override
+        ImageCapture.Builder apply(ImageCapture.Builder builder) {
+            // 4:3 in portrait, the camera picks the closest size it supports
+            int maxEdge = ImageVariant.FULL.maxEdge;
+            return super.apply(builder).setTargetResolution(new Size(maxEdge * 3 / 4, maxEdge));
+        }
+    },
+    /**
+     * Takes the photo at the full resolution of the sensor with the best processing it has.
+     */
+    QUALITY(ImageCapture.CAPTURE_MODE_MAXIMIZE_QUALITY, R.string.capture_profile_quality);
+
+    private static final String PREFERENCES = "capture";
+    private static final String KEY_PROFILE = "profile";
+
+    private final int mCaptureMode;
+    @StringRes
+    final int label;
+
+    CaptureProfile(int captureMode, @StringRes int label) {
+        mCaptureMode = captureMode;
+        this.label = label;
+    }
+
+    ImageCapture.Builder apply(ImageCapture.Builder builder) {
+        return builder.setCaptureMode(mCaptureMode);
+    }
+
+    CaptureProfile next() {
+        CaptureProfile[] profiles = values();
+        return profiles[(ordinal() + 1) % profiles.length];
+    }
+
+    /**
+     * The profile the user chose last, {@link #LATENCY} until they choose one.
+     */
+    static CaptureProfile load(@NonNull Context context) {
+        String name = preferences(context).getString(KEY_PROFILE, LATENCY.name());
+        for (CaptureProfile profile : values()) {
+            if (profile.name().equals(name)) {
+                return profile;
+            }
+        }
+        return LATENCY;
+    }
+
+    void save(@NonNull Context context) {
+        preferences(context).edit().putString(KEY_PROFILE, name()).apply();
+    }
+
+    private static SharedPreferences preferences(Context context) {
+        return context.getSharedPreferences(PREFERENCES, Context.MODE_PRIVATE);
+    }
+}
@@ -1,15 +1,9 @@
 package com.codepath_group16.unigram.ui.post;
 
 import android.content.Context;
-import android.graphics.Bitmap;
-import android.net.ConnectivityManager;
-import android.net.NetworkInfo;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
-import android.os.Handler;
-import android.os.Looper;
-import android.provider.MediaStore;
 import android.view.LayoutInflater;
 import android.view.Menu;
 import android.view.MenuInflater;
@@ -27,23 +21,24 @@ import androidx.fragment.app.Fragment;
 import androidx.navigation.Navigation;
 
 import com.bumptech.glide.Glide;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
 import com.codepath_group16.unigram.R;
-import com.codepath_group16.unigram.data.models.Post;
+import com.codepath_group16.unigram.data.upload.UploadQueue;
 import com.codepath_group16.unigram.databinding.FragmentCompletePostBinding;
 import com.google.android.material.snackbar.Snackbar;
-import com.parse.ParseFile;
 import com.parse.ParseUser;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.util.Objects;
 
 public class CompletePostFragment extends Fragment {
 
+    private static final String KEY_PENDING_POST_ID = "pendingPostId";
+    private final UploadQueue.Listener mUploadListener = new PendingPostListener();
     private FragmentCompletePostBinding mBinding;
     private Uri mImageUri;
     private ProgressBar mProgressBar;
     private Group mPosting;
+    private String mPendingPostId;
 
     @Override
     public void onCreate(Bundle savedInstanceState) {
@@ -69,8 +64,18 @@ public class CompletePostFragment extends Fragment {
         mProgressBar = mBinding.progressBar;
         mPosting = mBinding.posting;
 
+        if (savedInstanceState != null) {
+            mPendingPostId = savedInstanceState.getString(KEY_PENDING_POST_ID);
+        }
+        UploadQueue uploadQueue = UploadQueue.getInstance(requireContext());
+        uploadQueue.addListener(mUploadListener);
+        if (mPendingPostId != null && uploadQueue.isPending(mPendingPostId)) {
+            mPosting.setVisibility(View.VISIBLE);
+        }
+
         Glide.with(requireContext())
                 .load(mImageUri)
+                .diskCacheStrategy(DiskCacheStrategy.NONE)
                 .centerCrop()
                 .into(mBinding.selectedImage);
     }
@@ -84,6 +89,11 @@ public class CompletePostFragment extends Fragment {
     @Override
     public boolean onOptionsItemSelected(@NonNull MenuItem item) {
         if (item.getItemId() == R.id.action_post) {
+            UploadQueue uploadQueue = UploadQueue.getInstance(requireContext());
+            if (mPendingPostId != null && uploadQueue.isPending(mPendingPostId)) {
+                // Tapped again while the post is queued, it would be shared twice
+                return true;
+            }
             mBinding.getRoot().clearFocus();
             if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
                 mBinding.getRoot().getWindowInsetsController().hide(WindowInsets.Type.ime());
@@ -92,91 +102,78 @@ public class CompletePostFragment extends Fragment {
                 inputMethodManager.hideSoftInputFromWindow(mBinding.getRoot().getWindowToken(), 0);
             }
 
-            // Post image in background tasks since it reads image from disk
-            Runnable runnable = this::postImage;
-            new Thread(runnable).start();
-
-
+            // The queue reads, encodes and uploads the image in the background and keeps
+            // retrying even if we leave this screen
+            mPosting.setVisibility(View.VISIBLE);
+            String caption = Objects.requireNonNull(mBinding.captionInput.getEditText()).getText().toString();
+            mPendingPostId = uploadQueue.enqueue(caption, mImageUri, ParseUser.getCurrentUser());
         }
         return super.onOptionsItemSelected(item);
     }
 
-    private void postImage() {
-        // Use the handler to update the UI
-        Handler handler = new Handler(Looper.getMainLooper());
-        Post post = new Post();
-        post.setCaption(Objects.requireNonNull(mBinding.captionInput.getEditText()).getText().toString());
-
-        handler.post(() -> mPosting.setVisibility(View.VISIBLE));
-
-        byte[] image;
+    @Override
+    public void onSaveInstanceState(@NonNull Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putString(KEY_PENDING_POST_ID, mPendingPostId);
+    }
 
-        Bitmap bitmap = null;
-        try {
-            bitmap = MediaStore.Images.Media.getBitmap(requireContext().getContentResolver(), mImageUri);
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-        ByteArrayOutputStream stream = new ByteArrayOutputStream();
-        Objects.requireNonNull(bitmap).compress(Bitmap.CompressFormat.PNG, 100, stream);
-        image = stream.toByteArray();
-        ParseFile parseImageFile = new ParseFile("post.png", image);
-
-        if (isConnected()) {
-            parseImageFile.saveInBackground(e -> {
-                if (e == null) {
-                    post.setImage(parseImageFile);
-                    completePostingImage(post);
-                } else {
-                    Snackbar.make(mBinding.getRoot(), Objects.requireNonNull(e.getLocalizedMessage()), Snackbar.LENGTH_SHORT).show();
-                    handler.post(() -> mPosting.setVisibility(View.GONE));
-                }
-            }, percentDone -> setProgressBar(percentDone - 20));
-        } else {
-            handler.post(() -> mPosting.setVisibility(View.GONE));
-            handler.post(() -> Snackbar.make(mBinding.getRoot(), R.string.no_connection, Snackbar.LENGTH_SHORT).show());
-        }
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        UploadQueue.getInstance(requireContext()).removeListener(mUploadListener);
+        mBinding = null;
     }
 
     private void setProgressBar(int i) {
-        Handler handler = new Handler(Looper.getMainLooper());
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
-            handler.post(() -> mProgressBar.setProgress(i, true));
+            mProgressBar.setProgress(i, true);
         } else {
-            handler.post(() -> mProgressBar.setProgress(i));
+            mProgressBar.setProgress(i);
         }
     }
 
-    private void completePostingImage(Post post) {
-        post.setAuthor(ParseUser.getCurrentUser());
+    /**
+     * Mirrors the state of the post we queued on this screen, the callbacks come on the main
+     * thread.
+     */
+    private class PendingPostListener implements UploadQueue.Listener {
 
-        Handler handler = new Handler(Looper.getMainLooper());
+        @Override
+        public void onProgress(@NonNull String id, int percent) {
+            if (id.equals(mPendingPostId)) {
+                setProgressBar(percent);
+            }
+        }
 
-        if (isConnected()) {
-            post.saveInBackground(e -> {
-                if (e == null) {
-                    setProgressBar(100);
-                    Navigation.findNavController(mBinding.getRoot()).navigate(
-                            CompletePostFragmentDirections.actionNavigationCompletePostToNavigationFeed()
-                    );
-                } else {
-                    handler.post(() -> {
-                        Snackbar.make(mBinding.getRoot(), Objects.requireNonNull(e.getLocalizedMessage()), Snackbar.LENGTH_SHORT).show();
-                        mPosting.setVisibility(View.GONE);
-                    });
-                }
-            });
-        } else {
-            handler.post(() -> {
+        @Override
+        public void onWaitingForNetwork(@NonNull String id) {
+            if (id.equals(mPendingPostId)) {
                 mPosting.setVisibility(View.GONE);
-                Snackbar.make(mBinding.getRoot(), R.string.no_connection, Snackbar.LENGTH_SHORT).show();
-            });
+                Snackbar.make(mBinding.getRoot(), R.string.upload_waiting_for_network, Snackbar.LENGTH_LONG).show();
+            }
+        }
+
+        @Override
+        public void onUploaded(@NonNull String id) {
+            if (id.equals(mPendingPostId)) {
+                mPendingPostId = null;
+                Navigation.findNavController(mBinding.getRoot()).navigate(
+                        CompletePostFragmentDirections.actionNavigationCompletePostToNavigationFeed()
+                );
+            }
         }
-    }
 
-    private boolean isConnected() {
-        ConnectivityManager cm = (ConnectivityManager) requireContext().getSystemService(Context.CONNECTIVITY_SERVICE);
-        NetworkInfo activeNetwork = cm.getActiveNetworkInfo();
-        return activeNetwork != null && activeNetwork.isConnectedOrConnecting();
+        @Override
+        public void onFailed(@NonNull String id, @NonNull Exception e, boolean willRetry) {
+            if (id.equals(mPendingPostId)) {
+                mPosting.setVisibility(View.GONE);
+                if (willRetry) {
+                    Snackbar.make(mBinding.getRoot(), R.string.upload_retrying, Snackbar.LENGTH_LONG).show();
+                } else {
+                    mPendingPostId = null;
+                    Snackbar.make(mBinding.getRoot(), Objects.requireNonNull(e.getLocalizedMessage()), Snackbar.LENGTH_SHORT).show();
+                }
+            }
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,87 @@
+package com.codepath_group16.unigram.ui.post;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The loaded window of the gallery after a change, together with the inserts and removals that
+ * turn the previous version into this one.
+ * <p>
+ * The operations are in the order they were applied and their positions are indexes into
+ * {@link #images}, so they can be dispatched to an adapter one by one. Anyone that doesn't hold
+ * {@link #baseVersion} (a new adapter, or one that missed a patch) should show {@link #images}
+ * as a whole instead.
+ */
+class GalleryPatch {
+
+    final int baseVersion;
+    final int version;
+    /**
+     * Snapshot of the loaded images after the patch, newest first. Never modified.
+     */
+    @NonNull
+    final GallerySnapshot images;
+    /**
+     * Null when the snapshot was loaded from scratch and there is nothing to patch.
+     */
+    @Nullable
+    final List<Op> ops;
+    /**
+     * Whether the window starts at the newest image and ends at the oldest one of the gallery.
+     */
+    final boolean reachedStart;
+    final boolean reachedEnd;
+
+    GalleryPatch(int baseVersion, int version, @NonNull GallerySnapshot images, @Nullable List<Op> ops,
+                 boolean reachedStart, boolean reachedEnd) {
+        this.baseVersion = baseVersion;
+        this.version = version;
+        this.images = images;
+        this.ops = ops == null ? null : Collections.unmodifiableList(ops);
+        this.reachedStart = reachedStart;
+        this.reachedEnd = reachedEnd;
+    }
+
+    boolean canApplyTo(int version) {
+        return ops != null && baseVersion == version;
+    }
+
+    /**
+     * Whether {@code image} would be in {@link #images} if it still exists, as opposed to being
+     * out of the loaded window.
+     */
+    boolean covers(@NonNull MediaStoreImage image) {
+        return images.covers(reachedStart, reachedEnd, image);
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "GalleryPatch{" + baseVersion + "->" + version + ", images=" + images.size()
+                + ", ops=" + ops + ", reachedStart=" + reachedStart + ", reachedEnd=" + reachedEnd + "}";
+    }
+
+    static class Op {
+        static final int INSERT = 0;
+        static final int REMOVE = 1;
+
+        final int type;
+        final int position;
+        int count;
+
+        Op(int type, int position, int count) {
+            this.type = type;
+            this.position = position;
+            this.count = count;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return (type == INSERT ? "+" : "-") + count + "@" + position;
+        }
+    }
+}
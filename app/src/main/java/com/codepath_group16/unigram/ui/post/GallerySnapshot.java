@@ -0,0 +1,343 @@
+package com.codepath_group16.unigram.ui.post;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
+
+import java.util.Arrays;
+
+/**
+ * Images of the gallery stored as columns of primitives, newest first.
+ * <p>
+ * A row is three longs and an int, against a {@link MediaStoreImage} with its {@code Uri} per row before,
+ * so a snapshot of tens of thousands of images is a handful of arrays instead of well over a
+ * hundred thousand objects. {@link MediaStoreImage}s are only created by {@link #get(int)},
+ * when a cell is bound. Snapshots are never modified, {@link Builder} makes new ones.
+ */
+final class GallerySnapshot {
+
+    static final GallerySnapshot EMPTY = new GallerySnapshot(new long[0], new long[0], new long[0], new int[0], 0);
+
+    private final long[] mIds;
+    private final long[] mDatesAdded;
+    private final long[] mDatesModified;
+    private final int[] mOrientations;
+    private final int mSize;
+
+    private GallerySnapshot(long[] ids, long[] datesAdded, long[] datesModified, int[] orientations, int size) {
+        mIds = ids;
+        mDatesAdded = datesAdded;
+        mDatesModified = datesModified;
+        mOrientations = orientations;
+        mSize = size;
+    }
+
+    int size() {
+        return mSize;
+    }
+
+    boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    long getId(int position) {
+        checkPosition(position, mSize);
+        return mIds[position];
+    }
+
+    long getDateAdded(int position) {
+        checkPosition(position, mSize);
+        return mDatesAdded[position];
+    }
+
+    long getDateModified(int position) {
+        checkPosition(position, mSize);
+        return mDatesModified[position];
+    }
+
+    @NonNull
+    MediaStoreImage get(int position) {
+        checkPosition(position, mSize);
+        return new MediaStoreImage(mIds[position], mDatesAdded[position], mDatesModified[position],
+                mOrientations[position]);
+    }
+
+    /**
+     * Returns the position of {@code image}, or -1 when it isn't there.
+     */
+    int indexOf(@Nullable MediaStoreImage image) {
+        if (image == null) {
+            return -1;
+        }
+        int position = search(mIds, mDatesAdded, mSize, image.id, image.dateAdded);
+        return position >= 0 ? position : -1;
+    }
+
+    /**
+     * Whether {@code image} falls in the key range of this snapshot. A window that reached the
+     * start or the end of the gallery is open on that side.
+     */
+    boolean covers(boolean reachedStart, boolean reachedEnd, @NonNull MediaStoreImage image) {
+        return covers(mIds, mDatesAdded, mSize, reachedStart, reachedEnd, image.id, image.dateAdded);
+    }
+
+    /**
+     * Diffs this snapshot with a newer one by comparing the columns. Rows are the same image
+     * when their ids match, and unchanged as long as the image wasn't modified or rotated.
+     */
+    @NonNull
+    DiffUtil.Callback diffCallback(@NonNull GallerySnapshot newSnapshot) {
+        GallerySnapshot oldSnapshot = this;
+        return new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return oldSnapshot.mSize;
+            }
+
+            @Override
+            public int getNewListSize() {
+                return newSnapshot.mSize;
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+                return oldSnapshot.mIds[oldItemPosition] == newSnapshot.mIds[newItemPosition];
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+                return oldSnapshot.mDatesModified[oldItemPosition] == newSnapshot.mDatesModified[newItemPosition]
+                        && oldSnapshot.mOrientations[oldItemPosition] == newSnapshot.mOrientations[newItemPosition];
+            }
+        };
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "GallerySnapshot{size=" + mSize + "}";
+    }
+
+    /**
+     * Order of the gallery, newest first. Images added in the same second are ordered by id.
+     */
+    static int compare(long dateAddedA, long idA, long dateAddedB, long idB) {
+        int byDate = Long.compare(dateAddedB, dateAddedA);
+        return byDate != 0 ? byDate : Long.compare(idB, idA);
+    }
+
+    private static boolean covers(long[] ids, long[] datesAdded, int size, boolean reachedStart,
+                                  boolean reachedEnd, long id, long dateAdded) {
+        if (!reachedStart && (size == 0 || compare(dateAdded, id, datesAdded[0], ids[0]) < 0)) {
+            return false;
+        }
+        return reachedEnd || (size > 0 && compare(dateAdded, id, datesAdded[size - 1], ids[size - 1]) <= 0);
+    }
+
+    /**
+     * Binary search in the gallery order, like {@link Arrays#binarySearch(long[], long)}.
+     */
+    private static int search(long[] ids, long[] datesAdded, int size, long id, long dateAdded) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = compare(datesAdded[middle], ids[middle], dateAdded, id);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private static void checkPosition(int position, int size) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("position " + position + ", size " + size);
+        }
+    }
+
+    /**
+     * Growable columns to build snapshots from. Rows are kept in the gallery order by
+     * {@link #insert(long, long, long, int)}, {@link #add(long, long, long, int)} expects them in
+     * order.
+     */
+    static final class Builder {
+        private long[] mIds;
+        private long[] mDatesAdded;
+        private long[] mDatesModified;
+        private int[] mOrientations;
+        private int mSize;
+
+        Builder() {
+            this(16);
+        }
+
+        Builder(int capacity) {
+            capacity = Math.max(capacity, 1);
+            mIds = new long[capacity];
+            mDatesAdded = new long[capacity];
+            mDatesModified = new long[capacity];
+            mOrientations = new int[capacity];
+        }
+
+        int size() {
+            return mSize;
+        }
+
+        boolean isEmpty() {
+            return mSize == 0;
+        }
+
+        long getId(int position) {
+            checkPosition(position, mSize);
+            return mIds[position];
+        }
+
+        long getDateAdded(int position) {
+            checkPosition(position, mSize);
+            return mDatesAdded[position];
+        }
+
+        long getDateModified(int position) {
+            checkPosition(position, mSize);
+            return mDatesModified[position];
+        }
+
+        int getOrientation(int position) {
+            checkPosition(position, mSize);
+            return mOrientations[position];
+        }
+
+        void add(long id, long dateAdded, long dateModified, int orientation) {
+            addAt(mSize, id, dateAdded, dateModified, orientation);
+        }
+
+        /**
+         * Inserts the row where it belongs in the gallery order and returns its position.
+         */
+        int insert(long id, long dateAdded, long dateModified, int orientation) {
+            int position = search(mIds, mDatesAdded, mSize, id, dateAdded);
+            if (position < 0) {
+                position = -(position + 1);
+            }
+            addAt(position, id, dateAdded, dateModified, orientation);
+            return position;
+        }
+
+        void addAll(int position, @NonNull Builder rows) {
+            if (position < 0 || position > mSize) {
+                throw new IndexOutOfBoundsException("position " + position + ", size " + mSize);
+            }
+            ensureCapacity(mSize + rows.mSize);
+            System.arraycopy(mIds, position, mIds, position + rows.mSize, mSize - position);
+            System.arraycopy(mDatesAdded, position, mDatesAdded, position + rows.mSize, mSize - position);
+            System.arraycopy(mDatesModified, position, mDatesModified, position + rows.mSize, mSize - position);
+            System.arraycopy(mOrientations, position, mOrientations, position + rows.mSize, mSize - position);
+            System.arraycopy(rows.mIds, 0, mIds, position, rows.mSize);
+            System.arraycopy(rows.mDatesAdded, 0, mDatesAdded, position, rows.mSize);
+            System.arraycopy(rows.mDatesModified, 0, mDatesModified, position, rows.mSize);
+            System.arraycopy(rows.mOrientations, 0, mOrientations, position, rows.mSize);
+            mSize += rows.mSize;
+        }
+
+        void remove(int position) {
+            removeRange(position, position + 1);
+        }
+
+        void removeRange(int from, int to) {
+            if (from < 0 || to > mSize || from > to) {
+                throw new IndexOutOfBoundsException("range " + from + "-" + to + ", size " + mSize);
+            }
+            System.arraycopy(mIds, to, mIds, from, mSize - to);
+            System.arraycopy(mDatesAdded, to, mDatesAdded, from, mSize - to);
+            System.arraycopy(mDatesModified, to, mDatesModified, from, mSize - to);
+            System.arraycopy(mOrientations, to, mOrientations, from, mSize - to);
+            mSize -= to - from;
+        }
+
+        void clear() {
+            mSize = 0;
+        }
+
+        void reverse() {
+            for (int i = 0, j = mSize - 1; i < j; i++, j--) {
+                swap(mIds, i, j);
+                swap(mDatesAdded, i, j);
+                swap(mDatesModified, i, j);
+                int orientation = mOrientations[i];
+                mOrientations[i] = mOrientations[j];
+                mOrientations[j] = orientation;
+            }
+        }
+
+        /**
+         * Same as {@link GallerySnapshot#covers(boolean, boolean, MediaStoreImage)}.
+         */
+        boolean covers(boolean reachedStart, boolean reachedEnd, long id, long dateAdded) {
+            return GallerySnapshot.covers(mIds, mDatesAdded, mSize, reachedStart, reachedEnd, id, dateAdded);
+        }
+
+        /**
+         * Returns the position of the row with {@code id}, or -1. This is a linear scan, which is
+         * fine for the few hundred rows of a window.
+         */
+        int indexOfId(long id) {
+            for (int i = 0; i < mSize; i++) {
+                if (mIds[i] == id) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @NonNull
+        GallerySnapshot build() {
+            if (mSize == 0) {
+                return EMPTY;
+            }
+            return new GallerySnapshot(
+                    Arrays.copyOf(mIds, mSize),
+                    Arrays.copyOf(mDatesAdded, mSize),
+                    Arrays.copyOf(mDatesModified, mSize),
+                    Arrays.copyOf(mOrientations, mSize),
+                    mSize
+            );
+        }
+
+        private void addAt(int position, long id, long dateAdded, long dateModified, int orientation) {
+            if (position < 0 || position > mSize) {
+                throw new IndexOutOfBoundsException("position " + position + ", size " + mSize);
+            }
+            ensureCapacity(mSize + 1);
+            System.arraycopy(mIds, position, mIds, position + 1, mSize - position);
+            System.arraycopy(mDatesAdded, position, mDatesAdded, position + 1, mSize - position);
+            System.arraycopy(mDatesModified, position, mDatesModified, position + 1, mSize - position);
+            System.arraycopy(mOrientations, position, mOrientations, position + 1, mSize - position);
+            mIds[position] = id;
+            mDatesAdded[position] = dateAdded;
+            mDatesModified[position] = dateModified;
+            mOrientations[position] = orientation;
+            mSize++;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > mIds.length) {
+                int newCapacity = Math.max(capacity, mIds.length * 2);
+                mIds = Arrays.copyOf(mIds, newCapacity);
+                mDatesAdded = Arrays.copyOf(mDatesAdded, newCapacity);
+                mDatesModified = Arrays.copyOf(mDatesModified, newCapacity);
+                mOrientations = Arrays.copyOf(mOrientations, newCapacity);
+            }
+        }
+
+        private static void swap(long[] column, int i, int j) {
+            long value = column[i];
+            column[i] = column[j];
+            column[j] = value;
+        }
+    }
+}
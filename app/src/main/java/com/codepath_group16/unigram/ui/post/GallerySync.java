@@ -0,0 +1,633 @@
+package com.codepath_group16.unigram.ui.post;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
+import android.os.StrictMode;
+import android.provider.MediaStore;
+import android.text.TextUtils;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.codepath_group16.unigram.AppExecutors;
+import com.codepath_group16.unigram.metrics.Counter;
+import com.codepath_group16.unigram.metrics.Metrics;
+import com.codepath_group16.unigram.metrics.Timer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps a window of the images in the MediaStore loaded and up to date without reading the whole
+ * library, neither to show it nor on every change.
+ * <p>
+ * The window is loaded a page at a time with keyset queries on ({@code DATE_ADDED},
+ * {@code _ID}), starting with the newest page. {@link #loadAfter(int)} and
+ * {@link #loadBefore(int)} extend it as the gallery scrolls and {@link #trim(int, int, int)}
+ * drops the pages that scrolled far away, so memory stays bounded whatever the size of the
+ * library.
+ * <p>
+ * After a change only the window is checked again:
+ * <ul>
+ * <li>the rows added after the newest one in the window, when it starts at the newest image,</li>
+ * <li>the rows whose uri the {@link ContentObserver} was notified about, to find deleted and
+ * updated images,</li>
+ * <li>the {@code _ID} column of the window's key range when a notification didn't say which
+ * rows changed.</li>
+ * </ul>
+ * Rows outside of the window are left to the keyset queries that load it later. Notifications
+ * are coalesced for {@link #COALESCE_DELAY_MILLIS} so a burst of camera shots ends up as one
+ * sync. Every change to the window is published as a {@link GalleryPatch}.
+ * <p>
+ * Queries run on the shared {@link AppExecutors#diskIO()} pool, one at a time, and the state of
+ * the window is only touched from there. A newer request cancels an incremental sync that is
+ * still querying, the window is left as it was and the newer sync picks up its changes. Loading
+ * pages is never cancelled this way, a constant stream of changes could starve it. Only
+ * complete patches are delivered, in order, on the main thread.
+ */
+class GallerySync {
+
+    static final int PAGE_SIZE = 60;
+
+    private static final String TAG = "GallerySync";
+    private static final Timer QUERY_TIMER = Metrics.getInstance().timer("gallery.query");
+    private static final Counter ROWS_SCANNED = Metrics.getInstance().counter("gallery.rows_scanned");
+    private static final long COALESCE_DELAY_MILLIS = 250;
+    /**
+     * Past this many changed rows, checking every id of the window is cheaper than looking them
+     * up one by one.
+     */
+    private static final int MAX_DIRTY_IDS = 200;
+
+    private static final String UNVERSIONED_MEDIA_STORE = "";
+
+    private static final Uri IMAGES_URI = MediaStore.Images.Media.EXTERNAL_CONTENT_URI;
+    /**
+     * The grid never shows display names, so they aren't read. DATE_MODIFIED tells when the
+     * thumbnail of an image has to be loaded again.
+     */
+    private static final String[] PROJECTION = {
+            MediaStore.Images.Media._ID,
+            MediaStore.Images.Media.DATE_ADDED,
+            MediaStore.Images.Media.DATE_MODIFIED,
+            // Thumbnails and decodes before Android 10 don't apply it, the loader does
+            MediaStore.Images.ImageColumns.ORIENTATION
+    };
+    private static final String[] ID_PROJECTION = {MediaStore.Images.Media._ID};
+    private static final String SORT_ORDER = MediaStore.Images.Media.DATE_ADDED + " DESC, "
+            + MediaStore.Images.Media._ID + " DESC";
+    private static final String REVERSE_SORT_ORDER = MediaStore.Images.Media.DATE_ADDED + " ASC, "
+            + MediaStore.Images.Media._ID + " ASC";
+
+    interface Callback {
+        void onPatch(@NonNull GalleryPatch patch);
+    }
+
+    private interface Work {
+        void run(CancellationSignal signal);
+    }
+
+    private final Context mContext;
+    private final ContentResolver mContentResolver;
+    private final Callback mCallback;
+    private final ContentObserver mContentObserver;
+    private final AppExecutors mExecutors;
+    private final Executor mSerialExecutor;
+    private final Runnable mSyncTask = this::sync;
+
+    // Written on the serial executor, read from the threads that cancel it
+    private volatile CancellationSignal mRunningWork;
+    private volatile boolean mRunningWorkCancellable;
+
+    // Only touched on the serial executor
+    private ScheduledFuture<?> mPendingSync;
+    private final GallerySnapshot.Builder mWindow = new GallerySnapshot.Builder(PAGE_SIZE);
+    private boolean mReachedStart = true;
+    private boolean mReachedEnd;
+    private final Set<Long> mDirtyIds = new HashSet<>();
+    private boolean mFullCheck;
+    private boolean mLoaded;
+    private boolean mStarted;
+    private String mMediaStoreVersion;
+    private int mVersion;
+
+    GallerySync(@NonNull Context context, @NonNull Callback callback) {
+        mContext = context.getApplicationContext();
+        mContentResolver = mContext.getContentResolver();
+        mCallback = callback;
+        mExecutors = AppExecutors.getInstance();
+        mSerialExecutor = mExecutors.newSerialExecutor();
+        // Without a handler onChange is called on a binder thread instead of the main thread
+        mContentObserver = new ContentObserver(null) {
+            @Override
+            public void onChange(boolean selfChange) {
+                onChange(selfChange, null);
+            }
+
+            @Override
+            public void onChange(boolean selfChange, @Nullable Uri uri) {
+                markChanged(uri);
+            }
+        };
+    }
+
+    /**
+     * Loads the first page if it wasn't yet and starts listening for changes. Calling it again
+     * only checks the window for changes that may have been missed.
+     */
+    void start() {
+        cancelRunningSync();
+        mSerialExecutor.execute(() -> {
+            if (!mStarted) {
+                mStarted = true;
+                mContentResolver.registerContentObserver(IMAGES_URI, true, mContentObserver);
+            }
+            if (mLoaded) {
+                mFullCheck = true;
+            }
+            requestSync(0);
+        });
+    }
+
+    void stop() {
+        CancellationSignal running = mRunningWork;
+        if (running != null) {
+            running.cancel();
+        }
+        mSerialExecutor.execute(() -> {
+            if (mStarted) {
+                mStarted = false;
+                mContentResolver.unregisterContentObserver(mContentObserver);
+            }
+            if (mPendingSync != null) {
+                mPendingSync.cancel(false);
+                mPendingSync = null;
+            }
+        });
+    }
+
+    /**
+     * Loads the page of older images after the window. Ignored when {@code version} isn't the
+     * latest one anymore, the caller will look again once it has the newer patch.
+     */
+    void loadAfter(int version) {
+        mSerialExecutor.execute(() -> {
+            if (isCurrent(version) && !mReachedEnd && !mWindow.isEmpty()) {
+                runWork(false, signal -> publish(loadPage(false, signal)));
+            }
+        });
+    }
+
+    /**
+     * Loads the page of newer images before the window, see {@link #loadAfter(int)}.
+     */
+    void loadBefore(int version) {
+        mSerialExecutor.execute(() -> {
+            if (isCurrent(version) && !mReachedStart && !mWindow.isEmpty()) {
+                runWork(false, signal -> publish(loadPage(true, signal)));
+            }
+        });
+    }
+
+    /**
+     * Drops images from both ends of the window, they are loaded again when needed.
+     */
+    void trim(int fromStart, int fromEnd, int version) {
+        mSerialExecutor.execute(() -> {
+            if (!isCurrent(version) || fromStart < 0 || fromEnd < 0 || fromStart + fromEnd >= mWindow.size()) {
+                return;
+            }
+            List<GalleryPatch.Op> ops = new ArrayList<>();
+            if (fromEnd > 0) {
+                int position = mWindow.size() - fromEnd;
+                mWindow.removeRange(position, mWindow.size());
+                mReachedEnd = false;
+                ops.add(new GalleryPatch.Op(GalleryPatch.Op.REMOVE, position, fromEnd));
+            }
+            if (fromStart > 0) {
+                mWindow.removeRange(0, fromStart);
+                mReachedStart = false;
+                ops.add(new GalleryPatch.Op(GalleryPatch.Op.REMOVE, 0, fromStart));
+            }
+            Log.v(TAG, String.format("Trimmed %d + %d images, %d left", fromStart, fromEnd, mWindow.size()));
+            publish(newPatch(ops));
+        });
+    }
+
+    private boolean isCurrent(int version) {
+        return mStarted && mLoaded && version == mVersion;
+    }
+
+    private void markChanged(@Nullable Uri uri) {
+        cancelRunningSync();
+        long id = uri == null ? -1 : parseId(uri);
+        mSerialExecutor.execute(() -> {
+            if (id < 0) {
+                mFullCheck = true;
+            } else {
+                mDirtyIds.add(id);
+            }
+            // Restart the delay so a burst of notifications is handled once it settles
+            requestSync(COALESCE_DELAY_MILLIS);
+        });
+    }
+
+    private void requestSync(long delayMillis) {
+        if (mPendingSync != null) {
+            mPendingSync.cancel(false);
+        }
+        mPendingSync = mExecutors.scheduler().schedule(
+                () -> mSerialExecutor.execute(mSyncTask), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Cancels the incremental sync that is querying, if any. Whoever calls this must request a
+     * new sync, which will include the changes of the cancelled one.
+     */
+    private void cancelRunningSync() {
+        CancellationSignal running = mRunningWork;
+        if (running != null && mRunningWorkCancellable) {
+            running.cancel();
+        }
+    }
+
+    private void runWork(boolean cancellable, Work work) {
+        CancellationSignal signal = new CancellationSignal();
+        mRunningWorkCancellable = cancellable;
+        mRunningWork = signal;
+        try {
+            work.run(signal);
+        } catch (OperationCanceledException e) {
+            Log.v(TAG, "Superseded by a newer request");
+        } finally {
+            mRunningWork = null;
+        }
+    }
+
+    private void sync() {
+        if (!mStarted) {
+            return;
+        }
+        runWork(mLoaded, signal -> {
+            String mediaStoreVersion = mediaStoreVersion();
+            if (!mLoaded || !mediaStoreVersion.equals(mMediaStoreVersion)) {
+                // The MediaStore database was rebuilt, ids from the old one mean nothing
+                loadFirstPage(signal);
+                mMediaStoreVersion = mediaStoreVersion;
+                return;
+            }
+
+            // The changes stay marked until the sync succeeds, so a cancelled one loses nothing
+            boolean fullCheck = mFullCheck || mDirtyIds.size() > MAX_DIRTY_IDS;
+            Set<Long> dirtyIds = new HashSet<>(mDirtyIds);
+            GallerySnapshot.Builder added = new GallerySnapshot.Builder();
+            Set<Long> removed = new HashSet<>();
+            if (fullCheck) {
+                checkWindow(added, removed, signal);
+            } else {
+                if (mReachedStart) {
+                    queryNewerThanWindow(added, signal);
+                }
+                if (!dirtyIds.isEmpty()) {
+                    checkDirtyIds(dirtyIds, added, removed, signal);
+                }
+            }
+            signal.throwIfCanceled();
+            mFullCheck = false;
+            mDirtyIds.removeAll(dirtyIds);
+
+            if (added.isEmpty() && removed.isEmpty()) {
+                Log.v(TAG, "Nothing changed");
+                return;
+            }
+            GalleryPatch patch = apply(added, removed);
+            if (mWindow.isEmpty() && !(mReachedStart && mReachedEnd)) {
+                // Everything in the window is gone, there are no keys left to page from
+                loadFirstPage(signal);
+            } else {
+                publish(patch);
+            }
+        });
+    }
+
+    private void loadFirstPage(CancellationSignal signal) {
+        long start = System.nanoTime();
+        GallerySnapshot.Builder page = queryImages(null, SORT_ORDER, PAGE_SIZE, signal);
+        mWindow.clear();
+        mWindow.addAll(0, page);
+        mReachedStart = true;
+        mReachedEnd = page.size() < PAGE_SIZE;
+        mDirtyIds.clear();
+        mFullCheck = false;
+        mLoaded = true;
+        Log.i(TAG, String.format("Loaded the first %d images in %d ms", page.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+
+        int baseVersion = mVersion;
+        publish(new GalleryPatch(baseVersion, ++mVersion, mWindow.build(), null, mReachedStart, mReachedEnd));
+    }
+
+    /**
+     * Loads the page next to the window, {@code before} it for newer images or after it for
+     * older ones.
+     */
+    private GalleryPatch loadPage(boolean before, CancellationSignal signal) {
+        GallerySnapshot.Builder page;
+        List<GalleryPatch.Op> ops = new ArrayList<>();
+        if (before) {
+            page = queryImages(newerThan(mWindow, 0), REVERSE_SORT_ORDER, PAGE_SIZE, signal);
+            mReachedStart = page.size() < PAGE_SIZE;
+            page.reverse();
+            mWindow.addAll(0, page);
+            ops.add(new GalleryPatch.Op(GalleryPatch.Op.INSERT, 0, page.size()));
+        } else {
+            page = queryImages(olderThan(mWindow, mWindow.size() - 1), SORT_ORDER, PAGE_SIZE, signal);
+            mReachedEnd = page.size() < PAGE_SIZE;
+            ops.add(new GalleryPatch.Op(GalleryPatch.Op.INSERT, mWindow.size(), page.size()));
+            mWindow.addAll(mWindow.size(), page);
+        }
+        Log.v(TAG, String.format("Loaded %d images %s the window, %d loaded", page.size(),
+                before ? "before" : "after", mWindow.size()));
+        return newPatch(page.isEmpty() ? Collections.emptyList() : ops);
+    }
+
+    /**
+     * Finds the images added after the newest one in the window.
+     */
+    private void queryNewerThanWindow(GallerySnapshot.Builder added, CancellationSignal signal) {
+        String selection = mWindow.isEmpty() ? null : newerThan(mWindow, 0);
+        addRows(added, queryImages(selection, SORT_ORDER, 0, signal));
+    }
+
+    /**
+     * Looks up the rows the observer was told about. Rows that are gone are removed, rows that
+     * changed are replaced and rows that are new are added, as long as they are in the window.
+     */
+    private void checkDirtyIds(Set<Long> dirtyIds, GallerySnapshot.Builder added, Set<Long> removed,
+                               CancellationSignal signal) {
+        Set<Long> missing = new HashSet<>(dirtyIds);
+        GallerySnapshot.Builder rows = queryImages(idIn(dirtyIds), null, 0, signal);
+        for (int i = 0; i < rows.size(); i++) {
+            long id = rows.getId(i);
+            long dateAdded = rows.getDateAdded(i);
+            missing.remove(id);
+            int position = mWindow.indexOfId(id);
+            boolean inWindow = mWindow.covers(mReachedStart, mReachedEnd, id, dateAdded);
+            if (position < 0) {
+                if (inWindow) {
+                    added.insert(id, dateAdded, rows.getDateModified(i), rows.getOrientation(i));
+                }
+            } else if (mWindow.getDateAdded(position) != dateAdded
+                    || mWindow.getDateModified(position) != rows.getDateModified(i)
+                    || mWindow.getOrientation(position) != rows.getOrientation(i)) {
+                removed.add(id);
+                if (inWindow) {
+                    added.insert(id, dateAdded, rows.getDateModified(i), rows.getOrientation(i));
+                }
+            }
+        }
+        for (Long id : missing) {
+            if (mWindow.indexOfId(id) >= 0) {
+                removed.add(id);
+            }
+        }
+    }
+
+    /**
+     * Compares the ids in the key range of the window with the window. This reads a single
+     * column and creates no images, so it stays cheap compared to loading the window again.
+     */
+    private void checkWindow(GallerySnapshot.Builder added, Set<Long> removed, CancellationSignal signal) {
+        String selection = null;
+        if (!mWindow.isEmpty()) {
+            List<String> bounds = new ArrayList<>(2);
+            if (!mReachedStart) {
+                bounds.add("NOT " + newerThan(mWindow, 0));
+            }
+            if (!mReachedEnd) {
+                bounds.add("NOT " + olderThan(mWindow, mWindow.size() - 1));
+            }
+            selection = bounds.isEmpty() ? null : TextUtils.join(" AND ", bounds);
+        }
+
+        Set<Long> present = new HashSet<>();
+        try (Cursor cursor = query(ID_PROJECTION, selection, null, 0, signal)) {
+            if (cursor == null) {
+                return;
+            }
+            while (cursor.moveToNext()) {
+                present.add(cursor.getLong(0));
+            }
+        }
+
+        for (int i = 0; i < mWindow.size(); i++) {
+            long id = mWindow.getId(i);
+            if (!present.remove(id)) {
+                removed.add(id);
+            }
+        }
+
+        // What is left are new rows in the range, including ones the watermark can't see like
+        // an image restored with an old DATE_ADDED
+        Iterator<Long> ids = present.iterator();
+        while (ids.hasNext()) {
+            Set<Long> batch = new HashSet<>();
+            while (ids.hasNext() && batch.size() < MAX_DIRTY_IDS) {
+                batch.add(ids.next());
+            }
+            addRows(added, queryImages(idIn(batch), null, 0, signal));
+        }
+    }
+
+    /**
+     * Applies the changes to the window and records where they happened.
+     */
+    private GalleryPatch apply(GallerySnapshot.Builder added, Set<Long> removed) {
+        List<GalleryPatch.Op> ops = new ArrayList<>();
+
+        // Remove from the bottom up so the positions still to remove don't shift
+        List<Integer> removedPositions = new ArrayList<>(removed.size());
+        for (Long id : removed) {
+            int position = mWindow.indexOfId(id);
+            if (position >= 0) {
+                removedPositions.add(position);
+            }
+        }
+        Collections.sort(removedPositions, Collections.reverseOrder());
+        for (int position : removedPositions) {
+            mWindow.remove(position);
+            GalleryPatch.Op last = ops.isEmpty() ? null : ops.get(ops.size() - 1);
+            if (last != null && last.position == position + 1) {
+                ops.set(ops.size() - 1, new GalleryPatch.Op(GalleryPatch.Op.REMOVE, position, last.count + 1));
+            } else {
+                ops.add(new GalleryPatch.Op(GalleryPatch.Op.REMOVE, position, 1));
+            }
+        }
+
+        // The added rows are sorted newest first, so a burst of new images becomes a single
+        // range at the top
+        GalleryPatch.Op lastInsert = null;
+        for (int i = 0; i < added.size(); i++) {
+            int position = mWindow.insert(added.getId(i), added.getDateAdded(i), added.getDateModified(i),
+                    added.getOrientation(i));
+            if (lastInsert != null && position == lastInsert.position + lastInsert.count) {
+                lastInsert.count++;
+            } else {
+                lastInsert = new GalleryPatch.Op(GalleryPatch.Op.INSERT, position, 1);
+                ops.add(lastInsert);
+            }
+        }
+
+        Log.i(TAG, String.format("Synced gallery: %d added, %d removed, %d images loaded",
+                added.size(), removedPositions.size(), mWindow.size()));
+        return newPatch(ops);
+    }
+
+    private GalleryPatch newPatch(List<GalleryPatch.Op> ops) {
+        int baseVersion = mVersion;
+        return new GalleryPatch(baseVersion, ++mVersion, mWindow.build(), ops, mReachedStart, mReachedEnd);
+    }
+
+    private void publish(GalleryPatch patch) {
+        mExecutors.mainThread().execute(() -> mCallback.onPatch(patch));
+    }
+
+    /**
+     * Changes when the MediaStore database is rebuilt, which MediaStore only reports from
+     * Android 10. Before it the version never changes, and the ids of a rebuilt database only go
+     * once the full check of the window finds them gone.
+     */
+    private String mediaStoreVersion() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            return MediaStore.getVersion(mContext);
+        }
+        return UNVERSIONED_MEDIA_STORE;
+    }
+
+    /**
+     * Adds the rows that aren't in {@code added} yet, keeping it in the gallery order.
+     */
+    private static void addRows(GallerySnapshot.Builder added, GallerySnapshot.Builder rows) {
+        for (int i = 0; i < rows.size(); i++) {
+            if (added.indexOfId(rows.getId(i)) < 0) {
+                added.insert(rows.getId(i), rows.getDateAdded(i), rows.getDateModified(i), rows.getOrientation(i));
+            }
+        }
+    }
+
+    private GallerySnapshot.Builder queryImages(@Nullable String selection, @Nullable String sortOrder, int limit,
+                                                CancellationSignal signal) {
+        long startedAt = QUERY_TIMER.start();
+        try (Cursor cursor = query(PROJECTION, selection, sortOrder, limit, signal)) {
+            GallerySnapshot.Builder rows = new GallerySnapshot.Builder(cursor == null ? 0 : cursor.getCount());
+            if (cursor != null) {
+                readImages(cursor, rows, signal);
+            }
+            ROWS_SCANNED.add(rows.size());
+            return rows;
+        } finally {
+            QUERY_TIMER.stop(startedAt);
+        }
+    }
+
+    /**
+     * Queries the images, at most {@code limit} of them unless it is 0.
+     */
+    @Nullable
+    private Cursor query(String[] projection, @Nullable String selection, @Nullable String sortOrder, int limit,
+                         CancellationSignal signal) {
+        // Reported when StrictMode watches for slow calls on this thread, as it does in tests
+        StrictMode.noteSlowCall(TAG + " query");
+        if (limit > 0 && Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            // MediaStore rejects LIMIT in the sort order from Android 11, it takes it as an argument
+            Bundle queryArgs = new Bundle();
+            queryArgs.putString(ContentResolver.QUERY_ARG_SQL_SELECTION, selection);
+            queryArgs.putString(ContentResolver.QUERY_ARG_SQL_SORT_ORDER, sortOrder);
+            queryArgs.putInt(ContentResolver.QUERY_ARG_LIMIT, limit);
+            return mContentResolver.query(IMAGES_URI, projection, queryArgs, signal);
+        }
+        if (limit > 0) {
+            sortOrder = sortOrder + " LIMIT " + limit;
+        }
+        return mContentResolver.query(IMAGES_URI, projection, selection, null, sortOrder, signal);
+    }
+
+    private static void readImages(Cursor cursor, GallerySnapshot.Builder rows, CancellationSignal signal) {
+        int idColumn = cursor.getColumnIndexOrThrow(MediaStore.Images.Media._ID);
+        int dateAddedColumn = cursor.getColumnIndexOrThrow(MediaStore.Images.Media.DATE_ADDED);
+        int dateModifiedColumn = cursor.getColumnIndexOrThrow(MediaStore.Images.Media.DATE_MODIFIED);
+        int orientationColumn = cursor.getColumnIndexOrThrow(MediaStore.Images.ImageColumns.ORIENTATION);
+        while (cursor.moveToNext()) {
+            if (cursor.getPosition() % 1000 == 0) {
+                signal.throwIfCanceled();
+            }
+            rows.add(cursor.getLong(idColumn), cursor.getLong(dateAddedColumn), cursor.getLong(dateModifiedColumn),
+                    cursor.getInt(orientationColumn));
+        }
+    }
+
+    /**
+     * Selects the rows that come before the one at {@code position} in the gallery.
+     */
+    private static String newerThan(GallerySnapshot.Builder rows, int position) {
+        return compareKey(rows, position, ">");
+    }
+
+    /**
+     * Selects the rows that come after the one at {@code position} in the gallery.
+     */
+    private static String olderThan(GallerySnapshot.Builder rows, int position) {
+        return compareKey(rows, position, "<");
+    }
+
+    private static String compareKey(GallerySnapshot.Builder rows, int position, String operator) {
+        return String.format(Locale.US, "(%1$s %3$s %4$d OR (%1$s = %4$d AND %2$s %3$s %5$d))",
+                MediaStore.Images.Media.DATE_ADDED, MediaStore.Images.Media._ID, operator,
+                rows.getDateAdded(position), rows.getId(position));
+    }
+
+    private static String idIn(Collection<Long> ids) {
+        StringBuilder selection = new StringBuilder(MediaStore.Images.Media._ID).append(" IN (");
+        boolean first = true;
+        for (Long id : ids) {
+            if (!first) {
+                selection.append(',');
+            }
+            selection.append(id);
+            first = false;
+        }
+        return selection.append(')').toString();
+    }
+
+    /**
+     * Returns the row id at the end of a MediaStore uri, or -1 for a uri that covers many rows.
+     */
+    private static long parseId(Uri uri) {
+        String last = uri.getLastPathSegment();
+        if (last == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(last);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
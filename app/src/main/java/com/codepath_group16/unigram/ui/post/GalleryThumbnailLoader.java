@@ -0,0 +1,214 @@
+package com.codepath_group16.unigram.ui.post;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.os.Build;
+import android.os.CancellationSignal;
+import android.provider.MediaStore;
+import android.util.Size;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.bumptech.glide.Priority;
+import com.bumptech.glide.Registry;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.data.DataFetcher;
+import com.bumptech.glide.load.model.ModelLoader;
+import com.bumptech.glide.load.model.ModelLoaderFactory;
+import com.bumptech.glide.load.model.MultiModelLoaderFactory;
+import com.bumptech.glide.request.target.Target;
+import com.bumptech.glide.signature.ObjectKey;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Loads the grid cells of the gallery from the thumbnails the MediaStore already has instead of
+ * decoding the original image: {@link ContentResolver#loadThumbnail} on Q and later,
+ * {@link MediaStore.Images.Thumbnails} before. Images without a thumbnail are decoded from the
+ * original, subsampled close to the cell size.
+ * <p>
+ * Only the thumbnails of Q and later come upright, the others are rotated by the ORIENTATION
+ * column the gallery queried with the image, as Glide would from the EXIF of the file.
+ * <p>
+ * The key includes DATE_MODIFIED and the orientation so an edited image doesn't show the
+ * thumbnail Glide cached for the original.
+ */
+public class GalleryThumbnailLoader implements ModelLoader<MediaStoreImage, Bitmap> {
+
+    /**
+     * Size of {@link MediaStore.Images.Thumbnails#MINI_KIND} thumbnails, larger cells are decoded
+     * from the original.
+     */
+    private static final int MINI_THUMBNAIL_SIZE = 384;
+
+    private final ContentResolver mContentResolver;
+
+    private GalleryThumbnailLoader(ContentResolver contentResolver) {
+        mContentResolver = contentResolver;
+    }
+
+    /**
+     * Makes Glide load {@link MediaStoreImage}s through this loader.
+     */
+    public static void register(@NonNull Context context, @NonNull Registry registry) {
+        ContentResolver contentResolver = context.getApplicationContext().getContentResolver();
+        registry.prepend(MediaStoreImage.class, Bitmap.class, new ModelLoaderFactory<MediaStoreImage, Bitmap>() {
+            @NonNull
+            @Override
+            public ModelLoader<MediaStoreImage, Bitmap> build(@NonNull MultiModelLoaderFactory multiFactory) {
+                return new GalleryThumbnailLoader(contentResolver);
+            }
+
+            @Override
+            public void teardown() {
+            }
+        });
+    }
+
+    @Nullable
+    @Override
+    public LoadData<Bitmap> buildLoadData(@NonNull MediaStoreImage image, int width, int height,
+                                          @NonNull Options options) {
+        ObjectKey key = new ObjectKey(
+                "gallery-thumbnail:" + image.id + ":" + image.dateModified + ":" + image.orientation);
+        return new LoadData<>(key, new ThumbnailFetcher(mContentResolver, image, width, height));
+    }
+
+    @Override
+    public boolean handles(@NonNull MediaStoreImage image) {
+        return true;
+    }
+
+    private static class ThumbnailFetcher implements DataFetcher<Bitmap> {
+        private final ContentResolver mContentResolver;
+        private final MediaStoreImage mImage;
+        private final int mWidth;
+        private final int mHeight;
+        private final CancellationSignal mCancellationSignal = new CancellationSignal();
+
+        ThumbnailFetcher(ContentResolver contentResolver, MediaStoreImage image, int width, int height) {
+            mContentResolver = contentResolver;
+            mImage = image;
+            mWidth = width == Target.SIZE_ORIGINAL ? MINI_THUMBNAIL_SIZE : width;
+            mHeight = height == Target.SIZE_ORIGINAL ? MINI_THUMBNAIL_SIZE : height;
+        }
+
+        @Override
+        public void loadData(@NonNull Priority priority, @NonNull DataCallback<? super Bitmap> callback) {
+            long start = System.nanoTime();
+            try {
+                Bitmap bitmap = loadThumbnail();
+                if (bitmap == null) {
+                    bitmap = rotate(decodeSampled());
+                } else if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q) {
+                    bitmap = rotate(bitmap);
+                }
+                GalleryThumbnailStats.getInstance().recordDecode(System.nanoTime() - start);
+                if (bitmap == null) {
+                    callback.onLoadFailed(new IOException("Can't decode " + mImage.getContentUri()));
+                } else {
+                    callback.onDataReady(bitmap);
+                }
+            } catch (IOException | RuntimeException e) {
+                callback.onLoadFailed(e instanceof IOException ? (IOException) e : new IOException(e));
+            }
+        }
+
+        @Nullable
+        private Bitmap loadThumbnail() throws IOException {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+                try {
+                    return mContentResolver.loadThumbnail(mImage.getContentUri(), new Size(mWidth, mHeight),
+                            mCancellationSignal);
+                } catch (IOException e) {
+                    // There is no thumbnail, the original is decoded unless Glide cancelled the load
+                    if (mCancellationSignal.isCanceled()) {
+                        throw e;
+                    }
+                    return null;
+                }
+            }
+            if (Math.max(mWidth, mHeight) > MINI_THUMBNAIL_SIZE) {
+                return null;
+            }
+            //noinspection deprecation
+            return MediaStore.Images.Thumbnails.getThumbnail(mContentResolver, mImage.id,
+                    MediaStore.Images.Thumbnails.MINI_KIND, null);
+        }
+
+        /**
+         * Turns a bitmap decoded as stored upright, by the orientation of the image.
+         */
+        @Nullable
+        private Bitmap rotate(@Nullable Bitmap bitmap) {
+            if (bitmap == null || mImage.orientation % 360 == 0) {
+                return bitmap;
+            }
+            Matrix matrix = new Matrix();
+            matrix.postRotate(mImage.orientation);
+            Bitmap rotated = Bitmap.createBitmap(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(), matrix, true);
+            if (rotated != bitmap) {
+                bitmap.recycle();
+            }
+            return rotated;
+        }
+
+        /**
+         * Decodes the original at the largest power of two subsample that still covers the cell.
+         */
+        @Nullable
+        private Bitmap decodeSampled() throws IOException {
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inJustDecodeBounds = true;
+            decode(options);
+            if (options.outWidth <= 0 || options.outHeight <= 0) {
+                return null;
+            }
+            options.inSampleSize = 1;
+            while (options.outWidth / (options.inSampleSize * 2) >= mWidth
+                    && options.outHeight / (options.inSampleSize * 2) >= mHeight) {
+                options.inSampleSize *= 2;
+            }
+            options.inJustDecodeBounds = false;
+            return decode(options);
+        }
+
+        @Nullable
+        private Bitmap decode(BitmapFactory.Options options) throws IOException {
+            try (InputStream input = mContentResolver.openInputStream(mImage.getContentUri())) {
+                if (input == null) {
+                    throw new FileNotFoundException(mImage.getContentUri().toString());
+                }
+                return BitmapFactory.decodeStream(input, null, options);
+            }
+        }
+
+        @Override
+        public void cleanup() {
+        }
+
+        @Override
+        public void cancel() {
+            mCancellationSignal.cancel();
+        }
+
+        @NonNull
+        @Override
+        public Class<Bitmap> getDataClass() {
+            return Bitmap.class;
+        }
+
+        @NonNull
+        @Override
+        public DataSource getDataSource() {
+            return DataSource.LOCAL;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.codepath_group16.unigram.ui.post;
+
+import android.graphics.drawable.Drawable;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.engine.GlideException;
+import com.bumptech.glide.request.RequestListener;
+import com.bumptech.glide.request.target.Target;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts where the thumbnails of the gallery grid come from and how long decoding them takes.
+ */
+public class GalleryThumbnailStats implements RequestListener<Drawable> {
+
+    private static final GalleryThumbnailStats sInstance = new GalleryThumbnailStats();
+
+    private final AtomicLong mMemoryHits = new AtomicLong();
+    private final AtomicLong mDiskHits = new AtomicLong();
+    private final AtomicLong mDecodes = new AtomicLong();
+    private final AtomicLong mDecodeNanos = new AtomicLong();
+    private final AtomicLong mFailures = new AtomicLong();
+
+    private GalleryThumbnailStats() {
+    }
+
+    public static GalleryThumbnailStats getInstance() {
+        return sInstance;
+    }
+
+    void recordDecode(long nanos) {
+        mDecodes.incrementAndGet();
+        mDecodeNanos.addAndGet(nanos);
+    }
+
+    @Override
+    public boolean onLoadFailed(@Nullable GlideException e, Object model, Target<Drawable> target,
+                                boolean isFirstResource) {
+        mFailures.incrementAndGet();
+        return false;
+    }
+
+    @Override
+    public boolean onResourceReady(Drawable resource, Object model, Target<Drawable> target,
+                                   DataSource dataSource, boolean isFirstResource) {
+        if (dataSource == DataSource.MEMORY_CACHE) {
+            mMemoryHits.incrementAndGet();
+        } else if (dataSource == DataSource.RESOURCE_DISK_CACHE || dataSource == DataSource.DATA_DISK_CACHE) {
+            mDiskHits.incrementAndGet();
+        }
+        return false;
+    }
+
+    public long getMemoryHits() {
+        return mMemoryHits.get();
+    }
+
+    public long getDiskHits() {
+        return mDiskHits.get();
+    }
+
+    public long getDecodes() {
+        return mDecodes.get();
+    }
+
+    public long getFailures() {
+        return mFailures.get();
+    }
+
+    /**
+     * Share of the loaded thumbnails that came from the memory or the disk cache.
+     */
+    public double getHitRate() {
+        long hits = getMemoryHits() + getDiskHits();
+        long total = hits + getDecodes();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    public double getAverageDecodeMillis() {
+        long decodes = getDecodes();
+        return decodes == 0 ? 0 : (double) TimeUnit.NANOSECONDS.toMicros(mDecodeNanos.get()) / decodes / 1000;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "hit rate %.1f%% (%d memory, %d disk), %d decodes in %.1f ms on average, %d failed",
+                getHitRate() * 100, getMemoryHits(), getDiskHits(), getDecodes(), getAverageDecodeMillis(),
+                getFailures());
+    }
+}
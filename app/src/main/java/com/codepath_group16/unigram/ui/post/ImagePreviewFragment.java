@@ -1,5 +1,6 @@
 package com.codepath_group16.unigram.ui.post;
 
+import android.graphics.drawable.Drawable;
 import android.net.Uri;
 import android.os.Bundle;
 import android.view.LayoutInflater;
@@ -16,7 +17,13 @@ import androidx.fragment.app.Fragment;
 import androidx.navigation.Navigation;
 
 import com.bumptech.glide.Glide;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
+import com.bumptech.glide.load.engine.GlideException;
+import com.bumptech.glide.request.RequestListener;
+import com.bumptech.glide.request.target.Target;
 import com.codepath_group16.unigram.R;
+import com.codepath_group16.unigram.data.upload.CaptureFiles;
 import com.codepath_group16.unigram.databinding.FragmentImagePreviewBinding;
 
 
@@ -42,9 +49,13 @@ public class ImagePreviewFragment extends Fragment {
 
         mImageUri = ImagePreviewFragmentArgs.fromBundle(requireArguments()).getImageUri();
 
-        mBinding.retakePictureButton.setOnClickListener(v -> Navigation.findNavController(mBinding.getRoot()).navigate(
-                ImagePreviewFragmentDirections.actionNavigationImagePreviewToNavigationCaptureImage()
-        ));
+        mBinding.retakePictureButton.setOnClickListener(v -> {
+            // Nothing will post this one
+            CaptureFiles.delete(requireContext(), mImageUri);
+            Navigation.findNavController(mBinding.getRoot()).navigate(
+                    ImagePreviewFragmentDirections.actionNavigationImagePreviewToNavigationCaptureImage()
+            );
+        });
         return mBinding.getRoot();
     }
 
@@ -52,8 +63,25 @@ public class ImagePreviewFragment extends Fragment {
     public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
         super.onViewCreated(view, savedInstanceState);
 
+        // The capture is read once at the size of the view, nothing is cached for a file that
+        // is deleted once posted
         Glide.with(requireContext())
                 .load(mImageUri)
+                .diskCacheStrategy(DiskCacheStrategy.NONE)
+                .listener(new RequestListener<Drawable>() {
+                    @Override
+                    public boolean onLoadFailed(@Nullable GlideException e, Object model,
+                                                Target<Drawable> target, boolean isFirstResource) {
+                        return false;
+                    }
+
+                    @Override
+                    public boolean onResourceReady(Drawable resource, Object model, Target<Drawable> target,
+                                                   DataSource dataSource, boolean isFirstResource) {
+                        CaptureLatency.onShown(mImageUri);
+                        return false;
+                    }
+                })
                 .into(mCapturedImage);
     }
 
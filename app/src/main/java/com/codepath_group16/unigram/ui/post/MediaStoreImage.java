@@ -18,48 +18,55 @@ package com.codepath_group16.unigram.ui.post;
  * limitations under the License.
  */
 
+import android.content.ContentUris;
 import android.net.Uri;
+import android.provider.MediaStore;
 
 import androidx.annotation.NonNull;
-import androidx.recyclerview.widget.DiffUtil;
-
-import java.util.Date;
 
 /**
  * Simple data class to hold information about an image included in the device's MediaStore.
+ * <p>
+ * The gallery keeps its images in a {@link GallerySnapshot}, these are only created for the
+ * cells that are bound and for the selected image.
  */
 class MediaStoreImage {
-    final static DiffUtil.ItemCallback<MediaStoreImage> DiffCallback = new DiffUtil.ItemCallback<MediaStoreImage>() {
-        @Override
-        public boolean areItemsTheSame(@NonNull MediaStoreImage oldItem, @NonNull MediaStoreImage newItem) {
-            // User properties may have changed if reloaded from the DB, but ID is fixed
-            return oldItem.getId() == newItem.getId();
-        }
-
-        @Override
-        public boolean areContentsTheSame(@NonNull MediaStoreImage oldItem, @NonNull MediaStoreImage newItem) {
-            // NOTE: if you use equals, your object must properly override Object#equals()
-            // Incorrectly returning false here will result in too many animations.
-            return newItem.equals(oldItem);
-        }
-    };
-
-    long id;
-    String displayName;
-    Date dateAdded;
-    Uri contentUri;
 
-    public MediaStoreImage(long id, String displayName, Date dateAdded, Uri contentUri) {
+    final long id;
+    /**
+     * In seconds since the epoch, like the MediaStore columns.
+     */
+    final long dateAdded;
+    final long dateModified;
+    /**
+     * Clockwise rotation in degrees that shows the image upright, from the EXIF of the file.
+     */
+    final int orientation;
+    private Uri contentUri;
+
+    public MediaStoreImage(long id, long dateAdded, long dateModified, int orientation) {
         this.id = id;
-        this.displayName = displayName;
         this.dateAdded = dateAdded;
-        this.contentUri = contentUri;
+        this.dateModified = dateModified;
+        this.orientation = orientation;
     }
 
     public long getId() {
         return id;
     }
 
+    /**
+     * Since we're accessing images (using {@link MediaStore.Images.Media#EXTERNAL_CONTENT_URI}),
+     * we'll use that as the base URI and append the ID of the image to it.
+     */
+    @NonNull
+    public Uri getContentUri() {
+        if (contentUri == null) {
+            contentUri = ContentUris.withAppendedId(MediaStore.Images.Media.EXTERNAL_CONTENT_URI, id);
+        }
+        return contentUri;
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (obj == this)
@@ -70,26 +77,18 @@ class MediaStoreImage {
 
         MediaStoreImage image = (MediaStoreImage) obj;
 
-        return this.id == image.id && this.displayName.equals(image.displayName) && this.contentUri.equals(image.contentUri);
+        return this.id == image.id && this.dateAdded == image.dateAdded && this.dateModified == image.dateModified
+                && this.orientation == image.orientation;
     }
-}
-
-class MediaCameraItem extends MediaStoreImage {
 
-    public MediaCameraItem() {
-        super(-1, null, null, null);
+    @Override
+    public int hashCode() {
+        return (int) (id ^ (id >>> 32));
     }
 
+    @NonNull
     @Override
-    public boolean equals(Object obj) {
-        if (obj == this)
-            return true;
-
-        if (getClass() != obj.getClass())
-            return false;
-
-        MediaCameraItem new_photo = (MediaCameraItem) obj;
-
-        return this.id == new_photo.id;
+    public String toString() {
+        return "MediaStoreImage{id=" + id + ", dateAdded=" + dateAdded + "}";
     }
-}
\ No newline at end of file
+}
@@ -3,6 +3,7 @@ package com.codepath_group16.unigram.ui.post;
 import android.Manifest;
 import android.content.Context;
 import android.content.Intent;
+import android.graphics.drawable.Drawable;
 import android.net.Uri;
 import android.os.Bundle;
 import android.util.Log;
@@ -20,17 +21,27 @@ import androidx.core.content.PermissionChecker;
 import androidx.fragment.app.Fragment;
 import androidx.lifecycle.ViewModelProvider;
 import androidx.navigation.Navigation;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.GridLayoutManager;
-import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.ListUpdateCallback;
 import androidx.recyclerview.widget.RecyclerView;
 import androidx.recyclerview.widget.SimpleItemAnimator;
 
 import com.bumptech.glide.Glide;
+import com.bumptech.glide.ListPreloader;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.integration.recyclerview.RecyclerViewPreloader;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
+import com.bumptech.glide.util.ViewPreloadSizeProvider;
+import com.codepath_group16.unigram.AppExecutors;
 import com.codepath_group16.unigram.R;
 import com.codepath_group16.unigram.databinding.FragmentPostBinding;
 import com.google.android.material.button.MaterialButton;
 
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 
 import static android.provider.Settings.ACTION_APPLICATION_DETAILS_SETTINGS;
@@ -44,6 +55,11 @@ public class PostFragment extends Fragment {
      * The request code for requesting Manifest.permission.READ_EXTERNAL_STORAGE permission.
      */
     private final int READ_EXTERNAL_STORAGE_REQUEST = 0x1045;
+    private static final int GALLERY_SPAN_COUNT = 4;
+    /**
+     * Rows of thumbnails loaded ahead of the scroll.
+     */
+    private static final int PRELOAD_ROWS = 3;
     private FragmentPostBinding mBinding;
 
     public View onCreateView(@NonNull LayoutInflater inflater,
@@ -55,18 +71,31 @@ public class PostFragment extends Fragment {
 
         setHasOptionsMenu(true);
 
-        GalleryAdapter galleryAdapter = new GalleryAdapter(requireContext());
+        GalleryAdapter galleryAdapter = new GalleryAdapter(requireContext(), Glide.with(this));
         mBinding.gallery.setAdapter(galleryAdapter);
 
         // Prevent flickering when item is clicked
         SimpleItemAnimator animator = (SimpleItemAnimator) mBinding.gallery.getItemAnimator();
         Objects.requireNonNull(animator).setSupportsChangeAnimations(false);
 
-        mBinding.gallery.setLayoutManager(new GridLayoutManager(getContext(), 4));
+        mBinding.gallery.setLayoutManager(new GridLayoutManager(getContext(), GALLERY_SPAN_COUNT));
+        // Fetch the thumbnails of the next rows in the direction of the scroll
+        mBinding.gallery.addOnScrollListener(new RecyclerViewPreloader<>(Glide.with(this), galleryAdapter,
+                galleryAdapter.getPreloadSizeProvider(), GALLERY_SPAN_COUNT * PRELOAD_ROWS));
+        mBinding.gallery.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                loadPagesAroundVisibleImages();
+            }
+        });
 
-        mPostViewModel.getImages().observe(requireActivity(), mediaStoreImages -> {
-            galleryAdapter.submitList(mediaStoreImages);
-            if (mediaStoreImages.size() > 1) {
+        mPostViewModel.getImages().observe(requireActivity(), patch -> {
+            galleryAdapter.submitPatch(patch);
+            if (mBinding != null) {
+                // The new page may not fill the screen, look again once it is laid out
+                mBinding.gallery.post(this::loadPagesAroundVisibleImages);
+            }
+            if (!patch.images.isEmpty()) {
                 if (mBinding != null) {
                     mBinding.emptyGallery.setVisibility(View.INVISIBLE);
                 }
@@ -76,7 +105,10 @@ public class PostFragment extends Fragment {
                 }
             }
         });
-        mPostViewModel.getSelectedImage().observe(requireActivity(), this::showSelectedImage);
+        mPostViewModel.getSelectedImage().observe(requireActivity(), image -> {
+            galleryAdapter.setSelectedImage(image);
+            showSelectedImage(image);
+        });
 
         mBinding.openAlbum.setOnClickListener(v -> openMediaStore());
         mBinding.grantPermissionButton.setOnClickListener(v -> openMediaStore());
@@ -111,7 +143,7 @@ public class PostFragment extends Fragment {
             Navigation.findNavController(mBinding.getRoot())
                     .navigate(
                             PostFragmentDirections.actionNavigationPostToNavigationCompletePost(
-                                    Objects.requireNonNull(mPostViewModel.getSelectedImage().getValue()).contentUri
+                                    Objects.requireNonNull(mPostViewModel.getSelectedImage().getValue()).getContentUri()
                             )
                     );
         }
@@ -166,6 +198,12 @@ public class PostFragment extends Fragment {
         startActivity(i);
     }
 
+    @Override
+    public void onPause() {
+        super.onPause();
+        Log.i(TAG, "Gallery thumbnails: " + GalleryThumbnailStats.getInstance());
+    }
+
     @Override
     public void onDestroyView() {
         super.onDestroyView();
@@ -188,10 +226,22 @@ public class PostFragment extends Fragment {
     }
 
 
+    private void loadPagesAroundVisibleImages() {
+        if (mBinding == null) {
+            return;
+        }
+        GridLayoutManager layoutManager = (GridLayoutManager) mBinding.gallery.getLayoutManager();
+        mPostViewModel.onGalleryScrolled(
+                Objects.requireNonNull(layoutManager).findFirstVisibleItemPosition(),
+                layoutManager.findLastVisibleItemPosition(),
+                layoutManager.getSpanCount()
+        );
+    }
+
     private void showSelectedImage(MediaStoreImage image) {
         Uri imageUri = null;
         if (!(image == null)) {
-            imageUri = image.contentUri;
+            imageUri = image.getContentUri();
         }
         if (mBinding != null) {
             Glide.with(requireContext())
@@ -225,22 +275,188 @@ public class PostFragment extends Fragment {
     }
 
     /**
-     * A {@link ListAdapter for {@link MediaStoreImage}s.
+     * A {@link RecyclerView.Adapter} for {@link MediaStoreImage}s that applies the
+     * {@link GalleryPatch}es of the {@link PostViewModel}, with the open camera item first when
+     * the newest images are loaded.
+     * <p>
+     * Patches that can't be applied are diffed with what is shown on
+     * {@link AppExecutors#computation()}, a newer patch replaces a diff that is still running.
+     * The selected image is kept by id and moving it only rebinds the background of two cells.
+     * Cells load the MediaStore thumbnails through the {@link GalleryThumbnailLoader} at the
+     * size of the cell, the same request is used to preload them.
      */
-    private static class GalleryAdapter extends ListAdapter<MediaStoreImage, RecyclerView.ViewHolder> {
+    private static class GalleryAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
+            implements ListPreloader.PreloadModelProvider<MediaStoreImage> {
 
         final int IMAGE_VIEW_TYPE = 0;
         final int OPEN_CAMERA_VIEW_TYPE = 1;
+        /**
+         * Payload of a rebind that only changes the selected background.
+         */
+        static final Object SELECTION_PAYLOAD = new Object();
         private final Context mContext;
+        private final RequestManager mRequestManager;
+        private final ViewPreloadSizeProvider<MediaStoreImage> mPreloadSizeProvider = new ViewPreloadSizeProvider<>();
+        private GallerySnapshot mImages = GallerySnapshot.EMPTY;
+        private int mHeaderCount = 1;
+        private int mVersion = -1;
+        /**
+         * Incremented for every diff so only the result of the newest one is dispatched.
+         */
+        private int mDiffGeneration;
+        private boolean mDiffing;
+        private MediaStoreImage mSelectedImage;
+        /**
+         * Where the selected image was last seen, checked against its id before it is used.
+         */
+        private int mSelectedPosition = RecyclerView.NO_POSITION;
 
-        protected GalleryAdapter(Context context) {
-            super(MediaStoreImage.DiffCallback);
+        protected GalleryAdapter(Context context, RequestManager requestManager) {
             mContext = context;
+            mRequestManager = requestManager;
+        }
+
+        ListPreloader.PreloadSizeProvider<MediaStoreImage> getPreloadSizeProvider() {
+            return mPreloadSizeProvider;
+        }
+
+        @NonNull
+        @Override
+        public List<MediaStoreImage> getPreloadItems(int position) {
+            if (position < mHeaderCount || position >= getItemCount()) {
+                return Collections.emptyList();
+            }
+            return Collections.singletonList(getItem(position));
+        }
+
+        @NonNull
+        @Override
+        public RequestBuilder<Drawable> getPreloadRequestBuilder(@NonNull MediaStoreImage image) {
+            return mRequestManager
+                    .load(image)
+                    .diskCacheStrategy(DiskCacheStrategy.RESOURCE)
+                    .centerCrop()
+                    .listener(GalleryThumbnailStats.getInstance());
+        }
+
+        /**
+         * Shows the images of the patch, only notifying the positions that changed when the
+         * patch applies to what is shown.
+         */
+        void submitPatch(GalleryPatch patch) {
+            if (patch.version == mVersion && !mDiffing) {
+                return;
+            }
+            if (!mDiffing && patch.canApplyTo(mVersion)) {
+                applyPatch(patch);
+                return;
+            }
+
+            int generation = ++mDiffGeneration;
+            GallerySnapshot images = mImages;
+            if (images.isEmpty()) {
+                mDiffing = false;
+                show(patch);
+                notifyDataSetChanged();
+                return;
+            }
+            // A missed patch, diff the columns off the main thread instead of rebinding the
+            // whole grid
+            mDiffing = true;
+            AppExecutors executors = AppExecutors.getInstance();
+            executors.computation().execute(() -> {
+                DiffUtil.DiffResult result = DiffUtil.calculateDiff(images.diffCallback(patch.images), false);
+                executors.mainThread().execute(() -> {
+                    if (generation != mDiffGeneration) {
+                        return;
+                    }
+                    mDiffing = false;
+                    int headerCount = mHeaderCount;
+                    show(patch);
+                    result.dispatchUpdatesTo(new OffsetListUpdateCallback(this, headerCount));
+                    notifyHeaderChanged(headerCount);
+                });
+            });
+        }
+
+        private void applyPatch(GalleryPatch patch) {
+            int headerCount = mHeaderCount;
+            show(patch);
+            for (GalleryPatch.Op op : Objects.requireNonNull(patch.ops)) {
+                if (op.type == GalleryPatch.Op.INSERT) {
+                    notifyItemRangeInserted(op.position + headerCount, op.count);
+                } else {
+                    notifyItemRangeRemoved(op.position + headerCount, op.count);
+                }
+            }
+            notifyHeaderChanged(headerCount);
+        }
+
+        private void show(GalleryPatch patch) {
+            mImages = patch.images;
+            mHeaderCount = PostViewModel.getHeaderCount(patch);
+            mVersion = patch.version;
+        }
+
+        private void notifyHeaderChanged(int oldHeaderCount) {
+            if (mHeaderCount > oldHeaderCount) {
+                notifyItemInserted(0);
+            } else if (mHeaderCount < oldHeaderCount) {
+                notifyItemRemoved(0);
+            }
+        }
+
+        /**
+         * Moves the selected background to {@code image}.
+         */
+        void setSelectedImage(MediaStoreImage image) {
+            int previous = findSelectedPosition();
+            mSelectedImage = image;
+            mSelectedPosition = RecyclerView.NO_POSITION;
+            int current = findSelectedPosition();
+            if (previous == current) {
+                return;
+            }
+            if (previous != RecyclerView.NO_POSITION) {
+                notifyItemChanged(previous, SELECTION_PAYLOAD);
+            }
+            if (current != RecyclerView.NO_POSITION) {
+                notifyItemChanged(current, SELECTION_PAYLOAD);
+            }
+        }
+
+        /**
+         * Returns the adapter position of the selected image, looking it up only when it isn't
+         * where it was last seen.
+         */
+        private int findSelectedPosition() {
+            if (mSelectedImage == null) {
+                return RecyclerView.NO_POSITION;
+            }
+            int index = mSelectedPosition - mHeaderCount;
+            if (index < 0 || index >= mImages.size() || mImages.getId(index) != mSelectedImage.id) {
+                index = mImages.indexOf(mSelectedImage);
+                mSelectedPosition = index < 0 ? RecyclerView.NO_POSITION : index + mHeaderCount;
+            }
+            return mSelectedPosition;
+        }
+
+        private boolean isSelected(int position) {
+            return mSelectedImage != null && mImages.getId(position - mHeaderCount) == mSelectedImage.id;
+        }
+
+        MediaStoreImage getItem(int position) {
+            return mImages.get(position - mHeaderCount);
+        }
+
+        @Override
+        public int getItemCount() {
+            return mImages.size() + mHeaderCount;
         }
 
         @Override
         public int getItemViewType(int position) {
-            if (MediaCameraItem.class.equals(getItem(position).getClass())) {
+            if (position < mHeaderCount) {
                 return OPEN_CAMERA_VIEW_TYPE;
             }
             return IMAGE_VIEW_TYPE;
@@ -257,7 +473,23 @@ public class PostFragment extends Fragment {
                 case IMAGE_VIEW_TYPE:
                 default:
                     View view = layoutInflater.inflate(R.layout.gallery_layout, parent, false);
-                    return new ImageViewHolder(view);
+                    ImageViewHolder holder = new ImageViewHolder(view);
+                    mPreloadSizeProvider.setView(holder.getImageView());
+                    return holder;
+            }
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position,
+                                     @NonNull List<Object> payloads) {
+            boolean selectionOnly = holder instanceof ImageViewHolder && !payloads.isEmpty();
+            for (Object payload : payloads) {
+                selectionOnly &= payload == SELECTION_PAYLOAD;
+            }
+            if (selectionOnly) {
+                ((ImageViewHolder) holder).bindSelection(isSelected(position));
+            } else {
+                onBindViewHolder(holder, position);
             }
         }
 
@@ -273,17 +505,9 @@ public class PostFragment extends Fragment {
                     ImageViewHolder h = (ImageViewHolder) holder;
                     h.getRootView().setTag(mediaStoreImage);
 
-                    Glide.with(h.getImageView())
-                            .load(mediaStoreImage.contentUri)
-                            .thumbnail(0.33f)
-                            .centerCrop()
-                            .into(h.getImageView());
+                    getPreloadRequestBuilder(mediaStoreImage).into(h.getImageView());
 
-                    if (position == mPostViewModel.getCurrentSelectedImagePosition()) {
-                        h.selectedBg();
-                    } else {
-                        h.defaultBg();
-                    }
+                    h.bindSelection(isSelected(position));
             }
 
         }
@@ -303,13 +527,7 @@ public class PostFragment extends Fragment {
 
                 mImageView.setOnClickListener(v -> {
                     MediaStoreImage image = (MediaStoreImage) mRootView.getTag();
-                    mPostViewModel.selectImage(image, getAdapterPosition());
-
-                    if (mPostViewModel.getPreviousSelectedImagePosition() != -1) {
-                        notifyItemChanged(mPostViewModel.getPreviousSelectedImagePosition());
-                    }
-                    mPostViewModel.setPreviousSelectedImagePosition(mPostViewModel.getCurrentSelectedImagePosition());
-                    notifyItemChanged(mPostViewModel.getCurrentSelectedImagePosition());
+                    mPostViewModel.selectImage(image);
                 });
             }
 
@@ -321,6 +539,14 @@ public class PostFragment extends Fragment {
                 return mRootView;
             }
 
+            void bindSelection(boolean selected) {
+                if (selected) {
+                    selectedBg();
+                } else {
+                    defaultBg();
+                }
+            }
+
             void defaultBg() {
                 mRootView.setBackground(ContextCompat.getDrawable(mContext, R.drawable.bg_image_unselected));
             }
@@ -330,6 +556,39 @@ public class PostFragment extends Fragment {
             }
         }
     }
+
+    /**
+     * Dispatches the updates of the images to the adapter, past the items before them.
+     */
+    private static class OffsetListUpdateCallback implements ListUpdateCallback {
+        private final RecyclerView.Adapter<?> mAdapter;
+        private final int mOffset;
+
+        OffsetListUpdateCallback(RecyclerView.Adapter<?> adapter, int offset) {
+            mAdapter = adapter;
+            mOffset = offset;
+        }
+
+        @Override
+        public void onInserted(int position, int count) {
+            mAdapter.notifyItemRangeInserted(position + mOffset, count);
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            mAdapter.notifyItemRangeRemoved(position + mOffset, count);
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            mAdapter.notifyItemMoved(fromPosition + mOffset, toPosition + mOffset);
+        }
+
+        @Override
+        public void onChanged(int position, int count, Object payload) {
+            mAdapter.notifyItemRangeChanged(position + mOffset, count, payload);
+        }
+    }
 }
 
 /**
@@ -0,0 +1,74 @@
+package com.codepath_group16.unigram.ui.profile;
+
+import android.view.LayoutInflater;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.bumptech.glide.RequestManager;
+import com.codepath_group16.unigram.data.models.Post;
+import com.codepath_group16.unigram.databinding.ItemProfilePostBinding;
+import com.parse.ParseFile;
+
+import java.util.Objects;
+
+/**
+ * The grid of the posts of a profile, showing the smallest of their images that covers a cell.
+ */
+class ProfileAdapter extends ListAdapter<Post, ProfileAdapter.PostViewHolder> {
+
+    private static final DiffUtil.ItemCallback<Post> DIFF_CALLBACK = new DiffUtil.ItemCallback<Post>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Post oldItem, @NonNull Post newItem) {
+            return Objects.equals(oldItem.getObjectId(), newItem.getObjectId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Post oldItem, @NonNull Post newItem) {
+            return Objects.equals(oldItem.getUpdatedAt(), newItem.getUpdatedAt());
+        }
+    };
+
+    private final RequestManager mRequestManager;
+    private final int mSpanCount;
+    private int mCellEdge;
+
+    ProfileAdapter(RequestManager requestManager, int spanCount) {
+        super(DIFF_CALLBACK);
+        mRequestManager = requestManager;
+        mSpanCount = spanCount;
+    }
+
+    @NonNull
+    @Override
+    public PostViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        int width = parent.getWidth() > 0
+                ? parent.getWidth() : parent.getResources().getDisplayMetrics().widthPixels;
+        mCellEdge = width / mSpanCount;
+        return new PostViewHolder(
+                ItemProfilePostBinding.inflate(LayoutInflater.from(parent.getContext()), parent, false));
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull PostViewHolder holder, int position) {
+        Post post = getItem(position);
+        // Posts from before the variants only have the full image, Glide scales it down
+        ParseFile image = post.getImageCovering(mCellEdge);
+        mRequestManager
+                .load(image == null ? null : image.getUrl())
+                .centerCrop()
+                .into(holder.mBinding.thumbnail);
+    }
+
+    static class PostViewHolder extends RecyclerView.ViewHolder {
+        final ItemProfilePostBinding mBinding;
+
+        PostViewHolder(ItemProfilePostBinding binding) {
+            super(binding.getRoot());
+            mBinding = binding;
+        }
+    }
+}
@@ -1,30 +1,89 @@
 package com.codepath_group16.unigram.ui.profile;
 
+import android.content.res.Resources;
 import android.os.Bundle;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.TextView;
 
 import androidx.annotation.NonNull;
-import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
-import androidx.lifecycle.Observer;
 import androidx.lifecycle.ViewModelProvider;
+import androidx.recyclerview.widget.GridLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
+import com.bumptech.glide.Glide;
 import com.codepath_group16.unigram.R;
+import com.codepath_group16.unigram.databinding.FragmentProfileBinding;
+import com.google.android.material.snackbar.Snackbar;
+
+import java.util.Objects;
 
 public class ProfileFragment extends Fragment {
 
+    private static final int GRID_SPAN_COUNT = 3;
+
     private ProfileViewModel mProfileViewModel;
+    private FragmentProfileBinding mBinding;
 
     public View onCreateView(@NonNull LayoutInflater inflater,
                              ViewGroup container, Bundle savedInstanceState) {
         mProfileViewModel =
                 new ViewModelProvider(this).get(ProfileViewModel.class);
-        View root = inflater.inflate(R.layout.fragment_explore, container, false);
-        final TextView textView = root.findViewById(R.id.text_explore);
-        mProfileViewModel.getText().observe(getViewLifecycleOwner(), textView::setText);
-        return root;
+
+        mBinding = FragmentProfileBinding.inflate(inflater, container, false);
+        mBinding.profileUsername.setText(mProfileViewModel.getUser().getUsername());
+
+        ProfileAdapter profileAdapter = new ProfileAdapter(Glide.with(this), GRID_SPAN_COUNT);
+        mBinding.profilePosts.setLayoutManager(new GridLayoutManager(getContext(), GRID_SPAN_COUNT));
+        mBinding.profilePosts.setAdapter(profileAdapter);
+        mBinding.profilePosts.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                loadPagesNearEnd();
+            }
+        });
+        mBinding.profileRefresh.setOnRefreshListener(() -> mProfileViewModel.refresh());
+
+        mProfileViewModel.getPosts().observe(getViewLifecycleOwner(), posts -> {
+            profileAdapter.submitList(posts.items, () -> {
+                if (mBinding != null) {
+                    mBinding.profilePosts.post(this::loadPagesNearEnd);
+                }
+            });
+            if (!posts.loading) {
+                mBinding.profileRefresh.setRefreshing(false);
+            }
+            if (posts.error != null) {
+                Snackbar.make(mBinding.getRoot(), R.string.profile_load_failed, Snackbar.LENGTH_INDEFINITE)
+                        .setAction(R.string.action_retry, v -> mProfileViewModel.retry())
+                        .show();
+            }
+        });
+        mProfileViewModel.getStats().observe(getViewLifecycleOwner(), stats -> {
+            int postsCount = stats == null ? 0 : stats.getPostsCount();
+            int likesCount = stats == null ? 0 : stats.getLikesCount();
+            Resources resources = getResources();
+            mBinding.profilePostsCount.setText(
+                    resources.getQuantityString(R.plurals.profile_posts_count, postsCount, postsCount));
+            mBinding.profileLikesCount.setText(
+                    resources.getQuantityString(R.plurals.likes_count, likesCount, likesCount));
+        });
+
+        return mBinding.getRoot();
+    }
+
+    private void loadPagesNearEnd() {
+        if (mBinding == null) {
+            return;
+        }
+        GridLayoutManager layoutManager = (GridLayoutManager) mBinding.profilePosts.getLayoutManager();
+        mProfileViewModel.onPostShown(Objects.requireNonNull(layoutManager).findLastVisibleItemPosition());
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        mBinding = null;
     }
-}
\ No newline at end of file
+}
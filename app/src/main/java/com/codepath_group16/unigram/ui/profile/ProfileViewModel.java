@@ -1,19 +1,86 @@
 package com.codepath_group16.unigram.ui.profile;
 
+import android.util.Log;
+
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.ViewModel;
 
+import com.codepath_group16.unigram.AppExecutors;
+import com.codepath_group16.unigram.data.feed.FeedPager;
+import com.codepath_group16.unigram.data.feed.ParsePostSource;
+import com.codepath_group16.unigram.data.models.Post;
+import com.codepath_group16.unigram.data.models.UserStats;
+import com.codepath_group16.unigram.data.profile.UserStatsCounter;
+import com.parse.ParseException;
+import com.parse.ParseUser;
+
+/**
+ * The profile of the current user: their posts, a page at a time, and the totals of their
+ * {@link UserStats}.
+ */
 public class ProfileViewModel extends ViewModel {
 
-    private MutableLiveData<String> mText;
+    /**
+     * Fills a few screens of the grid.
+     */
+    private static final int PAGE_SIZE = 30;
+    private static final int PREFETCH_DISTANCE = 9;
+
+    private final String TAG = getClass().getSimpleName();
+    private final MutableLiveData<FeedPager.State<Post>> mPosts = new MutableLiveData<>();
+    private final MutableLiveData<UserStats> mStats = new MutableLiveData<>();
+    private final ParseUser mUser = ParseUser.getCurrentUser();
+    private final FeedPager<Post> mPager;
 
     public ProfileViewModel() {
-        mText = new MutableLiveData<>();
-        mText.setValue("This is the Profile fragment");
+        mPager = new FeedPager<>(ParsePostSource.byAuthor(mUser), AppExecutors.getInstance().diskIO(), PAGE_SIZE,
+                PREFETCH_DISTANCE, mPosts::postValue);
+        mPager.start();
+        loadStats();
+    }
+
+    public ParseUser getUser() {
+        return mUser;
+    }
+
+    public LiveData<FeedPager.State<Post>> getPosts() {
+        return mPosts;
+    }
+
+    /**
+     * The totals of the user, created the first time the profile is shown.
+     */
+    public LiveData<UserStats> getStats() {
+        return mStats;
+    }
+
+    void onPostShown(int position) {
+        mPager.onItemShown(position);
+    }
+
+    void refresh() {
+        mPager.refresh();
+        loadStats();
+    }
+
+    void retry() {
+        mPager.retry();
     }
 
-    public LiveData<String> getText() {
-        return mText;
+    private void loadStats() {
+        AppExecutors.getInstance().diskIO().execute(() -> {
+            UserStats stats = UserStats.of(mUser);
+            try {
+                if (stats == null) {
+                    stats = UserStatsCounter.getOrCreate(mUser);
+                } else {
+                    stats.fetch();
+                }
+                mStats.postValue(stats);
+            } catch (ParseException e) {
+                Log.e(TAG, "Unable to load the stats of " + mUser.getObjectId(), e);
+            }
+        });
     }
-}
\ No newline at end of file
+}
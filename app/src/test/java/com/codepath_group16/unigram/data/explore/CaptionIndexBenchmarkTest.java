@@ -0,0 +1,84 @@
+package com.codepath_group16.unigram.data.explore;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Indexes a large number of generated captions and times the searches typed into the explore
+ * tab, one per key press.
+ */
+public class CaptionIndexBenchmarkTest {
+
+    private static final int POSTS = 100_000;
+    private static final int WORDS = 5_000;
+    private static final int QUERIES = 2_000;
+    private static final int LIMIT = 30;
+    private static final long P95_LIMIT_MILLIS = 50;
+
+    @Test
+    public void prefixSearchStaysFastAt100kPosts() {
+        Random random = new Random(42);
+        String[] vocabulary = new String[WORDS];
+        for (int i = 0; i < WORDS; i++) {
+            vocabulary[i] = randomWord(random);
+        }
+
+        CaptionIndex index = new CaptionIndex();
+        long start = System.nanoTime();
+        for (int i = 0; i < POSTS; i++) {
+            StringBuilder caption = new StringBuilder();
+            int words = 3 + random.nextInt(10);
+            for (int w = 0; w < words; w++) {
+                caption.append(random.nextInt(5) == 0 ? "#" : "").append(popularWord(random, vocabulary)).append(' ');
+            }
+            // Likes are skewed, a few posts have most of them
+            int likes = (int) (Math.pow(random.nextDouble(), 4) * 10_000);
+            index.put("post" + i, caption.toString(), likes);
+        }
+        long indexMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        long[] nanos = new long[QUERIES];
+        int found = 0;
+        for (int q = 0; q < QUERIES; q++) {
+            // Typing a word, or a second one after it
+            String word = popularWord(random, vocabulary);
+            String typed = word.substring(0, 1 + random.nextInt(word.length()));
+            String query = random.nextInt(4) == 0 ? popularWord(random, vocabulary) + " " + typed : typed;
+            if (random.nextInt(5) == 0) {
+                query = "#" + query;
+            }
+            long begin = System.nanoTime();
+            found += index.search(query, LIMIT).size();
+            nanos[q] = System.nanoTime() - begin;
+        }
+        Arrays.sort(nanos);
+        double p50 = nanos[QUERIES / 2] / 1e6;
+        double p95 = nanos[QUERIES * 95 / 100] / 1e6;
+        double max = nanos[QUERIES - 1] / 1e6;
+
+        System.out.printf("%d posts indexed in %d ms; %d searches: p50 %.2f ms, p95 %.2f ms, max %.2f ms, %d results%n",
+                POSTS, indexMillis, QUERIES, p50, p95, max, found);
+        assertTrue(found > 0);
+        assertTrue("p95 " + p95 + " ms", p95 < P95_LIMIT_MILLIS);
+    }
+
+    /**
+     * A word of the vocabulary, the first ones much more often, the way words are used.
+     */
+    private static String popularWord(Random random, String[] vocabulary) {
+        return vocabulary[(int) (Math.pow(random.nextDouble(), 3) * vocabulary.length)];
+    }
+
+    private static String randomWord(Random random) {
+        char[] word = new char[3 + random.nextInt(7)];
+        for (int i = 0; i < word.length; i++) {
+            word[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(word);
+    }
+}
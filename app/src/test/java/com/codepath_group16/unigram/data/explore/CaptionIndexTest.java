@@ -0,0 +1,53 @@
+package com.codepath_group16.unigram.data.explore;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+
+public class CaptionIndexTest {
+
+    private final CaptionIndex mIndex = new CaptionIndex();
+
+    @Before
+    public void setUp() {
+        mIndex.put("a", "Sunset at the beach #sunset #Summer", 5);
+        mIndex.put("b", "Sunday brunch", 40);
+        mIndex.put("c", "beach volleyball, #summer vibes", 12);
+    }
+
+    @Test
+    public void prefixFindsWordsAndHashtagsMostLikedFirst() {
+        assertEquals(Arrays.asList("b", "a"), mIndex.search("sun", 10));
+        assertEquals(Arrays.asList("c", "a"), mIndex.search("Sum", 10));
+        assertEquals(Collections.singletonList("b"), mIndex.search("sun", 1));
+    }
+
+    @Test
+    public void hashtagQueryOnlyFindsHashtags() {
+        assertEquals(Collections.singletonList("a"), mIndex.search("#suns", 10));
+        assertEquals(Collections.emptyList(), mIndex.search("#sunday", 10));
+    }
+
+    @Test
+    public void everyWordOfTheQueryHasToMatch() {
+        assertEquals(Arrays.asList("c", "a"), mIndex.search("beach sum", 10));
+        assertEquals(Collections.singletonList("c"), mIndex.search("vol bea", 10));
+        assertEquals(Collections.emptyList(), mIndex.search("brunch beach", 10));
+    }
+
+    @Test
+    public void putReplacesAndRemoveForgetsThePost() {
+        mIndex.put("a", "Sunrise", 100);
+        assertEquals(Arrays.asList("a", "b"), mIndex.search("sun", 10));
+        assertEquals(Collections.singletonList("c"), mIndex.search("beach", 10));
+
+        mIndex.remove("b");
+        assertEquals(Collections.singletonList("a"), mIndex.search("sun", 10));
+        assertEquals(2, mIndex.size());
+        assertEquals(Collections.emptyList(), mIndex.search("  ", 10));
+    }
+}
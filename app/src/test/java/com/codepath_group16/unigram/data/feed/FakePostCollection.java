@@ -0,0 +1,119 @@
+package com.codepath_group16.unigram.data.feed;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Local stand-in for the Post class of the Parse server. Posts are kept in an index on
+ * ({@code createdAt}, {@code objectId}), descending, and queries are answered the way the
+ * database behind Parse answers them: a keyset constraint seeks into the index, a skip walks
+ * over every skipped entry. It counts the index entries each query examined.
+ */
+class FakePostCollection {
+
+    static final Comparator<FakePost> NEWEST_FIRST = (a, b) -> {
+        int byDate = b.createdAt.compareTo(a.createdAt);
+        return byDate != 0 ? byDate : b.objectId.compareTo(a.objectId);
+    };
+
+    private final List<FakePost> mIndex = new ArrayList<>();
+    private long mExamined;
+    private int mNextId;
+
+    /**
+     * Adds {@code count} posts, {@code perMillisecond} of them created in the same millisecond,
+     * newer than the ones already there.
+     */
+    synchronized void addPosts(int count, int perMillisecond) {
+        long start = mIndex.isEmpty() ? 1_600_000_000_000L : mIndex.get(0).createdAt.getTime() + 1;
+        for (int i = 0; i < count; i++) {
+            mIndex.add(new FakePost(new Date(start + i / perMillisecond), String.format(Locale.US, "%010d", mNextId++)));
+        }
+        Collections.sort(mIndex, NEWEST_FIRST);
+    }
+
+    synchronized int size() {
+        return mIndex.size();
+    }
+
+    synchronized long getExamined() {
+        return mExamined;
+    }
+
+    synchronized void resetExamined() {
+        mExamined = 0;
+    }
+
+    /**
+     * {@code where (createdAt, objectId) < after order by createdAt desc, objectId desc limit n}
+     */
+    synchronized List<FakePost> findAfter(FeedCursor after, int limit) {
+        int start = 0;
+        if (after != null) {
+            // Seek, the way an index lookup does
+            int low = 0;
+            int high = mIndex.size();
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                FakePost post = mIndex.get(middle);
+                mExamined++;
+                if (after.isBefore(post.createdAt, post.objectId)) {
+                    high = middle;
+                } else {
+                    low = middle + 1;
+                }
+            }
+            start = low;
+        }
+        return read(start, limit);
+    }
+
+    /**
+     * {@code order by createdAt desc, objectId desc skip s limit n}
+     */
+    synchronized List<FakePost> findSkip(int skip, int limit) {
+        // The skipped entries are walked one by one
+        int start = 0;
+        while (start < skip && start < mIndex.size()) {
+            mExamined++;
+            start++;
+        }
+        return read(start, limit);
+    }
+
+    private List<FakePost> read(int start, int limit) {
+        int end = Math.min(start + limit, mIndex.size());
+        mExamined += end - start;
+        return new ArrayList<>(mIndex.subList(start, end));
+    }
+
+    /**
+     * Keyset pages, like {@link ParsePostSource}.
+     */
+    PageSource<FakePost> keysetSource() {
+        return (after, limit) -> {
+            List<FakePost> posts = findAfter(after, limit);
+            FakePost last = posts.size() == limit ? posts.get(posts.size() - 1) : null;
+            return new FeedPage<>(posts, last == null ? null : new FeedCursor(last.createdAt, last.objectId));
+        };
+    }
+
+    static class FakePost {
+        final Date createdAt;
+        final String objectId;
+
+        FakePost(Date createdAt, String objectId) {
+            this.createdAt = createdAt;
+            this.objectId = objectId;
+        }
+
+        @Override
+        public String toString() {
+            return objectId;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.codepath_group16.unigram.data.feed;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class FeedPagerTest {
+
+    private static final int PAGE_SIZE = 20;
+    private static final int PREFETCH_DISTANCE = 5;
+
+    private FakePostCollection mPosts;
+    private List<FeedPager.State<FakePostCollection.FakePost>> mStates;
+
+    @Before
+    public void setUp() {
+        mPosts = new FakePostCollection();
+        mStates = new ArrayList<>();
+    }
+
+    @Test
+    public void loadsNextPageOnlyNearTheEnd() {
+        mPosts.addPosts(100, 1);
+        FeedPager<FakePostCollection.FakePost> pager = newPager(mPosts.keysetSource());
+
+        pager.start();
+        assertEquals(PAGE_SIZE, pager.getState().items.size());
+
+        pager.onItemShown(PAGE_SIZE - PREFETCH_DISTANCE - 1);
+        assertEquals(PAGE_SIZE, pager.getState().items.size());
+
+        pager.onItemShown(PAGE_SIZE - PREFETCH_DISTANCE);
+        assertEquals(2 * PAGE_SIZE, pager.getState().items.size());
+    }
+
+    @Test
+    public void pagesThroughPostsCreatedInTheSameMillisecond() {
+        mPosts.addPosts(95, 7);
+        FeedPager<FakePostCollection.FakePost> pager = newPager(mPosts.keysetSource());
+
+        pager.start();
+        while (!pager.getState().endReached) {
+            pager.onItemShown(pager.getState().items.size() - 1);
+        }
+
+        assertUniqueAndOrdered(pager.getState().items, 95);
+    }
+
+    @Test
+    public void newPostsDoNotShiftLaterPages() {
+        mPosts.addPosts(100, 1);
+        FeedPager<FakePostCollection.FakePost> pager = newPager(mPosts.keysetSource());
+
+        pager.start();
+        while (!pager.getState().endReached) {
+            // Posts added at the top while scrolling
+            mPosts.addPosts(3, 1);
+            pager.onItemShown(pager.getState().items.size() - 1);
+        }
+
+        assertUniqueAndOrdered(pager.getState().items, 100);
+    }
+
+    @Test
+    public void failedPageIsOnlyLoadedAgainOnRetry() {
+        mPosts.addPosts(100, 1);
+        PageSource<FakePostCollection.FakePost> source = mPosts.keysetSource();
+        boolean[] fail = {false};
+        FeedPager<FakePostCollection.FakePost> pager = newPager((after, limit) -> {
+            if (fail[0]) {
+                throw new IOException("offline");
+            }
+            return source.loadPage(after, limit);
+        });
+        pager.start();
+
+        fail[0] = true;
+        pager.onItemShown(PAGE_SIZE - 1);
+        assertNotNull(pager.getState().error);
+        fail[0] = false;
+        pager.onItemShown(PAGE_SIZE - 1);
+        assertEquals(PAGE_SIZE, pager.getState().items.size());
+
+        pager.retry();
+        assertNull(pager.getState().error);
+        assertEquals(2 * PAGE_SIZE, pager.getState().items.size());
+    }
+
+    @Test
+    public void refreshReplacesTheFeed() {
+        mPosts.addPosts(50, 1);
+        FeedPager<FakePostCollection.FakePost> pager = newPager(mPosts.keysetSource());
+        pager.start();
+        pager.onItemShown(PAGE_SIZE - 1);
+        assertEquals(2 * PAGE_SIZE, pager.getState().items.size());
+
+        mPosts.addPosts(1, 1);
+        pager.refresh();
+
+        FeedPager.State<FakePostCollection.FakePost> state = pager.getState();
+        assertEquals(PAGE_SIZE, state.items.size());
+        assertEquals("0000000050", state.items.get(0).objectId);
+        assertFalse(state.loading);
+        // Every change was reported, the last one with the refreshed feed
+        assertTrue(mStates.get(mStates.size() - 2).loading);
+        assertEquals(state.items, mStates.get(mStates.size() - 1).items);
+    }
+
+    @Test
+    public void showsCachedFeedUntilTheFirstPageIsLoaded() {
+        mPosts.addPosts(50, 1);
+        ListFeedCache cache = new ListFeedCache();
+        cache.write(new FeedPage<>(mPosts.findAfter(null, PAGE_SIZE), null), true);
+        mPosts.addPosts(2, 1);
+        FeedPager<FakePostCollection.FakePost> pager = new FeedPager<>(mPosts.keysetSource(), cache, Runnable::run,
+                PAGE_SIZE, PREFETCH_DISTANCE, mStates::add);
+
+        pager.start();
+
+        FeedPager.State<FakePostCollection.FakePost> cached = mStates.get(1);
+        assertTrue(cached.stale);
+        assertEquals("0000000049", cached.items.get(0).objectId);
+        FeedPager.State<FakePostCollection.FakePost> fresh = pager.getState();
+        assertFalse(fresh.stale);
+        assertEquals("0000000051", fresh.items.get(0).objectId);
+        // The cache was replaced by the fresh page
+        assertEquals(fresh.items, cache.mItems);
+    }
+
+    @Test
+    public void keepsCachedFeedWhenOffline() {
+        mPosts.addPosts(50, 1);
+        ListFeedCache cache = new ListFeedCache();
+        cache.write(new FeedPage<>(mPosts.findAfter(null, PAGE_SIZE), null), true);
+        boolean[] fail = {true};
+        PageSource<FakePostCollection.FakePost> source = mPosts.keysetSource();
+        FeedPager<FakePostCollection.FakePost> pager = new FeedPager<>((after, limit) -> {
+            if (fail[0]) {
+                throw new IOException("offline");
+            }
+            return source.loadPage(after, limit);
+        }, cache, Runnable::run, PAGE_SIZE, PREFETCH_DISTANCE, mStates::add);
+
+        pager.start();
+        assertTrue(pager.getState().stale);
+        assertNotNull(pager.getState().error);
+        assertEquals(PAGE_SIZE, pager.getState().items.size());
+
+        fail[0] = false;
+        pager.retry();
+        assertFalse(pager.getState().stale);
+        assertNull(pager.getState().error);
+    }
+
+    private FeedPager<FakePostCollection.FakePost> newPager(PageSource<FakePostCollection.FakePost> source) {
+        return new FeedPager<>(source, Runnable::run, PAGE_SIZE, PREFETCH_DISTANCE, mStates::add);
+    }
+
+    private static void assertUniqueAndOrdered(List<FakePostCollection.FakePost> posts, int expected) {
+        Set<String> ids = new HashSet<>();
+        for (int i = 0; i < posts.size(); i++) {
+            assertTrue("Duplicate " + posts.get(i), ids.add(posts.get(i).objectId));
+            if (i > 0) {
+                assertTrue(FakePostCollection.NEWEST_FIRST.compare(posts.get(i - 1), posts.get(i)) < 0);
+            }
+        }
+        assertTrue(posts.size() >= expected);
+    }
+
+    private static class ListFeedCache implements FeedCache<FakePostCollection.FakePost> {
+        List<FakePostCollection.FakePost> mItems = new ArrayList<>();
+
+        @Override
+        public FeedPage<FakePostCollection.FakePost> read() {
+            FakePostCollection.FakePost last = mItems.isEmpty() ? null : mItems.get(mItems.size() - 1);
+            return new FeedPage<>(new ArrayList<>(mItems),
+                    last == null ? null : new FeedCursor(last.createdAt, last.objectId));
+        }
+
+        @Override
+        public void write(FeedPage<FakePostCollection.FakePost> page, boolean first) {
+            if (first) {
+                mItems = new ArrayList<>();
+            }
+            mItems.addAll(page.items);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.codepath_group16.unigram.data.feed;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Scrolls a deep feed on the {@link FakePostCollection} stand-in with keyset pages and with
+ * skip and limit, and compares how much of the index the server has to walk.
+ */
+public class FeedPaginationBenchmarkTest {
+
+    private static final int POSTS = 50_000;
+    private static final int PAGE_SIZE = 20;
+
+    @Test
+    public void keysetPagesCostTheSameAtAnyDepth() throws Exception {
+        FakePostCollection posts = new FakePostCollection();
+        posts.addPosts(POSTS, 3);
+
+        long start = System.nanoTime();
+        FeedPager<FakePostCollection.FakePost> pager = new FeedPager<>(posts.keysetSource(), Runnable::run,
+                PAGE_SIZE, 1, state -> {
+        });
+        pager.start();
+        while (!pager.getState().endReached) {
+            pager.onItemShown(pager.getState().items.size() - 1);
+        }
+        long keysetNanos = System.nanoTime() - start;
+        long keysetExamined = posts.getExamined();
+        assertEquals(POSTS, pager.getState().items.size());
+
+        posts.resetExamined();
+        start = System.nanoTime();
+        Set<String> seen = new HashSet<>();
+        for (int skip = 0; ; skip += PAGE_SIZE) {
+            List<FakePostCollection.FakePost> page = posts.findSkip(skip, PAGE_SIZE);
+            for (FakePostCollection.FakePost post : page) {
+                seen.add(post.objectId);
+            }
+            if (page.size() < PAGE_SIZE) {
+                break;
+            }
+        }
+        long skipNanos = System.nanoTime() - start;
+        long skipExamined = posts.getExamined();
+        assertEquals(POSTS, seen.size());
+
+        System.out.printf("%d posts in pages of %d: keyset examined %d entries in %d ms, skip/limit %d in %d ms%n",
+                POSTS, PAGE_SIZE, keysetExamined, TimeUnit.NANOSECONDS.toMillis(keysetNanos),
+                skipExamined, TimeUnit.NANOSECONDS.toMillis(skipNanos));
+
+        int pages = POSTS / PAGE_SIZE + 1;
+        // Every post is read once, plus a binary search per page
+        assertTrue(keysetExamined <= POSTS + pages * 32L);
+        // Skip walks everything above the page again for every page
+        assertTrue(skipExamined >= (long) POSTS * (pages - 1) / 2);
+    }
+}
@@ -0,0 +1,75 @@
+package com.codepath_group16.unigram.data.likes;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Local stand-in for the rows a Parse server increments. The way the database behind it does,
+ * an increment locks its row for as long as the write takes, so increments of the same row wait
+ * for each other. It adds up how long the increments waited for their row.
+ */
+class FakeCounterRows {
+
+    private final long mWriteNanos;
+    private final Map<String, Row> mRows = new HashMap<>();
+    private final AtomicLong mWaitedNanos = new AtomicLong();
+
+    FakeCounterRows(long writeMicros) {
+        mWriteNanos = TimeUnit.MICROSECONDS.toNanos(writeMicros);
+    }
+
+    void increment(String rowId, int delta) {
+        Row row;
+        synchronized (mRows) {
+            row = mRows.get(rowId);
+            if (row == null) {
+                row = new Row();
+                mRows.put(rowId, row);
+            }
+        }
+        if (!row.lock.tryLock()) {
+            long start = System.nanoTime();
+            row.lock.lock();
+            mWaitedNanos.addAndGet(System.nanoTime() - start);
+        }
+        try {
+            LockSupport.parkNanos(mWriteNanos);
+            row.value += delta;
+        } finally {
+            row.lock.unlock();
+        }
+    }
+
+    /**
+     * The sum of the rows whose id starts with {@code prefix}, one read of each.
+     */
+    int sum(String prefix) {
+        int sum = 0;
+        synchronized (mRows) {
+            for (Map.Entry<String, Row> row : mRows.entrySet()) {
+                if (row.getKey().startsWith(prefix)) {
+                    row.getValue().lock.lock();
+                    try {
+                        sum += row.getValue().value;
+                    } finally {
+                        row.getValue().lock.unlock();
+                    }
+                }
+            }
+        }
+        return sum;
+    }
+
+    long getWaitedNanos() {
+        return mWaitedNanos.get();
+    }
+
+    private static class Row {
+        final ReentrantLock lock = new ReentrantLock();
+        int value;
+    }
+}
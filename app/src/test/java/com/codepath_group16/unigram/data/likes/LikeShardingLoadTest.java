@@ -0,0 +1,82 @@
+package com.codepath_group16.unigram.data.likes;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Has many users like the same post at once on the {@link FakeCounterRows} stand-in, with the
+ * count in one row and split over the shards of a {@link ShardedCounter}, and compares how long
+ * the likes waited for each other and how many went through per second.
+ */
+public class LikeShardingLoadTest {
+
+    private static final int LIKERS = 16;
+    private static final int LIKES_PER_LIKER = 50;
+    private static final long WRITE_MICROS = 500;
+
+    @Test
+    public void shardingRemovesTheHotRow() throws Exception {
+        Result single = run(1);
+        Result sharded = run(ParseLikeCounter.SHARDS);
+
+        System.out.printf("%d likes by %d users: 1 row waited %d ms, %.0f likes/s; %d shards waited %d ms, %.0f likes/s%n",
+                LIKERS * LIKES_PER_LIKER, LIKERS, TimeUnit.NANOSECONDS.toMillis(single.waitedNanos),
+                single.throughput, ParseLikeCounter.SHARDS, TimeUnit.NANOSECONDS.toMillis(sharded.waitedNanos),
+                sharded.throughput);
+
+        assertTrue(sharded.waitedNanos < single.waitedNanos / 2);
+        assertTrue(sharded.throughput > single.throughput * 2);
+    }
+
+    private static Result run(int shards) throws Exception {
+        FakeCounterRows rows = new FakeCounterRows(WRITE_MICROS);
+        ShardedCounter counter = new ShardedCounter(shards, 60_000, new Random(7));
+        ExecutorService likers = Executors.newFixedThreadPool(LIKERS);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(LIKERS);
+        for (int i = 0; i < LIKERS; i++) {
+            likers.execute(() -> {
+                try {
+                    start.await();
+                    for (int like = 0; like < LIKES_PER_LIKER; like++) {
+                        rows.increment("post/" + counter.pickShard(), 1);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        assertTrue(done.await(1, TimeUnit.MINUTES));
+        long nanos = System.nanoTime() - begin;
+        likers.shutdown();
+
+        // No like is lost over the shards
+        int total = rows.sum("post/");
+        assertEquals(LIKERS * LIKES_PER_LIKER, total);
+        counter.reconcile("post", total, 0);
+        assertEquals(Integer.valueOf(total), counter.getTotal("post"));
+        return new Result(rows.getWaitedNanos(), total * 1e9 / nanos);
+    }
+
+    private static class Result {
+        final long waitedNanos;
+        final double throughput;
+
+        Result(long waitedNanos, double throughput) {
+            this.waitedNanos = waitedNanos;
+            this.throughput = throughput;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.codepath_group16.unigram.data.likes;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ShardedCounterTest {
+
+    private final ShardedCounter mCounter = new ShardedCounter(4, 1000, new Random(1));
+
+    @Test
+    public void writesSpreadOverEveryShard() {
+        Set<Integer> shards = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            int shard = mCounter.pickShard();
+            assertTrue(shard >= 0 && shard < 4);
+            shards.add(shard);
+        }
+        assertEquals(4, shards.size());
+    }
+
+    @Test
+    public void totalIsStaleUntilReconciledAndAfterMaxAge() {
+        assertNull(mCounter.getTotal("post"));
+        assertTrue(mCounter.isStale("post", 0));
+
+        mCounter.reconcile("post", 12, 5000);
+        assertFalse(mCounter.isStale("post", 5999));
+        assertTrue(mCounter.isStale("post", 6000));
+        assertEquals(Integer.valueOf(12), mCounter.getTotal("post"));
+    }
+
+    @Test
+    public void ownWritesShowBeforeTheNextReconcile() {
+        mCounter.reconcile("post", 12, 5000);
+        mCounter.add("post", 1, 0);
+        assertEquals(Integer.valueOf(13), mCounter.getTotal("post"));
+        assertFalse(mCounter.isStale("post", 5000));
+
+        mCounter.add("other", -1, 3);
+        assertEquals(Integer.valueOf(2), mCounter.getTotal("other"));
+        assertTrue(mCounter.isStale("other", 5000));
+    }
+}
@@ -0,0 +1,73 @@
+package com.codepath_group16.unigram.data.likes;
+
+import com.parse.ParseException;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SplitBatchSaverTest {
+
+    /**
+     * Saves like the Parse batch endpoint under the default ACL: a batch with a post of someone
+     * else fails as a whole.
+     */
+    private static class FakeServer implements SplitBatchSaver.Saver<String> {
+        final List<List<String>> requests = new ArrayList<>();
+        final List<String> saved = new ArrayList<>();
+
+        @Override
+        public void save(List<String> items) throws ParseException {
+            requests.add(new ArrayList<>(items));
+            for (String item : items) {
+                if (item.startsWith("other")) {
+                    throw new ParseException(ParseException.OBJECT_NOT_FOUND, "Object not found for update");
+                }
+            }
+            saved.addAll(items);
+        }
+    }
+
+    @Test
+    public void savesEverythingInOneRequest() {
+        FakeServer server = new FakeServer();
+
+        Map<String, ParseException> failed = SplitBatchSaver.save(Arrays.asList("own1", "own2", "own3"), server);
+
+        assertTrue(failed.isEmpty());
+        assertEquals(1, server.requests.size());
+        assertEquals(Arrays.asList("own1", "own2", "own3"), server.saved);
+    }
+
+    @Test
+    public void onlyTheItemThatFailsIsReported() {
+        FakeServer server = new FakeServer();
+        List<String> items = Arrays.asList("own1", "other", "own2");
+
+        Map<String, ParseException> failed = SplitBatchSaver.save(items, server);
+
+        assertEquals(1, failed.size());
+        assertSame(items.get(1), failed.keySet().iterator().next());
+        assertEquals(ParseException.OBJECT_NOT_FOUND, failed.get(items.get(1)).getCode());
+        assertEquals(Arrays.asList("own1", "own2"), server.saved);
+        // The batch, then each item on its own
+        assertEquals(1 + items.size(), server.requests.size());
+    }
+
+    @Test
+    public void singleItemIsNotSentTwice() {
+        FakeServer server = new FakeServer();
+
+        Map<String, ParseException> failed = SplitBatchSaver.save(Arrays.asList("other"), server);
+
+        assertEquals(1, failed.size());
+        assertEquals(1, server.requests.size());
+    }
+}
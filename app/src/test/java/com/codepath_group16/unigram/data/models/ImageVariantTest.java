@@ -0,0 +1,26 @@
+package com.codepath_group16.unigram.data.models;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+
+public class ImageVariantTest {
+
+    @Test
+    public void smallestCoveringVariantComesFirst() {
+        assertEquals(ImageVariant.THUMBNAIL, ImageVariant.covering(120).get(0));
+        assertEquals(ImageVariant.THUMBNAIL, ImageVariant.covering(360).get(0));
+        assertEquals(ImageVariant.MEDIUM, ImageVariant.covering(361).get(0));
+        assertEquals(ImageVariant.FULL, ImageVariant.covering(720).get(0));
+    }
+
+    @Test
+    public void largerVariantsAreTriedBeforeSmallerOnes() {
+        assertEquals(Arrays.asList(ImageVariant.MEDIUM, ImageVariant.FULL, ImageVariant.THUMBNAIL),
+                ImageVariant.covering(400));
+        assertEquals(Arrays.asList(ImageVariant.FULL, ImageVariant.MEDIUM, ImageVariant.THUMBNAIL),
+                ImageVariant.covering(1440));
+    }
+}
@@ -0,0 +1,209 @@
+package com.codepath_group16.unigram.data.upload;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for the resumable upload endpoint in front of the Parse server. It can be told
+ * to drop the connection in the middle of a chunk to test how uploads resume, to expire its
+ * sessions and to never answer with the file.
+ */
+class FakeResumableUploadServer {
+
+    private static final String PATH = "/files/resumable";
+
+    private final HttpServer mServer;
+    private final Map<String, UploadSession> mSessions = new ConcurrentHashMap<>();
+    private final Set<String> mExpired = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger mChunkRequests = new AtomicInteger();
+    private final AtomicLong mBytesReceived = new AtomicLong();
+    private volatile int mDropOnChunkRequest = -1;
+    private volatile int mDropAfterBytes;
+    private volatile boolean mWithholdFiles;
+
+    FakeResumableUploadServer() throws IOException {
+        mServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        mServer.createContext(PATH, this::handle);
+    }
+
+    void start() {
+        mServer.start();
+    }
+
+    void stop() {
+        mServer.stop(0);
+    }
+
+    URL getEndpoint() throws IOException {
+        return new URL("http", "127.0.0.1", mServer.getAddress().getPort(), PATH);
+    }
+
+    /**
+     * Closes the connection after reading {@code afterBytes} bytes of the {@code chunkRequest}th
+     * chunk request, counting from 1. The partial chunk is never acknowledged.
+     */
+    void dropConnection(int chunkRequest, int afterBytes) {
+        mDropOnChunkRequest = chunkRequest;
+        mDropAfterBytes = afterBytes;
+    }
+
+    /**
+     * Forgets every session started so far, requests for them are answered {@code 410}.
+     */
+    void expireSessions() {
+        mExpired.addAll(mSessions.keySet());
+        mSessions.clear();
+    }
+
+    /**
+     * Answers {@code 308} with the full range instead of the file once a session has every byte,
+     * like a server that failed to store it.
+     */
+    void withholdFiles() {
+        mWithholdFiles = true;
+    }
+
+    int getChunkRequests() {
+        return mChunkRequests.get();
+    }
+
+    /**
+     * Total number of chunk bytes that were read, including the ones of dropped requests.
+     */
+    long getBytesReceived() {
+        return mBytesReceived.get();
+    }
+
+    byte[] getContent(String name) {
+        for (UploadSession session : mSessions.values()) {
+            if (name.equals(session.storedName)) {
+                return session.content.toByteArray();
+            }
+        }
+        return null;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        if ("POST".equals(exchange.getRequestMethod()) && path.equals(PATH)) {
+            drain(exchange.getRequestBody());
+            long total = Long.parseLong(exchange.getRequestHeaders().getFirst("X-Upload-Content-Length"));
+            String id = UUID.randomUUID().toString();
+            mSessions.put(id, new UploadSession(total));
+            exchange.getResponseHeaders().add("Location", PATH + "/" + id);
+            exchange.sendResponseHeaders(201, -1);
+            exchange.close();
+            return;
+        }
+
+        String id = path.substring(path.lastIndexOf('/') + 1);
+        if (mExpired.contains(id)) {
+            drain(exchange.getRequestBody());
+            exchange.sendResponseHeaders(410, -1);
+            exchange.close();
+            return;
+        }
+        UploadSession session = mSessions.get(id);
+        if (!"PUT".equals(exchange.getRequestMethod()) || session == null) {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+            return;
+        }
+
+        String range = exchange.getRequestHeaders().getFirst("Content-Range");
+        if (range.startsWith("bytes */")) {
+            drain(exchange.getRequestBody());
+            respond(exchange, session);
+            return;
+        }
+
+        // bytes first-last/total
+        String[] bounds = range.substring("bytes ".length(), range.indexOf('/')).split("-");
+        long first = Long.parseLong(bounds[0]);
+        int length = (int) (Long.parseLong(bounds[1]) - first + 1);
+        int request = mChunkRequests.incrementAndGet();
+
+        InputStream body = exchange.getRequestBody();
+        byte[] chunk = new byte[length];
+        int limit = request == mDropOnChunkRequest ? mDropAfterBytes : length;
+        int read = 0;
+        while (read < limit) {
+            int count = body.read(chunk, read, limit - read);
+            if (count < 0) {
+                break;
+            }
+            read += count;
+        }
+        mBytesReceived.addAndGet(read);
+
+        if (read < length) {
+            // Closing the exchange before sending headers drops the connection
+            exchange.close();
+            return;
+        }
+
+        synchronized (session) {
+            if (first == session.content.size()) {
+                session.content.write(chunk, 0, length);
+            }
+        }
+        respond(exchange, session);
+    }
+
+    private void respond(HttpExchange exchange, UploadSession session) throws IOException {
+        synchronized (session) {
+            if (session.content.size() == session.total && !mWithholdFiles) {
+                if (session.storedName == null) {
+                    session.storedName = UUID.randomUUID() + "_post.jpg";
+                }
+                byte[] json = ("{\"name\":\"" + session.storedName + "\",\"url\":\"http://127.0.0.1/files/"
+                        + session.storedName + "\"}").getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(201, json.length);
+                try (OutputStream output = exchange.getResponseBody()) {
+                    output.write(json);
+                }
+            } else {
+                if (session.content.size() > 0) {
+                    exchange.getResponseHeaders().add("Range", "bytes=0-" + (session.content.size() - 1));
+                }
+                // Without an explicit empty body the client can't reuse the kept alive connection
+                exchange.sendResponseHeaders(ResumableUploader.HTTP_RESUME_INCOMPLETE, 0);
+                exchange.getResponseBody().close();
+            }
+        }
+        exchange.close();
+    }
+
+    private static void drain(InputStream input) throws IOException {
+        byte[] buffer = new byte[1024];
+        //noinspection StatementWithEmptyBody
+        while (input.read(buffer) != -1) {
+        }
+    }
+
+    private static class UploadSession {
+        final long total;
+        final ByteArrayOutputStream content = new ByteArrayOutputStream();
+        String storedName;
+
+        UploadSession(long total) {
+            this.total = total;
+        }
+    }
+}
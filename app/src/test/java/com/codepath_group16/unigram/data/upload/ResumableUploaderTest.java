@@ -0,0 +1,190 @@
+package com.codepath_group16.unigram.data.upload;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ResumableUploaderTest {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int FILE_SIZE = 5 * CHUNK_SIZE + 1234;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private FakeResumableUploadServer mServer;
+    private File mFile;
+    private byte[] mContent;
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = new FakeResumableUploadServer();
+        mServer.start();
+
+        mContent = new byte[FILE_SIZE];
+        new Random(42).nextBytes(mContent);
+        mFile = mFolder.newFile("post.jpg");
+        try (FileOutputStream output = new FileOutputStream(mFile)) {
+            output.write(mContent);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        mServer.stop();
+    }
+
+    @Test
+    public void uploadsInChunksAndReportsBytesSent() throws IOException {
+        RecordingListener listener = new RecordingListener();
+
+        ResumableUploader.UploadedFile uploaded = new ResumableUploader(mServer.getEndpoint(), CHUNK_SIZE)
+                .upload(mFile, mFile.getName(), "image/jpeg", new ResumableUploader.Session(), listener);
+
+        assertArrayEquals(mContent, mServer.getContent(uploaded.name));
+        assertEquals(6, mServer.getChunkRequests());
+        assertEquals(FILE_SIZE, (long) listener.progress.get(listener.progress.size() - 1));
+        for (int i = 1; i < listener.progress.size(); i++) {
+            assertTrue(listener.progress.get(i) >= listener.progress.get(i - 1));
+        }
+    }
+
+    @Test
+    public void resumesFromLastAcknowledgedChunkAfterDroppedConnection() throws IOException {
+        mServer.dropConnection(3, CHUNK_SIZE / 2);
+        RecordingListener listener = new RecordingListener();
+        ResumableUploader uploader = new ResumableUploader(mServer.getEndpoint(), CHUNK_SIZE);
+        ResumableUploader.Session session = new ResumableUploader.Session();
+
+        try {
+            uploader.upload(mFile, mFile.getName(), "image/jpeg", session, listener);
+            fail("The dropped connection should fail the upload");
+        } catch (IOException expected) {
+            // The first two chunks were acknowledged
+        }
+        assertNotNull(listener.checkpoint);
+        assertEquals(2L * CHUNK_SIZE, listener.checkpoint.offset);
+
+        // Continue with the saved session the way the upload queue does after a restart
+        ResumableUploader.Session saved = new ResumableUploader.Session(listener.checkpoint.url, listener.checkpoint.offset);
+        ResumableUploader.UploadedFile uploaded = uploader.upload(mFile, mFile.getName(), "image/jpeg", saved, listener);
+
+        assertArrayEquals(mContent, mServer.getContent(uploaded.name));
+        // Only the half chunk that was dropped is sent twice
+        assertEquals(FILE_SIZE + CHUNK_SIZE / 2, mServer.getBytesReceived());
+    }
+
+    @Test
+    public void completedSessionIsNotUploadedAgain() throws IOException {
+        RecordingListener listener = new RecordingListener();
+        ResumableUploader uploader = new ResumableUploader(mServer.getEndpoint(), CHUNK_SIZE);
+        ResumableUploader.Session session = new ResumableUploader.Session();
+        ResumableUploader.UploadedFile first = uploader.upload(mFile, mFile.getName(), "image/jpeg", session, listener);
+        int requests = mServer.getChunkRequests();
+
+        ResumableUploader.UploadedFile second = uploader.upload(mFile, mFile.getName(), "image/jpeg", session, listener);
+
+        assertEquals(first.name, second.name);
+        assertEquals(requests, mServer.getChunkRequests());
+    }
+
+    @Test
+    public void expiredSessionIsReportedAndANewOneUploads() throws IOException {
+        mServer.dropConnection(2, CHUNK_SIZE / 2);
+        RecordingListener listener = new RecordingListener();
+        ResumableUploader uploader = new ResumableUploader(mServer.getEndpoint(), CHUNK_SIZE);
+        try {
+            uploader.upload(mFile, mFile.getName(), "image/jpeg", new ResumableUploader.Session(), listener);
+            fail("The dropped connection should fail the upload");
+        } catch (IOException expected) {
+            // The first chunk was acknowledged
+        }
+        mServer.expireSessions();
+
+        ResumableUploader.Session saved = new ResumableUploader.Session(listener.checkpoint.url, listener.checkpoint.offset);
+        try {
+            uploader.upload(mFile, mFile.getName(), "image/jpeg", saved, listener);
+            fail("The expired session should fail the upload");
+        } catch (ResumableUploader.SessionExpiredException expected) {
+            // The upload queue clears the saved session on this
+        }
+
+        ResumableUploader.UploadedFile uploaded = uploader.upload(mFile, mFile.getName(), "image/jpeg",
+                new ResumableUploader.Session(), listener);
+        assertArrayEquals(mContent, mServer.getContent(uploaded.name));
+    }
+
+    @Test
+    public void unknownSessionIsReportedAsExpired() throws IOException {
+        ResumableUploader uploader = new ResumableUploader(mServer.getEndpoint(), CHUNK_SIZE);
+        ResumableUploader.Session unknown = new ResumableUploader.Session(
+                new URL(mServer.getEndpoint() + "/unknown"), CHUNK_SIZE);
+        try {
+            uploader.upload(mFile, mFile.getName(), "image/jpeg", unknown, new RecordingListener());
+            fail("The unknown session should fail the upload");
+        } catch (ResumableUploader.SessionExpiredException expected) {
+            // Answered 404
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void fullyAcknowledgedSessionWithoutFileIsReportedAsExpired() throws IOException {
+        mServer.withholdFiles();
+        RecordingListener listener = new RecordingListener();
+        ResumableUploader uploader = new ResumableUploader(mServer.getEndpoint(), CHUNK_SIZE);
+        try {
+            uploader.upload(mFile, mFile.getName(), "image/jpeg", new ResumableUploader.Session(), listener);
+            fail("The upload should fail without a file");
+        } catch (ResumableUploader.SessionExpiredException expected) {
+            // Every chunk was sent once, none again
+        }
+        assertEquals(6, mServer.getChunkRequests());
+        assertEquals(FILE_SIZE, listener.checkpoint.offset);
+
+        ResumableUploader.Session saved = new ResumableUploader.Session(listener.checkpoint.url, listener.checkpoint.offset);
+        try {
+            uploader.upload(mFile, mFile.getName(), "image/jpeg", saved, listener);
+            fail("The resumed upload should fail without a file");
+        } catch (ResumableUploader.SessionExpiredException expected) {
+            // Found out from the status query, without sending a chunk
+        }
+        assertEquals(6, mServer.getChunkRequests());
+    }
+
+    @Test
+    public void parsesRangeHeader() throws IOException {
+        assertEquals(0, ResumableUploader.parseRange(null));
+        assertEquals(65536, ResumableUploader.parseRange("bytes=0-65535"));
+    }
+
+    private static class RecordingListener implements ResumableUploader.Listener {
+        final List<Long> progress = new ArrayList<>();
+        ResumableUploader.Session checkpoint;
+
+        @Override
+        public void onProgress(long bytesSent, long totalBytes) {
+            progress.add(bytesSent);
+        }
+
+        @Override
+        public void onCheckpoint(ResumableUploader.Session session) {
+            checkpoint = new ResumableUploader.Session(session.url, session.offset);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.codepath_group16.unigram.data.upload;
+
+import com.codepath_group16.unigram.ProgressChannel;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Uploads 20 MB through the resumable uploader, publishing the percent on every write the way
+ * the upload queue does with the callbacks of Parse, and counts the messages that reach the
+ * stand-in for the main thread.
+ */
+public class UploadProgressThrottleTest {
+
+    private static final int FILE_SIZE = 20 * 1024 * 1024;
+    private static final String POST_ID = "post";
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private FakeResumableUploadServer mServer;
+    private File mFile;
+    private ScheduledExecutorService mScheduler;
+    private ExecutorService mMainThread;
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = new FakeResumableUploadServer();
+        mServer.start();
+
+        byte[] content = new byte[FILE_SIZE];
+        new Random(42).nextBytes(content);
+        mFile = mFolder.newFile("post.jpg");
+        try (FileOutputStream output = new FileOutputStream(mFile)) {
+            output.write(content);
+        }
+        mScheduler = Executors.newSingleThreadScheduledExecutor();
+        mMainThread = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        mServer.stop();
+        mScheduler.shutdownNow();
+        mMainThread.shutdownNow();
+    }
+
+    @Test
+    public void twentyMegabyteUploadPostsAtMostOneMessageAFrame() throws Exception {
+        AtomicInteger posted = new AtomicInteger();
+        Executor mainThread = task -> {
+            posted.incrementAndGet();
+            mMainThread.execute(task);
+        };
+        List<Integer> delivered = Collections.synchronizedList(new ArrayList<>());
+        ProgressChannel channel = new ProgressChannel(mainThread, mScheduler, ProgressChannel.FRAME_MILLIS,
+                (id, percent) -> delivered.add(percent));
+        AtomicInteger callbacks = new AtomicInteger();
+
+        long startedAt = System.nanoTime();
+        new ResumableUploader(mServer.getEndpoint()).upload(mFile, mFile.getName(), "image/jpeg",
+                new ResumableUploader.Session(), new ResumableUploader.Listener() {
+                    @Override
+                    public void onProgress(long bytesSent, long totalBytes) {
+                        callbacks.incrementAndGet();
+                        channel.publish(POST_ID, (int) (bytesSent * 100 / totalBytes));
+                    }
+
+                    @Override
+                    public void onCheckpoint(ResumableUploader.Session session) {
+                    }
+                });
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+        // Let the last delivery through
+        mScheduler.shutdown();
+        assertTrue(mScheduler.awaitTermination(1, TimeUnit.SECONDS));
+        mMainThread.shutdown();
+        assertTrue(mMainThread.awaitTermination(1, TimeUnit.SECONDS));
+
+        System.out.printf("%d progress callbacks in %d ms, %d main thread messages, %d values delivered%n",
+                callbacks.get(), elapsedMillis, posted.get(), delivered.size());
+        assertTrue(callbacks.get() >= FILE_SIZE / (16 * 1024));
+        // One message a frame, the first and the trailing one
+        assertTrue("Posted " + posted.get() + " messages in " + elapsedMillis + " ms",
+                posted.get() <= elapsedMillis / ProgressChannel.FRAME_MILLIS + 2);
+        assertEquals(posted.get(), channel.getMessageCount());
+        assertEquals(100, (int) delivered.get(delivered.size() - 1));
+        for (int i = 1; i < delivered.size(); i++) {
+            assertTrue(delivered.get(i) >= delivered.get(i - 1));
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.codepath_group16.unigram.metrics;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class MetricsTest {
+
+    @Test
+    public void bucketsCoverEveryValueInOrder() {
+        assertEquals(0, Histogram.bucketOf(0));
+        assertEquals(Histogram.BUCKETS - 1, Histogram.bucketOf(Long.MAX_VALUE));
+        for (int bucket = 0; bucket < Histogram.BUCKETS; bucket++) {
+            long lowest = Histogram.lowestValueOf(bucket);
+            long highest = Histogram.highestValueOf(bucket);
+            assertEquals(bucket, Histogram.bucketOf(lowest));
+            assertEquals(bucket, Histogram.bucketOf(highest));
+            if (bucket + 1 < Histogram.BUCKETS) {
+                assertEquals(highest + 1, Histogram.lowestValueOf(bucket + 1));
+            }
+        }
+    }
+
+    @Test
+    public void percentilesAreWithinAQuarterOfTheValue() {
+        Histogram histogram = new Histogram();
+        for (int value = 1; value <= 1000; value++) {
+            histogram.record(value);
+        }
+        Histogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(1000, snapshot.count);
+        assertEquals(500_500, snapshot.sum);
+        assertEquals(1, snapshot.min);
+        assertEquals(1000, snapshot.max);
+        assertEquals(500.5, snapshot.getMean(), 0.001);
+        for (int percentile : new int[]{50, 90, 99}) {
+            long value = snapshot.getPercentile(percentile);
+            assertTrue(percentile + "th percentile was " + value,
+                    value >= percentile * 10 && value <= percentile * 10 * 1.25);
+        }
+        assertEquals(1000, snapshot.getPercentile(100));
+    }
+
+    @Test
+    public void emptyHistogramReportsZeros() {
+        Histogram.Snapshot snapshot = new Histogram().snapshot();
+        assertEquals(0, snapshot.count);
+        assertEquals(0, snapshot.min);
+        assertEquals(0, snapshot.max);
+        assertEquals(0, snapshot.getPercentile(50));
+        assertEquals(0, snapshot.getMean(), 0);
+    }
+
+    @Test
+    public void recordsFromManyThreadsWithoutLosingAny() throws Exception {
+        Metrics metrics = new Metrics();
+        int threads = 8;
+        int perThread = 100_000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            int offset = i;
+            Thread worker = new Thread(() -> {
+                // Looked up from every thread, they must all get the same metrics
+                Counter counter = metrics.counter("rows");
+                Histogram histogram = metrics.histogram("sizes");
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int j = 0; j < perThread; j++) {
+                    counter.increment();
+                    histogram.record(offset * perThread + j);
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertEquals(threads * perThread, metrics.counter("rows").get());
+        Histogram.Snapshot snapshot = metrics.histogram("sizes").snapshot();
+        assertEquals(threads * perThread, snapshot.count);
+        assertEquals(0, snapshot.min);
+        assertEquals(threads * perThread - 1, snapshot.max);
+        assertSame(metrics.timer("query"), metrics.timer("query"));
+    }
+
+    @Test
+    public void jsonHasTimersInMilliseconds() throws Exception {
+        Metrics metrics = new Metrics();
+        metrics.counter("upload.success").add(3);
+        metrics.timer("gallery.query").record(TimeUnit.MILLISECONDS.toNanos(8));
+        metrics.histogram("rows").record(60);
+
+        JSONObject json = metrics.toJson();
+        assertEquals(3, json.getJSONObject("counters").getLong("upload.success"));
+        JSONObject query = json.getJSONObject("timers").getJSONObject("gallery.query");
+        assertEquals(1, query.getLong("count"));
+        assertEquals(8, query.getDouble("max"), 0.001);
+        assertEquals(8, query.getDouble("p50"), 0.001);
+        assertEquals(60, json.getJSONObject("histograms").getJSONObject("rows").getLong("p99"));
+    }
+}
@@ -0,0 +1,62 @@
+#!/bin/sh
+# Compares cold starts with Parse set up eagerly on the main thread, as it used to be, and
+# lazily on its own thread. Each build is installed on the connected device, started from
+# scratch RUNS times, and the median time to the first frame of LoginActivity and
+# MainActivity is printed from the StartupTrace log lines, with the time from the launch
+# until the feed shows. Warm launches, backing out of the app and starting it again in the
+# same process, are timed to the feed as well. Log in first so the launches go to the feed.
+#
+# Usage: scripts/startup-benchmark.sh [RUNS]
+
+set -e
+cd "$(dirname "$0")/.."
+
+RUNS=${1:-10}
+PACKAGE=com.codepath_group16.unigram
+ACTIVITY=$PACKAGE/.LoginActivity
+
+median() {
+    sort -n | awk '{ v[NR] = $1 } END { if (NR == 0) print "-"; else print v[int((NR + 1) / 2)] }'
+}
+
+run() {
+    mode=$1
+    shift
+    ./gradlew -q installDebug "$@"
+    log=$(mktemp)
+    i=0
+    while [ "$i" -lt "$RUNS" ]; do
+        adb shell am force-stop "$PACKAGE"
+        adb logcat -c
+        adb shell am start -W -n "$ACTIVITY" > /dev/null
+        # MainActivity draws after LoginActivity is reported done
+        sleep 2
+        adb logcat -d -s StartupTrace:I >> "$log"
+        i=$((i + 1))
+    done
+    i=0
+    while [ "$i" -lt "$RUNS" ]; do
+        adb shell input keyevent KEYCODE_BACK
+        sleep 1
+        adb logcat -c
+        adb shell am start -W -n "$ACTIVITY" > /dev/null
+        sleep 2
+        adb logcat -d -s StartupTrace:I >> "$log"
+        i=$((i + 1))
+    done
+    for activity in LoginActivity MainActivity; do
+        ms=$(grep "$activity first frame after" "$log" | sed 's/.*first frame after \([0-9]*\) ms.*/\1/' | median)
+        init=$(grep "$activity first frame after" "$log" | sed 's/.* took \([0-9]*\) ms,.*/\1/' | median)
+        waited=$(grep "$activity first frame after" "$log" | sed 's/.*main thread waited \([0-9]*\) ms.*/\1/' | median)
+        echo "$mode $activity: first frame ${ms} ms, Parse set up in ${init} ms," \
+            "main thread waited for it ${waited} ms (median of $RUNS)"
+    done
+    for launch in cold warm; do
+        ms=$(grep "Launch to feed after .* $launch," "$log" | sed 's/.*Launch to feed after \([0-9]*\) ms.*/\1/' | median)
+        echo "$mode $launch launch to feed: ${ms} ms (median of $RUNS)"
+    done
+    rm "$log"
+}
+
+run eager -PeagerParseInit
+run lazy